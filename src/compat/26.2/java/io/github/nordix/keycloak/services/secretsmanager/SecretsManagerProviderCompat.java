@@ -16,16 +16,26 @@ import org.keycloak.services.resources.admin.AdminEventBuilder;
 import org.keycloak.services.resources.admin.ext.AdminRealmResourceProvider;
 import org.keycloak.services.resources.admin.permissions.AdminPermissionEvaluator;
 
+import io.github.nordix.keycloak.common.BaoClientFactory;
 import io.github.nordix.keycloak.common.ProviderConfig;
+import io.github.nordix.keycloak.common.SecretChangeFeed;
+import io.github.nordix.keycloak.common.SecretListCache;
 
 public class SecretsManagerProviderCompat implements AdminRealmResourceProvider {
 
     private static Logger logger = Logger.getLogger(SecretsManagerProviderCompat.class);
     private final ProviderConfig providerConfig;
+    private final BaoClientFactory clientFactory;
+    private final SecretListCache listCache;
+    private final SecretChangeFeed changeFeed;
 
-    public SecretsManagerProviderCompat(ProviderConfig providerConfig) {
+    public SecretsManagerProviderCompat(ProviderConfig providerConfig, BaoClientFactory clientFactory,
+            SecretListCache listCache, SecretChangeFeed changeFeed) {
         logger.debugf("Creating SecretManagerProvider instance");
         this.providerConfig = providerConfig;
+        this.clientFactory = clientFactory;
+        this.listCache = listCache;
+        this.changeFeed = changeFeed;
     }
 
     @Override
@@ -37,6 +47,7 @@ public class SecretsManagerProviderCompat implements AdminRealmResourceProvider
     public Object getResource(KeycloakSession session, RealmModel realm, AdminPermissionEvaluator auth,
             AdminEventBuilder adminEvent) {
         logger.debugv("Creating SecretManagerProvider for session: {0}, realm: {1}", session, realm.getName());
-        return new SecretsManagerResourceCompat(session, realm, auth, adminEvent, providerConfig);
+        return new SecretsManagerResourceCompat(session, realm, auth, adminEvent, providerConfig, clientFactory,
+                listCache, changeFeed);
     }
 }
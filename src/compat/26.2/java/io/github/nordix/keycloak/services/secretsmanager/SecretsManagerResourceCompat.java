@@ -14,7 +14,10 @@ import org.keycloak.models.RealmModel;
 import org.keycloak.services.resources.admin.AdminEventBuilder;
 import org.keycloak.services.resources.admin.permissions.AdminPermissionEvaluator;
 
+import io.github.nordix.keycloak.common.BaoClientFactory;
 import io.github.nordix.keycloak.common.ProviderConfig;
+import io.github.nordix.keycloak.common.SecretChangeFeed;
+import io.github.nordix.keycloak.common.SecretListCache;
 
 public class SecretsManagerResourceCompat extends SecretsManagerResource {
 
@@ -24,8 +27,11 @@ public class SecretsManagerResourceCompat extends SecretsManagerResource {
             RealmModel realm,
             AdminPermissionEvaluator auth,
             AdminEventBuilder adminEvent,
-            ProviderConfig providerConfig) {
-        super(session, realm, adminEvent, providerConfig);
+            ProviderConfig providerConfig,
+            BaoClientFactory clientFactory,
+            SecretListCache listCache,
+            SecretChangeFeed changeFeed) {
+        super(session, realm, adminEvent, providerConfig, clientFactory, listCache, changeFeed);
         this.auth = auth;
     }
 
@@ -10,12 +10,14 @@ package io.github.nordix.baoclient;
 
 import java.io.IOException;
 import java.net.URI;
+import java.net.http.HttpClient;
 import java.net.http.HttpResponse;
-import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.StreamSupport;
 
 import org.jboss.logging.Logger;
@@ -34,6 +36,24 @@ public class BaoClient {
         this.httpClient = new RestClient(url);
     }
 
+    /**
+     * Creates a client that distributes requests over multiple nodes.
+     *
+     * @param loadBalancer The load balancer, shared by clients.
+     */
+    public BaoClient(LoadBalancer loadBalancer) {
+        this.httpClient = new RestClient(loadBalancer);
+    }
+
+    /**
+     * Creates a client that connects to a local OpenBao agent over a Unix domain socket.
+     *
+     * @param transport The transport, shared by clients.
+     */
+    public BaoClient(UnixSocketTransport transport) {
+        this.httpClient = new RestClient(transport);
+    }
+
     /**
      * Sets the CA certificate file to be used by the HTTP client.
      *
@@ -45,6 +65,108 @@ public class BaoClient {
         return this;
     }
 
+    /**
+     * Uses the given HTTP client instead of building one, so that connections are reused across clients.
+     *
+     * @param client The HTTP client, shared by clients.
+     * @return This BaoClient instance for method chaining.
+     */
+    public BaoClient withHttpClient(HttpClient client) {
+        httpClient.withHttpClient(client);
+        return this;
+    }
+
+    /**
+     * Builds an HTTP client that can be shared by clients with {@link #withHttpClient(HttpClient)}.
+     *
+     * @param connectionTimeout The connection timeout.
+     * @param caCertificateFile Path to the CA certificate file, or null to use the default trust store.
+     * @return The HTTP client.
+     */
+    public static HttpClient newHttpClient(Duration connectionTimeout, String caCertificateFile) {
+        return RestClient.newHttpClient(connectionTimeout, caCertificateFile);
+    }
+
+    /**
+     * Enables hedging of read requests.
+     *
+     * @param hedgePolicy The hedge policy, shared by clients.
+     * @return This BaoClient instance for method chaining.
+     */
+    public BaoClient withHedging(HedgePolicy hedgePolicy) {
+        httpClient.withHedging(hedgePolicy);
+        return this;
+    }
+
+    /**
+     * Sets the connection timeout and the timeout of a single request attempt.
+     *
+     * @param connectionTimeout The connection timeout.
+     * @param requestTimeout    The request timeout.
+     * @return This BaoClient instance for method chaining.
+     */
+    public BaoClient withTimeouts(Duration connectionTimeout, Duration requestTimeout) {
+        httpClient.withTimeouts(connectionTimeout, requestTimeout);
+        return this;
+    }
+
+    /**
+     * Sets the maximum size of a response body. Larger responses are aborted while they are read.
+     *
+     * @param maxResponseSize The maximum size in bytes.
+     * @return This BaoClient instance for method chaining.
+     */
+    public BaoClient withMaxResponseSize(long maxResponseSize) {
+        httpClient.withMaxResponseSize(maxResponseSize);
+        return this;
+    }
+
+    /**
+     * Enables retries of idempotent requests and sets the overall time limit of each call.
+     *
+     * @param retryPolicy  The retry policy, shared by clients.
+     * @param callDeadline The time limit of a call including all retries, or null for no limit.
+     * @return This BaoClient instance for method chaining.
+     */
+    public BaoClient withRetries(RetryPolicy retryPolicy, Duration callDeadline) {
+        httpClient.withRetries(retryPolicy).withDeadline(callDeadline);
+        return this;
+    }
+
+    /**
+     * Enables the circuit breaker, which fails requests immediately while OpenBao/HashiCorp Vault is failing.
+     *
+     * @param circuitBreaker The circuit breaker, shared by the clients of a provider.
+     * @return This BaoClient instance for method chaining.
+     */
+    public BaoClient withCircuitBreaker(CircuitBreaker circuitBreaker) {
+        httpClient.withCircuitBreaker(circuitBreaker);
+        return this;
+    }
+
+    /**
+     * Enables adaptive limiting of concurrent requests to OpenBao/HashiCorp Vault.
+     *
+     * @param concurrencyLimiter The limiter, shared by the clients of a provider.
+     * @return This BaoClient instance for method chaining.
+     */
+    public BaoClient withConcurrencyLimit(ConcurrencyLimiter concurrencyLimiter) {
+        httpClient.withConcurrencyLimit(concurrencyLimiter);
+        return this;
+    }
+
+    /**
+     * Sets the caller and priority used to schedule the requests fairly when the concurrency limit is reached.
+     *
+     * @param caller   The caller, e.g. realm, whose requests are queued together.
+     * @param priority The priority of the requests.
+     * @return This BaoClient instance for method chaining.
+     */
+    public BaoClient withCaller(String caller, ConcurrencyLimiter.Priority priority) {
+        httpClient.withCaller(caller, priority);
+        return this;
+    }
+
     /**
      * Sets the authentication token to be used by the HTTP client.
      *
@@ -56,6 +178,18 @@ public class BaoClient {
         return this;
     }
 
+    /**
+     * Sets a listener that is called when OpenBao/HashiCorp Vault answers a request with 403 Forbidden, which
+     * is also the response to a token that has expired or has been revoked.
+     *
+     * @param listener The listener.
+     * @return This BaoClient instance for method chaining.
+     */
+    public BaoClient withPermissionDeniedListener(Runnable listener) {
+        httpClient.withPermissionDeniedListener(listener);
+        return this;
+    }
+
     /**
      * Logs in to the Bao service using Kubernetes authentication.
      *
@@ -68,24 +202,51 @@ public class BaoClient {
      * @throws BaoClientException if the login fails.
      */
     public BaoClient loginWithKubernetes(String serviceAccountFile, String role) throws IOException {
-        logger.debugv("Attempting to log in using Kubernetes auth method, service account token and role {0}", role);
+        return loginWithKubernetes(new TokenFile(Paths.get(serviceAccountFile)), role);
+    }
 
-        String kubernetesSaToken = new String(Files.readAllBytes(Paths.get(serviceAccountFile)));
-        if (kubernetesSaToken.isEmpty()) {
-            logger.error("Service account token is empty or null.");
-            throw new BaoClientException("Service account token is empty or null.");
-        }
+    /**
+     * Logs in to the Bao service using Kubernetes authentication, with the service account token cached by the
+     * given token file.
+     *
+     * @param serviceAccountToken The Kubernetes service account token file, shared by clients.
+     * @param role                The role to assume for the login.
+     * @return This BaoClient instance for method chaining.
+     * @throws IOException        if there is an error reading the service account
+     *                            file or sending the request.
+     * @throws BaoClientException if the service account token is empty or the login fails.
+     */
+    public BaoClient loginWithKubernetes(TokenFile serviceAccountToken, String role) throws IOException {
+        httpClient.withHeader("X-Vault-Token", requestKubernetesToken(serviceAccountToken, role).getToken());
+        return this;
+    }
+
+    /**
+     * Logs in using Kubernetes authentication and returns the token, without using it for this client.
+     * The token can be shared by clients with {@link #withToken(String)} until it expires.
+     *
+     * @param serviceAccountToken The Kubernetes service account token file, shared by clients.
+     * @param role                The role to assume for the login.
+     * @return The token and its lease.
+     * @throws IOException        if there is an error reading the service account
+     *                            file or sending the request.
+     * @throws BaoClientException if the service account token is empty or the login fails.
+     */
+    public AuthToken requestKubernetesToken(TokenFile serviceAccountToken, String role) throws IOException {
+        logger.debugv("Attempting to log in using Kubernetes auth method, service account token and role {0}", role);
 
-        logger.debug("Service account token successfully read.");
+        String kubernetesSaToken = serviceAccountToken.getToken();
 
         Map<String, String> payload = new HashMap<>();
         payload.put("role", role);
         payload.put("jwt", kubernetesSaToken);
 
+        // Logging in again has no side effects, so the request may be retried.
         HttpResponse<JsonNode> response = httpClient.sendRequest(
                 AUTH_URL_KUBERNETES,
                 "POST",
-                toJsonString(payload));
+                toJsonString(payload),
+                true);
 
         if (!RestClient.isSuccessfulResponse(response)) {
             logger.errorv(
@@ -98,7 +259,19 @@ public class BaoClient {
         }
 
         logger.debug("Login successful. Token obtained.");
-        httpClient.withHeader("X-Vault-Token", response.body().path("auth").path("client_token").asText());
+        JsonNode auth = response.body().path("auth");
+        return new AuthToken(auth.path("client_token").asText(), auth.path("lease_duration").asLong(0));
+    }
+
+    /**
+     * Uses the token from the token file, without a login request.
+     *
+     * @param tokenFile The token file, shared by clients.
+     * @return This BaoClient instance for method chaining.
+     * @throws IOException if there is an error reading the token file.
+     */
+    public BaoClient loginWithTokenFile(TokenFile tokenFile) throws IOException {
+        httpClient.withHeader("X-Vault-Token", tokenFile.getToken());
         return this;
     }
 
@@ -108,10 +281,20 @@ public class BaoClient {
      * @return true if the service is ready, false otherwise.
      */
     public boolean isReady() {
+        return getHealthStatus() / 100 == 2;
+    }
+
+    /**
+     * Queries the health endpoint.
+     *
+     * @return the HTTP status code: 200 for the active node, 429 for a standby, 473 for a performance standby,
+     *         501 if not initialized and 503 if sealed.
+     */
+    public int getHealthStatus() {
         HttpResponse<JsonNode> response = httpClient.sendRequest(
                 "v1/sys/health",
                 "GET");
-        return RestClient.isSuccessfulResponse(response);
+        return response.statusCode();
     }
 
     /**
@@ -186,6 +369,18 @@ public class BaoClient {
      * @throws BaoClientException if the operation fails.
      */
     public Map<String, String> kv1Get(String kvMountPath, String secretPath) {
+        return kv1GetSecret(kvMountPath, secretPath).getData();
+    }
+
+    /**
+     * Retrieves a secret from KVv1 store together with its lease duration.
+     *
+     * @param kvMountPath The mount path of the KV store.
+     * @param secretPath  The full path to the secret (e.g. "my-app/secret").
+     * @return The secret data and metadata.
+     * @throws BaoClientException if the operation fails.
+     */
+    public KvSecret kv1GetSecret(String kvMountPath, String secretPath) {
         HttpResponse<JsonNode> response = httpClient.sendRequest(
                 "v1/" + kvMountPath + "/" + secretPath,
                 "GET");
@@ -199,7 +394,8 @@ public class BaoClient {
                     "Failed to read data from path '" + secretPath + "': '" + response.body() + "'",
                     response.statusCode());
         }
-        return fromJsonNodeToMapStringString(response.body().path("data"));
+        return new KvSecret(fromJsonNodeToMapStringString(response.body().path("data")),
+                response.body().path("lease_duration").asLong(0), 0);
     }
 
     /**
@@ -280,6 +476,18 @@ public class BaoClient {
      * @throws BaoClientException if the operation fails.
      */
     public Map<String, String> kv2Get(String kvMountPath, String secretPath) {
+        return kv2GetSecret(kvMountPath, secretPath).getData();
+    }
+
+    /**
+     * Retrieves a secret from KVv2 store together with its lease duration and version.
+     *
+     * @param kvMountPath The mount path of the KV store.
+     * @param secretPath  The full path to the secret (e.g. "my-app/secret").
+     * @return The secret data and metadata.
+     * @throws BaoClientException if the operation fails.
+     */
+    public KvSecret kv2GetSecret(String kvMountPath, String secretPath) {
         HttpResponse<JsonNode> response = httpClient.sendRequest(
                 "v1/" + kvMountPath + "/data/" + secretPath,
                 "GET");
@@ -302,7 +510,9 @@ public class BaoClient {
             throw new BaoClientException("Secret not found at path '" + secretPath + "'", response.statusCode());
         }
 
-        return fromJsonNodeToMapStringString(rootNode.path("data").path("data"));
+        return new KvSecret(fromJsonNodeToMapStringString(rootNode.path("data").path("data")),
+                rootNode.path("lease_duration").asLong(0),
+                rootNode.path("data").path("metadata").path("version").asInt(0));
     }
 
     /**
@@ -357,6 +567,76 @@ public class BaoClient {
         return map;
     }
 
+    /**
+     * Secret read from KV store with the metadata returned by the server.
+     */
+    public static class KvSecret {
+        private final Map<String, String> data;
+        private final long leaseDuration;
+        private final int version;
+
+        public KvSecret(Map<String, String> data, long leaseDuration, int version) {
+            this.data = data;
+            this.leaseDuration = leaseDuration;
+            this.version = version;
+        }
+
+        /**
+         * Returns the key-value pairs of the secret.
+         */
+        public Map<String, String> getData() {
+            return data;
+        }
+
+        /**
+         * Returns the lease duration in seconds, or 0 if the server did not return one.
+         */
+        public long getLeaseDuration() {
+            return leaseDuration;
+        }
+
+        /**
+         * Returns the KVv2 version of the secret, or 0 for KVv1.
+         */
+        public int getVersion() {
+            return version;
+        }
+    }
+
+    /**
+     * Token obtained by logging in.
+     */
+    public static class AuthToken {
+        private final String token;
+        private final long leaseDuration;
+        private final long obtainedAt = System.nanoTime();
+
+        public AuthToken(String token, long leaseDuration) {
+            this.token = token;
+            this.leaseDuration = leaseDuration;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        /**
+         * Returns the lease duration in seconds, or 0 if the token does not expire.
+         */
+        public long getLeaseDuration() {
+            return leaseDuration;
+        }
+
+        /**
+         * Returns true if the given fraction of the lease has passed, e.g. 0.66 to renew the token well before
+         * it expires. A token without lease never expires.
+         */
+        public boolean isExpiring(double fraction) {
+            return leaseDuration > 0
+                    && System.nanoTime() - obtainedAt >= (long) (TimeUnit.SECONDS.toNanos(leaseDuration) * fraction);
+        }
+    }
+
     /**
      * Exception class for handling client errors.
      */
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.baoclient;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Body subscriber that reads a response body of at most a maximum size, and keeps only its beginning in memory.
+ * <p>
+ * The body is read as it arrives. The first {@code retainLimit} bytes are kept, and the rest is counted and
+ * discarded without buffering. If the body grows beyond the maximum size, or its {@code Content-Length} already
+ * announces that it will, the subscription is cancelled and the body completes with
+ * {@link RestClient.ResponseTooLargeException}.
+ */
+final class BoundedBodySubscriber implements HttpResponse.BodySubscriber<BoundedBodySubscriber.Body> {
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private final long maxSize;
+    private final int retainLimit;
+    private final long declaredLength;
+    private final CompletableFuture<Body> result = new CompletableFuture<>();
+
+    private Flow.Subscription subscription;
+    private byte[] retained;
+    private int retainedLength;
+    private long length;
+
+    /**
+     * @param maxSize        maximum size of the body in bytes
+     * @param retainLimit    number of bytes from the beginning of the body to keep
+     * @param declaredLength length of the body given by {@code Content-Length}, or -1 if unknown
+     */
+    BoundedBodySubscriber(long maxSize, int retainLimit, long declaredLength) {
+        this.maxSize = maxSize;
+        this.retainLimit = (int) Math.min(retainLimit, maxSize);
+        this.declaredLength = declaredLength;
+        // Allocate the whole body at once when its length is known, instead of growing the buffer.
+        this.retained = new byte[(int) Math.min(this.retainLimit,
+                declaredLength >= 0 ? declaredLength : INITIAL_BUFFER_SIZE)];
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (declaredLength > maxSize) {
+            subscription.cancel();
+            result.completeExceptionally(tooLarge(declaredLength));
+            return;
+        }
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> buffers) {
+        if (result.isDone()) {
+            return;
+        }
+        for (ByteBuffer buffer : buffers) {
+            int count = buffer.remaining();
+            length += count;
+            if (length > maxSize) {
+                subscription.cancel();
+                result.completeExceptionally(tooLarge(length));
+                return;
+            }
+            int retain = Math.min(count, retainLimit - retainedLength);
+            if (retain > 0) {
+                if (retainedLength + retain > retained.length) {
+                    retained = Arrays.copyOf(retained,
+                            (int) Math.min(retainLimit, Math.max(retainedLength + retain, 2L * retained.length)));
+                }
+                buffer.get(retained, retainedLength, retain);
+                retainedLength += retain;
+            }
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        result.complete(new Body(retainedLength == retained.length ? retained
+                : Arrays.copyOf(retained, retainedLength), length));
+    }
+
+    @Override
+    public CompletionStage<Body> getBody() {
+        return result;
+    }
+
+    private RestClient.ResponseTooLargeException tooLarge(long size) {
+        return new RestClient.ResponseTooLargeException(String.format(
+                "Response body of %s bytes exceeds the maximum size of %d bytes",
+                size == declaredLength ? size : "more than " + maxSize, maxSize));
+    }
+
+    /**
+     * Beginning of a response body, and the total length of the body.
+     */
+    static final class Body {
+        private final byte[] bytes;
+        private final long length;
+
+        Body(byte[] bytes, long length) {
+            this.bytes = bytes;
+            this.length = length;
+        }
+
+        /**
+         * Returns the retained bytes, the whole body unless it is truncated.
+         */
+        byte[] bytes() {
+            return bytes;
+        }
+
+        long length() {
+            return length;
+        }
+
+        boolean isTruncated() {
+            return bytes.length < length;
+        }
+
+        boolean isBlank() {
+            return !isTruncated() && new String(bytes, StandardCharsets.UTF_8).isBlank();
+        }
+
+        /**
+         * Returns the body as text for error messages, truncated to the given number of characters.
+         */
+        String toText(int maxLength) {
+            if (length == 0) {
+                return "<empty>";
+            }
+            String text = new String(bytes, StandardCharsets.UTF_8);
+            if (!isTruncated() && text.length() <= maxLength) {
+                return text;
+            }
+            return text.substring(0, Math.min(maxLength, text.length())) + "... (truncated, total length: "
+                    + length + ")";
+        }
+    }
+}
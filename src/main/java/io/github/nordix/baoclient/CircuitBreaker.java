@@ -0,0 +1,197 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.baoclient;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Circuit breaker that stops sending requests to OpenBao/HashiCorp Vault while it is failing.
+ * <p>
+ * The breaker is closed while the failure rate of the recent requests is below the threshold. A failure is a
+ * request that could not connect, timed out or was answered with a server error. When the failure rate reaches
+ * the threshold, the breaker opens and requests are rejected immediately without waiting for timeouts.
+ * After the open duration, the breaker is half-open and lets a few trial requests through: if they all succeed
+ * the breaker closes, and if any of them fails the breaker opens again.
+ * The breaker is shared by all clients of a provider.
+ */
+public class CircuitBreaker {
+
+    private static Logger logger = Logger.getLogger(CircuitBreaker.class);
+
+    /**
+     * State of the circuit breaker.
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN;
+    }
+
+    private static final int WINDOW_SIZE = 100;
+    private static final int TRIAL_REQUESTS = 3;
+
+    private final double failureRateThreshold;
+    private final int minimumRequests;
+    private final long openDurationNanos;
+
+    private volatile State state = State.CLOSED;
+    private long openedAt;
+
+    /** Outcomes of the recent requests in closed state, true for failure. */
+    private final boolean[] outcomes = new boolean[WINDOW_SIZE];
+    private int recorded;
+    private int nextOutcome;
+    private int failures;
+
+    private int trialsInFlight;
+    private int trialsSucceeded;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param failureRateThreshold failure rate in percent at which the breaker opens, e.g. 50
+     * @param minimumRequests      number of recent requests required before the failure rate is evaluated
+     * @param openDurationMillis   time the breaker stays open before trial requests are let through
+     */
+    public CircuitBreaker(double failureRateThreshold, int minimumRequests, long openDurationMillis) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 100) {
+            throw new IllegalArgumentException("Failure rate threshold must be between 0 and 100: "
+                    + failureRateThreshold);
+        }
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumRequests = Math.max(1, Math.min(minimumRequests, WINDOW_SIZE));
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+    }
+
+    /**
+     * Returns true if a request may be sent, and reserves a trial request if the breaker is half-open.
+     * Every permitted request must be followed by a call to {@link #onSuccess()}, {@link #onFailure()} or
+     * {@link #onCancelled()}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openDurationNanos) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            logger.info("OpenBao circuit breaker is half-open, sending trial requests");
+            state = State.HALF_OPEN;
+            trialsInFlight = 0;
+            trialsSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsInFlight + trialsSucceeded >= TRIAL_REQUESTS) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            trialsInFlight++;
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if requests are currently let through, without reserving a trial request.
+     */
+    public synchronized boolean isCallPermitted() {
+        return state != State.OPEN || System.nanoTime() - openedAt >= openDurationNanos;
+    }
+
+    /**
+     * Records a request that OpenBao/HashiCorp Vault answered without a server error.
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            trialsInFlight = Math.max(0, trialsInFlight - 1);
+            if (++trialsSucceeded >= TRIAL_REQUESTS) {
+                logger.info("OpenBao circuit breaker is closed");
+                reset(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    /**
+     * Records a request that failed to connect, timed out or was answered with a server error.
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            logger.warn("OpenBao circuit breaker trial request failed, opening again");
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumRequests && failures * 100.0 / recorded >= failureRateThreshold) {
+                logger.warnv("OpenBao circuit breaker is open: {0} of the last {1} requests failed", failures,
+                        recorded);
+                open();
+            }
+        }
+    }
+
+    /**
+     * Records a request that was cancelled or interrupted before its outcome was known.
+     */
+    public synchronized void onCancelled() {
+        if (state == State.HALF_OPEN) {
+            trialsInFlight = Math.max(0, trialsInFlight - 1);
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the number of requests rejected because the breaker was open.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private void record(boolean failure) {
+        if (recorded == WINDOW_SIZE) {
+            if (outcomes[nextOutcome]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[nextOutcome] = failure;
+        if (failure) {
+            failures++;
+        }
+        nextOutcome = (nextOutcome + 1) % WINDOW_SIZE;
+    }
+
+    private void open() {
+        reset(State.OPEN);
+        openedAt = System.nanoTime();
+    }
+
+    private void reset(State newState) {
+        state = newState;
+        recorded = 0;
+        nextOutcome = 0;
+        failures = 0;
+        trialsInFlight = 0;
+        trialsSucceeded = 0;
+    }
+
+    /**
+     * Thrown when a request is rejected because the circuit breaker is open.
+     */
+    public static class CircuitBreakerOpenException extends RestClient.RestClientException {
+        public CircuitBreakerOpenException(String message) {
+            super(message);
+        }
+    }
+}
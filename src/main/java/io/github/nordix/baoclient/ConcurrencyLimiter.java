@@ -0,0 +1,313 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.baoclient;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adaptive limit for the number of concurrent requests to OpenBao/HashiCorp Vault.
+ * <p>
+ * The limit is adjusted with additive increase, multiplicative decrease (AIMD): it grows by one for every
+ * round of requests that use most of the limit and complete normally, and is cut by 10% when a request is
+ * dropped, i.e. fails to connect, times out or is answered with 429 or 503, or when a request takes more than
+ * twice the average response time. The limit thus settles at the concurrency that OpenBao sustains without
+ * queueing.
+ * <p>
+ * Requests over the limit wait for a free slot, at most until their deadline. If too many requests are already
+ * waiting, further requests are rejected immediately.
+ * <p>
+ * Waiting requests are served with weighted fair queuing: requests are queued per caller (realm) and priority,
+ * and free slots are shared between the queues in proportion to the weights of their priorities. A caller that
+ * sends many requests thus waits behind its own requests instead of delaying other callers, and
+ * {@link Priority#INTERACTIVE} requests get four times the share of {@link Priority#ADMIN} requests without
+ * starving them.
+ * The limiter is shared by all clients of a provider.
+ */
+public class ConcurrencyLimiter {
+
+    /**
+     * Priority of a request when waiting for a free slot.
+     */
+    public enum Priority {
+        /** Requests that a user is waiting for, such as resolving a secret during login. */
+        INTERACTIVE(4),
+        /** Administrative requests, such as listing or writing secrets. */
+        ADMIN(1);
+
+        private final int weight;
+
+        Priority(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Notified when a request has acquired a slot.
+     */
+    public interface Listener {
+        /**
+         * @param caller    the caller that the request was queued for
+         * @param priority  the priority of the request
+         * @param waitNanos time the request waited for the slot, 0 if it did not wait
+         */
+        void onAcquired(String caller, Priority priority, long waitNanos);
+    }
+
+    private static final int INITIAL_LIMIT = 16;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double LATENCY_WEIGHT = 0.05;
+
+    private final int maxLimit;
+    private final int maxQueued;
+
+    private double limit;
+    private int inFlight;
+    private double averageLatencyNanos;
+
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(
+            Comparator.comparingDouble((Waiter waiter) -> waiter.finishTag).thenComparingLong(waiter -> waiter.seq));
+    /** Finish tag of the last request queued per caller and priority. */
+    private final Map<String, Double> lastFinishTags = new HashMap<>();
+    private final Map<String, Integer> queuedByCaller = new HashMap<>();
+    private double virtualTime;
+    private long nextSeq;
+    private Listener listener = (caller, priority, waitNanos) -> {
+    };
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param maxLimit  upper bound for the limit
+     * @param maxQueued maximum number of requests waiting for a free slot
+     */
+    public ConcurrencyLimiter(int maxLimit, int maxQueued) {
+        if (maxLimit < 1) {
+            throw new IllegalArgumentException("Maximum limit must be positive: " + maxLimit);
+        }
+        this.maxLimit = maxLimit;
+        this.maxQueued = maxQueued;
+        this.limit = Math.min(INITIAL_LIMIT, maxLimit);
+    }
+
+    /**
+     * Sets the listener that is notified when requests acquire slots, e.g. to record wait times.
+     */
+    public synchronized ConcurrencyLimiter withListener(Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Waits until the request may be sent. Every acquired slot must be released with
+     * {@link #onSuccess(long)}, {@link #onDropped()} or {@link #onCancelled()}.
+     *
+     * @param caller       the caller, e.g. realm, whose requests are queued together
+     * @param priority     the priority of the request
+     * @param maxWaitNanos time left until the deadline of the request
+     * @throws LimitExceededException if the queue is full, or no slot became free before the deadline
+     */
+    public synchronized void acquire(String caller, Priority priority, long maxWaitNanos) {
+        String callerName = caller != null ? caller : "";
+        if (waiters.isEmpty() && inFlight < (int) limit) {
+            inFlight++;
+            listener.onAcquired(callerName, priority, 0);
+            return;
+        }
+        if (waiters.size() >= maxQueued) {
+            rejected.incrementAndGet();
+            throw new LimitExceededException(String.format(
+                    "Too many requests to OpenBao/HashiCorp Vault: %d in flight, %d queued", inFlight,
+                    waiters.size()));
+        }
+
+        Waiter waiter = enqueue(callerName, priority);
+        long deadline = waiter.queuedAt + maxWaitNanos;
+        try {
+            while (!waiter.granted) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    dequeue(waiter);
+                    rejected.incrementAndGet();
+                    throw new LimitExceededException(String.format(
+                            "Deadline exceeded while waiting for a request slot, limit %d", (int) limit));
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        } catch (InterruptedException e) {
+            if (waiter.granted) {
+                release();
+            } else {
+                dequeue(waiter);
+            }
+            Thread.currentThread().interrupt();
+            throw new LimitExceededException("Interrupted while waiting for a request slot");
+        }
+        listener.onAcquired(callerName, priority, System.nanoTime() - waiter.queuedAt);
+    }
+
+    /**
+     * Takes a slot if one is free and no requests are waiting, without waiting or counting a rejection.
+     * A slot that was taken must be released like one from {@link #acquire(String, Priority, long)}.
+     *
+     * @param caller   the caller, e.g. realm, of the request
+     * @param priority the priority of the request
+     * @return true if the slot was taken
+     */
+    public synchronized boolean tryAcquire(String caller, Priority priority) {
+        if (!waiters.isEmpty() || inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        listener.onAcquired(caller != null ? caller : "", priority, 0);
+        return true;
+    }
+
+    /**
+     * Releases the slot of a request that completed normally.
+     *
+     * @param elapsedNanos response time of the request
+     */
+    public synchronized void onSuccess(long elapsedNanos) {
+        boolean slow = averageLatencyNanos > 0 && elapsedNanos > LATENCY_TOLERANCE * averageLatencyNanos;
+        averageLatencyNanos = averageLatencyNanos > 0
+                ? averageLatencyNanos * (1 - LATENCY_WEIGHT) + elapsedNanos * LATENCY_WEIGHT
+                : elapsedNanos;
+
+        if (slow) {
+            decrease();
+        } else if (inFlight >= limit / 2) {
+            // Grow only while the limit is actually used, otherwise it would grow without bound when idle.
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        release();
+    }
+
+    /**
+     * Releases the slot of a request that failed to connect, timed out or was rejected by the server as
+     * overloaded.
+     */
+    public synchronized void onDropped() {
+        decrease();
+        release();
+    }
+
+    /**
+     * Releases the slot of a request that was cancelled or failed for other reasons.
+     */
+    public synchronized void onCancelled() {
+        release();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return waiters.size();
+    }
+
+    /**
+     * Returns the number of requests of the given caller waiting for a slot.
+     */
+    public synchronized int getQueued(String caller) {
+        return queuedByCaller.getOrDefault(caller, 0);
+    }
+
+    /**
+     * Returns the number of requests rejected because the queue was full or the deadline passed while queued.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private void decrease() {
+        limit = Math.max(1, limit * BACKOFF_RATIO);
+    }
+
+    private void release() {
+        inFlight--;
+        dispatch();
+    }
+
+    /**
+     * Queues the request with a finish tag one weighted step after the caller's previous request, or after the
+     * current virtual time if the caller has no requests queued.
+     */
+    private Waiter enqueue(String caller, Priority priority) {
+        String flow = priority + "/" + caller;
+        double finishTag = Math.max(virtualTime, lastFinishTags.getOrDefault(flow, 0.0)) + 1.0 / priority.weight;
+        lastFinishTags.put(flow, finishTag);
+        queuedByCaller.merge(caller, 1, Integer::sum);
+        Waiter waiter = new Waiter(caller, finishTag, nextSeq++);
+        waiters.add(waiter);
+        return waiter;
+    }
+
+    private void dequeue(Waiter waiter) {
+        if (waiters.remove(waiter)) {
+            queuedByCaller.computeIfPresent(waiter.caller, (caller, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * Grants free slots to the waiting requests with the smallest finish tags.
+     */
+    private void dispatch() {
+        boolean granted = false;
+        while (!waiters.isEmpty() && inFlight < (int) limit) {
+            Waiter waiter = waiters.peek();
+            dequeue(waiter);
+            virtualTime = waiter.finishTag;
+            waiter.granted = true;
+            inFlight++;
+            granted = true;
+        }
+        if (waiters.isEmpty()) {
+            // No caller is behind anymore; start over so that the finish tags do not grow without bound.
+            lastFinishTags.clear();
+            virtualTime = 0;
+        }
+        if (granted) {
+            notifyAll();
+        }
+    }
+
+    private static final class Waiter {
+        private final String caller;
+        private final double finishTag;
+        private final long seq;
+        private final long queuedAt = System.nanoTime();
+        private boolean granted;
+
+        private Waiter(String caller, double finishTag, long seq) {
+            this.caller = caller;
+            this.finishTag = finishTag;
+            this.seq = seq;
+        }
+    }
+
+    /**
+     * Thrown when a request is rejected by the concurrency limiter.
+     */
+    public static class LimitExceededException extends RestClient.RestClientException {
+        public LimitExceededException(String message) {
+            super(message);
+        }
+    }
+}
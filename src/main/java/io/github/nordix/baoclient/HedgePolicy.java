@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.baoclient;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Policy for hedging read requests.
+ * <p>
+ * If no response to a read request has arrived when the given percentile of recent read response times has
+ * elapsed, a second request is sent, to another node if several are configured. The first response wins.
+ * To avoid doubling the load when all responses are slow, hedges are limited by a token bucket: every read
+ * request adds the given fraction of a token, up to a small burst, and every hedge takes one token.
+ * The policy is shared by all clients of a provider and counts how often hedges were sent, how often the
+ * hedge answered first, and how often no hedge was sent because the budget was exhausted.
+ */
+public class HedgePolicy {
+
+    private static final int SAMPLES = 256;
+    private static final int MIN_SAMPLES = 32;
+    private static final double MAX_TOKENS = 10;
+
+    private final double percentile;
+    private final long minDelayNanos;
+    private final double budgetRatio;
+
+    private final long[] samples = new long[SAMPLES];
+    private int sampleCount;
+    private int nextSample;
+    private long cachedDelayNanos;
+    private int samplesSinceUpdate;
+    private double tokens = MAX_TOKENS;
+
+    private final AtomicLong fired = new AtomicLong();
+    private final AtomicLong won = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param percentile     percentile of recent response times after which the hedge is sent, e.g. 95
+     * @param minDelayMillis lower bound for the delay, also used until enough response times are recorded
+     * @param budgetRatio    maximum fraction of read requests that may be hedged, e.g. 0.1
+     */
+    public HedgePolicy(double percentile, long minDelayMillis, double budgetRatio) {
+        if (percentile <= 0 || percentile >= 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        this.percentile = percentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+        this.budgetRatio = budgetRatio;
+        this.cachedDelayNanos = minDelayNanos;
+    }
+
+    /**
+     * Records the response time of a read request, also if the response arrived after the hedge was sent, so
+     * that the delay follows the response times when they grow. If the hedge answered first, the time until
+     * then is recorded, as a lower bound of the response time of the original request.
+     */
+    public synchronized void record(long elapsedNanos) {
+        samples[nextSample] = elapsedNanos;
+        nextSample = (nextSample + 1) % SAMPLES;
+        sampleCount = Math.min(sampleCount + 1, SAMPLES);
+        samplesSinceUpdate++;
+    }
+
+    /**
+     * Returns the time to wait for a response before sending the hedge.
+     */
+    public synchronized long delayNanos() {
+        // Sorting the samples on every request would cost more than it saves; refresh every few samples.
+        if (sampleCount >= MIN_SAMPLES && samplesSinceUpdate >= MIN_SAMPLES / 4) {
+            long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            cachedDelayNanos = Math.max(minDelayNanos, sorted[Math.max(0, index)]);
+            samplesSinceUpdate = 0;
+        }
+        return cachedDelayNanos;
+    }
+
+    /**
+     * Must be called once for every read request that may be hedged.
+     */
+    public synchronized void onRequest() {
+        tokens = Math.min(MAX_TOKENS, tokens + budgetRatio);
+    }
+
+    /**
+     * Returns true if a hedge may be sent, and withdraws it from the budget.
+     */
+    public synchronized boolean tryFire() {
+        if (tokens < 1) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        tokens--;
+        fired.incrementAndGet();
+        return true;
+    }
+
+    void onWon() {
+        won.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of hedge requests sent.
+     */
+    public long getFired() {
+        return fired.get();
+    }
+
+    /**
+     * Returns the number of hedge requests that were answered before the original request.
+     */
+    public long getWon() {
+        return won.get();
+    }
+
+    /**
+     * Returns the number of hedge requests that were not sent because the hedge budget was exhausted.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+}
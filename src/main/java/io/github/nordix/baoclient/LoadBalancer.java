@@ -0,0 +1,320 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.baoclient;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Client-side load balancer over multiple OpenBao/HashiCorp Vault nodes.
+ * <p>
+ * Reads are spread over all healthy nodes, including standbys, using the power of two choices: two random nodes
+ * are compared and the one with the lower cost is chosen. The cost is either the exponentially weighted moving
+ * average (EWMA) of the response time multiplied by the number of outstanding requests, or only the number of
+ * outstanding requests. Writes are sent to the active node.
+ * <p>
+ * Nodes are probed in the background with the health endpoint, which also tells which node is active.
+ * A node is ejected when a connection to it fails or after consecutive server errors, and is taken back into
+ * use when a probe succeeds or the ejection time has passed.
+ */
+public class LoadBalancer implements AutoCloseable {
+
+    private static Logger logger = Logger.getLogger(LoadBalancer.class);
+
+    /**
+     * Selection policy for reads.
+     */
+    public enum Policy {
+        EWMA,
+        LEAST_REQUESTS;
+
+        public static Policy fromString(String value) {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    /**
+     * Node state as reported by the health endpoint.
+     */
+    public enum NodeState {
+        UNKNOWN,
+        ACTIVE,
+        STANDBY,
+        UNHEALTHY;
+
+        /**
+         * Maps the status code of {@code GET /v1/sys/health} to node state.
+         */
+        public static NodeState fromHealthStatus(int statusCode) {
+            switch (statusCode) {
+                case 200:
+                    return ACTIVE;
+                case 429: // Standby.
+                case 473: // Performance standby.
+                    return STANDBY;
+                default:
+                    return UNHEALTHY;
+            }
+        }
+    }
+
+    private static final long EWMA_DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long MIN_EJECTION_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final long MAX_EJECTION_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final int SERVER_ERROR_THRESHOLD = 3;
+
+    private final List<Node> nodes;
+    private final Policy policy;
+    private ScheduledExecutorService prober;
+
+    public LoadBalancer(List<URI> addresses, Policy policy) {
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("At least one address must be provided");
+        }
+        List<Node> list = new ArrayList<>();
+        addresses.forEach(address -> list.add(new Node(address)));
+        this.nodes = Collections.unmodifiableList(list);
+        this.policy = policy;
+    }
+
+    /**
+     * Starts probing the nodes in the background.
+     *
+     * @param intervalMillis interval between probes
+     * @param healthCheck    returns the status code of the health endpoint of the given node, or throws if the
+     *                       node cannot be reached
+     * @return This LoadBalancer instance for method chaining.
+     */
+    public synchronized LoadBalancer withHealthCheck(long intervalMillis, Function<URI, Integer> healthCheck) {
+        if (prober != null) {
+            throw new IllegalStateException("Health check already started");
+        }
+        prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "openbao-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleWithFixedDelay(() -> probeAll(healthCheck), 0, intervalMillis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Selects the node for a read request.
+     */
+    public Node selectForRead() {
+        return selectForRead(null);
+    }
+
+    /**
+     * Selects the node for a read request, avoiding the given node if another one is available.
+     */
+    public Node selectForRead(Node exclude) {
+        List<Node> candidates = available(exclude);
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Node a = candidates.get(first);
+        Node b = candidates.get(second);
+        return cost(a) <= cost(b) ? a : b;
+    }
+
+    /**
+     * Selects the node for a write request: the active node if known, otherwise any available node.
+     */
+    public Node selectForWrite() {
+        long now = System.nanoTime();
+        for (Node node : nodes) {
+            if (node.state == NodeState.ACTIVE && !node.isEjected(now)) {
+                return node;
+            }
+        }
+        return selectForRead();
+    }
+
+    /**
+     * Closes the background health check.
+     */
+    @Override
+    public synchronized void close() {
+        if (prober != null) {
+            prober.shutdownNow();
+            prober = null;
+        }
+    }
+
+    /**
+     * Returns the nodes that are not ejected, or all nodes if every node has been ejected.
+     */
+    private List<Node> available(Node exclude) {
+        long now = System.nanoTime();
+        List<Node> candidates = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            if (node != exclude && !node.isEjected(now) && node.state != NodeState.UNHEALTHY) {
+                candidates.add(node);
+            }
+        }
+        if (candidates.isEmpty()) {
+            // Rather try an unhealthy node than fail without trying.
+            candidates.addAll(nodes);
+            if (exclude != null && candidates.size() > 1) {
+                candidates.remove(exclude);
+            }
+        }
+        return candidates;
+    }
+
+    private double cost(Node node) {
+        int outstanding = node.outstanding.get();
+        if (policy == Policy.LEAST_REQUESTS) {
+            return outstanding;
+        }
+        double ewma = node.ewmaNanos;
+        return ewma > 0 ? ewma * (outstanding + 1) : outstanding;
+    }
+
+    private void probeAll(Function<URI, Integer> healthCheck) {
+        for (Node node : nodes) {
+            NodeState state;
+            try {
+                state = NodeState.fromHealthStatus(healthCheck.apply(node.address));
+            } catch (RuntimeException e) {
+                logger.debugv("Health check of {0} failed: {1}", node.address, e.getMessage());
+                state = NodeState.UNHEALTHY;
+            }
+            if (state != node.state) {
+                logger.infov("OpenBao node {0} is {1}", node.address, state);
+            }
+            node.state = state;
+            if (state != NodeState.UNHEALTHY) {
+                node.reinstate();
+            }
+        }
+    }
+
+    /**
+     * OpenBao/HashiCorp Vault node and its statistics.
+     */
+    public static final class Node {
+        private final URI address;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile double ewmaNanos;
+        private volatile NodeState state = NodeState.UNKNOWN;
+        private volatile long ejectedUntil;
+        private long ejectionNanos = MIN_EJECTION_NANOS;
+        private int serverErrors;
+        private long lastUpdate;
+
+        Node(URI address) {
+            this.address = address;
+            this.lastUpdate = System.nanoTime();
+            this.ejectedUntil = lastUpdate;
+        }
+
+        public URI getAddress() {
+            return address;
+        }
+
+        public NodeState getState() {
+            return state;
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        /**
+         * Must be called before a request is sent to the node.
+         *
+         * @return start time to pass to {@link #onResponse(long, int)}
+         */
+        public long onRequest() {
+            outstanding.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        /**
+         * Records a response from the node.
+         */
+        public synchronized void onResponse(long startedAt, int statusCode) {
+            outstanding.decrementAndGet();
+            long now = System.nanoTime();
+            long elapsed = now - startedAt;
+            double weight = Math.exp(-(double) (now - lastUpdate) / EWMA_DECAY_NANOS);
+            ewmaNanos = ewmaNanos * weight + elapsed * (1 - weight);
+            lastUpdate = now;
+
+            if (statusCode / 100 == 5) {
+                if (++serverErrors >= SERVER_ERROR_THRESHOLD) {
+                    eject(now);
+                }
+            } else {
+                serverErrors = 0;
+                ejectionNanos = MIN_EJECTION_NANOS;
+            }
+        }
+
+        /**
+         * Records a request that was cancelled or interrupted before a response was received.
+         */
+        public void onCancelled() {
+            outstanding.decrementAndGet();
+        }
+
+        /**
+         * Records a request that failed without response, and ejects the node.
+         */
+        public synchronized void onConnectionFailure() {
+            outstanding.decrementAndGet();
+            eject(System.nanoTime());
+        }
+
+        boolean isEjected(long now) {
+            return ejectedUntil - now > 0;
+        }
+
+        private void eject(long now) {
+            logger.warnv("Ejecting OpenBao node {0} for {1} ms", address, TimeUnit.NANOSECONDS.toMillis(ejectionNanos));
+            ejectedUntil = now + ejectionNanos;
+            ejectionNanos = Math.min(ejectionNanos * 2, MAX_EJECTION_NANOS);
+            serverErrors = 0;
+        }
+
+        private synchronized void reinstate() {
+            if (isEjected(System.nanoTime())) {
+                logger.infov("OpenBao node {0} is back in use", address);
+                ejectedUntil = System.nanoTime();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return address.toString();
+        }
+    }
+}
@@ -12,21 +12,31 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpClient.Builder;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandler;
 import java.net.http.HttpResponse.BodySubscribers;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.security.KeyStore;
 import java.security.GeneralSecurityException;
 import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
 import javax.net.ssl.TrustManagerFactory;
 
 import org.jboss.logging.Logger;
@@ -39,25 +49,277 @@ public class RestClient {
     private static Logger logger = Logger.getLogger(RestClient.class);
 
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
-    private static final Duration CONNECTION_TIMEOUT = Duration.ofSeconds(3);
-    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_CONNECTION_TIMEOUT = Duration.ofSeconds(3);
+    private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(10);
     private static final String CONTENT_TYPE_JSON = "application/json";
+    private static final long DEFAULT_MAX_RESPONSE_SIZE = 10 * 1024 * 1024;
+    /** JSON error responses larger than this are reported like non-JSON responses instead of being parsed. */
+    private static final int MAX_ERROR_BODY_SIZE = 64 * 1024;
+    /** Length of the response body included in error messages. */
+    private static final int MAX_LOGGED_BODY_LENGTH = 200;
 
     private final URI baseUrl;
+    private final LoadBalancer loadBalancer;
+    private final UnixSocketTransport unixSocketTransport;
+    private HedgePolicy hedgePolicy;
+    private RetryPolicy retryPolicy;
+    private CircuitBreaker circuitBreaker;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private String caller;
+    private ConcurrencyLimiter.Priority priority = ConcurrencyLimiter.Priority.INTERACTIVE;
+    private Duration connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
+    private Duration requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+    private Duration callDeadline;
+    private long maxResponseSize = DEFAULT_MAX_RESPONSE_SIZE;
     private String caCertificateFile;
+    private HttpClient httpClient;
+    private Runnable permissionDeniedListener;
     private Map<String, String> headers = new java.util.HashMap<>();
 
     public RestClient(URI baseUrl) {
         this.baseUrl = baseUrl;
+        this.loadBalancer = null;
+        this.unixSocketTransport = null;
+    }
+
+    /**
+     * Creates a client that distributes requests over the nodes of the load balancer.
+     * Read requests ({@code GET}, {@code LIST}, {@code SCAN}) go to any healthy node, other requests to the
+     * active node.
+     */
+    public RestClient(LoadBalancer loadBalancer) {
+        this.baseUrl = loadBalancer.getNodes().get(0).getAddress();
+        this.loadBalancer = loadBalancer;
+        this.unixSocketTransport = null;
+    }
+
+    /**
+     * Creates a client that sends requests over a Unix domain socket, e.g. to a local OpenBao agent.
+     * Hedging and the CA certificate do not apply.
+     */
+    public RestClient(UnixSocketTransport unixSocketTransport) {
+        this.baseUrl = unixSocketTransport.getAddress();
+        this.loadBalancer = null;
+        this.unixSocketTransport = unixSocketTransport;
     }
 
     public HttpResponse<JsonNode> sendRequest(String endpoint, String method, String body) {
+        return sendRequest(endpoint, method, body, isIdempotentMethod(method));
+    }
+
+    /**
+     * Sends a request, retrying it according to the retry policy if it is idempotent.
+     * All attempts, including the backoff between them, must complete within the call deadline.
+     *
+     * @param idempotent true if the request can be safely sent more than once, regardless of the method
+     */
+    public HttpResponse<JsonNode> sendRequest(String endpoint, String method, String body, boolean idempotent) {
         Objects.requireNonNull(endpoint, "Endpoint must not be null");
         Objects.requireNonNull(method, "HTTP method must not be null");
 
+        long startedAt = System.nanoTime();
+        if (retryPolicy != null) {
+            retryPolicy.onRequest();
+        }
+
+        for (int attempt = 1;; attempt++) {
+            try {
+                HttpResponse<JsonNode> response = attempt(endpoint, method, body, startedAt);
+                if (response.statusCode() == 403 && permissionDeniedListener != null) {
+                    permissionDeniedListener.run();
+                }
+                if (!idempotent || !isRetryableStatus(response.statusCode()) || !canRetry(attempt)) {
+                    return response;
+                }
+                logger.debugv("{0} {1} failed with HTTP {2}, retrying", method, endpoint, response.statusCode());
+            } catch (RestClientException e) {
+                if (!idempotent || !isRetryableFailure(e) || !canRetry(attempt)) {
+                    throw e;
+                }
+                logger.debugv("{0} {1} failed: {2}, retrying", method, endpoint, e.getMessage());
+            }
+            backoff(attempt, startedAt, method, endpoint);
+        }
+    }
+
+    /**
+     * Makes a single attempt, waiting for a free slot in the concurrency limiter first, and records the outcome
+     * in the circuit breaker and the concurrency limiter. If the attempt fails before an outcome is recorded,
+     * the slot and the circuit breaker permit are released as cancelled.
+     */
+    private HttpResponse<JsonNode> attempt(String endpoint, String method, String body, long startedAt) {
+        acquireLimit(startedAt, method, endpoint);
+        boolean circuitAcquired = false;
+        boolean recorded = false;
+        try {
+            Duration timeout = attemptTimeout(startedAt, method, endpoint);
+            acquireCircuit(method, endpoint);
+            circuitAcquired = true;
+
+            long attemptStartedAt = System.nanoTime();
+
+            HttpResponse<JsonNode> response;
+            try {
+                response = sendAttempt(endpoint, method, body, timeout);
+            } catch (RestClientException e) {
+                recorded = true;
+                recordOutcome(e);
+                throw e;
+            }
+            recorded = true;
+            recordOutcome(response, System.nanoTime() - attemptStartedAt);
+            return response;
+        } finally {
+            if (!recorded) {
+                if (circuitAcquired && circuitBreaker != null) {
+                    circuitBreaker.onCancelled();
+                }
+                if (concurrencyLimiter != null) {
+                    concurrencyLimiter.onCancelled();
+                }
+            }
+        }
+    }
+
+    private HttpResponse<JsonNode> sendAttempt(String endpoint, String method, String body, Duration timeout) {
+        if (unixSocketTransport != null) {
+            return sendUnixSocket(endpoint, method, body, timeout);
+        }
+
+        if (hedgePolicy != null && isReadMethod(method)) {
+            return sendHedged(endpoint, method, body, timeout);
+        }
+
+        if (loadBalancer == null) {
+            return send(buildRequest(baseUrl, endpoint, method, body, timeout), null);
+        }
+
+        LoadBalancer.Node node = isReadMethod(method) ? loadBalancer.selectForRead() : loadBalancer.selectForWrite();
+        return send(buildRequest(node.getAddress(), endpoint, method, body, timeout), node);
+    }
+
+    /**
+     * Waits for a free slot in the concurrency limiter, at most until the call deadline or, if there is no
+     * deadline, for the request timeout.
+     */
+    private void acquireLimit(long startedAt, String method, String endpoint) {
+        if (concurrencyLimiter == null) {
+            return;
+        }
+        long maxWait = callDeadline != null
+                ? callDeadline.toNanos() - (System.nanoTime() - startedAt)
+                : requestTimeout.toNanos();
+        try {
+            concurrencyLimiter.acquire(caller, priority, maxWait);
+        } catch (ConcurrencyLimiter.LimitExceededException e) {
+            logger.debugv("{0} {1} rejected: {2}", method, endpoint, e.getMessage());
+            throw e;
+        }
+    }
+
+    private void acquireCircuit(String method, String endpoint) {
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            throw new CircuitBreaker.CircuitBreakerOpenException(String.format(
+                    "Circuit breaker is open, not sending %s %s", method, endpoint));
+        }
+    }
+
+    private void recordOutcome(HttpResponse<JsonNode> response, long elapsedNanos) {
+        int statusCode = response.statusCode();
+        if (circuitBreaker != null) {
+            if (statusCode / 100 == 5) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+        }
+        if (concurrencyLimiter != null) {
+            if (statusCode == 429 || statusCode == 503) {
+                concurrencyLimiter.onDropped();
+            } else {
+                concurrencyLimiter.onSuccess(elapsedNanos);
+            }
+        }
+    }
+
+    private void recordOutcome(RestClientException e) {
+        if (e.getCause() instanceof InterruptedException) {
+            if (circuitBreaker != null) {
+                circuitBreaker.onCancelled();
+            }
+            if (concurrencyLimiter != null) {
+                concurrencyLimiter.onCancelled();
+            }
+        } else if (isRetryableFailure(e)) {
+            if (circuitBreaker != null) {
+                circuitBreaker.onFailure();
+            }
+            if (concurrencyLimiter != null) {
+                concurrencyLimiter.onDropped();
+            }
+        } else {
+            // The server responded, but the response could not be parsed.
+            if (circuitBreaker != null) {
+                circuitBreaker.onSuccess();
+            }
+            if (concurrencyLimiter != null) {
+                concurrencyLimiter.onCancelled();
+            }
+        }
+    }
+
+    private boolean canRetry(int attempt) {
+        return retryPolicy != null && retryPolicy.tryRetry(attempt);
+    }
+
+    /**
+     * Returns the timeout for the next attempt: the request timeout, shortened to the time left until the
+     * call deadline.
+     */
+    private Duration attemptTimeout(long startedAt, String method, String endpoint) {
+        if (callDeadline == null) {
+            return requestTimeout;
+        }
+        long remaining = callDeadline.toNanos() - (System.nanoTime() - startedAt);
+        if (remaining <= 0) {
+            throw new RestClientException(String.format("Deadline of %d ms exceeded for %s %s",
+                    callDeadline.toMillis(), method, endpoint));
+        }
+        return remaining < requestTimeout.toNanos() ? Duration.ofNanos(remaining) : requestTimeout;
+    }
+
+    private void backoff(int attempt, long startedAt, String method, String endpoint) {
+        long delay = retryPolicy.backoffNanos(attempt);
+        if (callDeadline != null && System.nanoTime() - startedAt + delay >= callDeadline.toNanos()) {
+            throw new RestClientException(String.format("Deadline of %d ms exceeded for %s %s",
+                    callDeadline.toMillis(), method, endpoint));
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestClientException(String.format("Retry of %s %s was interrupted", method, endpoint), e);
+        }
+    }
+
+    private static boolean isRetryableStatus(int statusCode) {
+        return statusCode == 429 || statusCode == 500 || statusCode == 502 || statusCode == 503
+                || statusCode == 504;
+    }
+
+    /**
+     * Returns true if the request failed without response, e.g. could not connect or timed out.
+     */
+    private static boolean isRetryableFailure(RestClientException e) {
+        Throwable cause = e.getCause();
+        // Unparseable responses are wrapped in IOException by HttpClient, but are not retried.
+        return cause instanceof IOException && !(cause.getCause() instanceof RestClientException);
+    }
+
+    private HttpRequest buildRequest(URI base, String endpoint, String method, String body, Duration timeout) {
         HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                .uri(baseUrl.resolve(endpoint))
-                .timeout(REQUEST_TIMEOUT)
+                .uri(base.resolve(endpoint))
+                .timeout(timeout)
                 .header("Content-Type", CONTENT_TYPE_JSON);
 
         headers.forEach(requestBuilder::header);
@@ -72,21 +334,225 @@ public class RestClient {
 
         requestBuilder.method(method, publisher);
 
-        HttpRequest request = requestBuilder.build();
-        logger.debugv("Sending {0} request to {1}", method, request.uri());
+        return requestBuilder.build();
+    }
 
+    private HttpResponse<JsonNode> send(HttpRequest request, LoadBalancer.Node node) {
+        logger.debugv("Sending {0} request to {1}", request.method(), request.uri());
+
+        long startedAt = node != null ? node.onRequest() : 0;
         try {
-            return getHttpClient().send(request, jsonBodyHandler());
+            HttpResponse<JsonNode> response = getHttpClient().send(request, jsonBodyHandler(maxResponseSize));
+            if (node != null) {
+                node.onResponse(startedAt, response.statusCode());
+            }
+            return response;
         } catch (IOException e) {
+            if (node != null && e.getCause() instanceof RestClientException) {
+                // Response could not be parsed; the node did respond.
+                node.onCancelled();
+            } else if (node != null) {
+                node.onConnectionFailure();
+            }
             throw new RestClientException(String.format("Failed to send %s to %s: %s",
                     request.method(), request.uri(), e.getCause()), e);
         } catch (InterruptedException e) {
+            if (node != null) {
+                node.onCancelled();
+            }
             Thread.currentThread().interrupt();
             throw new RestClientException(String.format("Request to %s was interrupted: %s",
                     request.uri(), e.getMessage()), e);
         }
     }
 
+    private HttpResponse<JsonNode> sendUnixSocket(String endpoint, String method, String body, Duration timeout) {
+        logger.debugv("Sending {0} request to {1} at {2}", method, endpoint, unixSocketTransport);
+
+        Map<String, String> requestHeaders = new LinkedHashMap<>(headers);
+        requestHeaders.put("Content-Type", CONTENT_TYPE_JSON);
+        UnixSocketTransport.Response response;
+        try {
+            response = unixSocketTransport.send(method, endpoint, requestHeaders, body, timeout, maxResponseSize);
+        } catch (IOException e) {
+            throw new RestClientException(String.format("Failed to send %s %s to %s: %s",
+                    method, endpoint, unixSocketTransport, e), e);
+        }
+
+        String contentType = response.header("Content-Type");
+        JsonNode json = parseBody(response.statusCode(), contentType != null ? contentType.toLowerCase() : "<none>",
+                new BoundedBodySubscriber.Body(response.body(), response.body().length));
+        return new UnixSocketResponse(response, json, endpoint, method, unixSocketTransport.getAddress());
+    }
+
+    /**
+     * Sends a read request, and a second one if the first is not answered within the delay given by the hedge
+     * policy. Returns the first successful response and cancels the other request.
+     */
+    private HttpResponse<JsonNode> sendHedged(String endpoint, String method, String body, Duration timeout) {
+        HttpClient client = getHttpClient();
+
+        LoadBalancer.Node primaryNode = loadBalancer != null ? loadBalancer.selectForRead() : null;
+        HttpRequest primaryRequest = buildRequest(primaryNode != null ? primaryNode.getAddress() : baseUrl,
+                endpoint, method, body, timeout);
+        hedgePolicy.onRequest();
+        long startedAt = System.nanoTime();
+        CompletableFuture<HttpResponse<JsonNode>> primary = sendAsync(client, primaryRequest, primaryNode);
+        // Recorded also if the response arrives after the hedge was sent, so that the delay can grow.
+        primary.thenAccept(response -> hedgePolicy.record(System.nanoTime() - startedAt));
+
+        try {
+            return primary.get(hedgePolicy.delayNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // No response yet, send the hedge.
+        } catch (ExecutionException e) {
+            throw sendFailure(primaryRequest, e.getCause());
+        } catch (InterruptedException e) {
+            primary.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RestClientException(String.format("Request to %s was interrupted: %s",
+                    primaryRequest.uri(), e.getMessage()), e);
+        }
+
+        CompletableFuture<HttpResponse<JsonNode>> hedge = null;
+        CompletableFuture<HttpResponse<JsonNode>> first = primary;
+        if (circuitBreaker != null && circuitBreaker.getState() != CircuitBreaker.State.CLOSED) {
+            logger.debugv("No response from {0} within hedge delay, not hedging while circuit breaker is {1}",
+                    primaryRequest.uri(), circuitBreaker.getState());
+        } else if (concurrencyLimiter != null && !concurrencyLimiter.tryAcquire(caller, priority)) {
+            logger.debugv("No response from {0} within hedge delay, no free slot for hedge request",
+                    primaryRequest.uri());
+        } else if (!hedgePolicy.tryFire()) {
+            if (concurrencyLimiter != null) {
+                concurrencyLimiter.onCancelled();
+            }
+            logger.debugv("No response from {0} within hedge delay, hedge budget exhausted", primaryRequest.uri());
+        } else {
+            LoadBalancer.Node hedgeNode = loadBalancer != null ? loadBalancer.selectForRead(primaryNode) : null;
+            HttpRequest hedgeRequest = buildRequest(hedgeNode != null ? hedgeNode.getAddress() : baseUrl,
+                    endpoint, method, body, timeout);
+            logger.debugv("No response from {0} within hedge delay, sending hedge request to {1}",
+                    primaryRequest.uri(), hedgeRequest.uri());
+            hedge = sendHedge(client, hedgeRequest, hedgeNode);
+            first = firstSuccessful(primary, hedge);
+        }
+
+        try {
+            HttpResponse<JsonNode> response = first.get();
+            if (hedge != null && hedge.isDone() && !hedge.isCompletedExceptionally()
+                    && hedge.getNow(null) == response) {
+                hedgePolicy.record(System.nanoTime() - startedAt);
+                hedgePolicy.onWon();
+                primary.cancel(true);
+            } else if (hedge != null) {
+                hedge.cancel(true);
+            }
+            return response;
+        } catch (ExecutionException e) {
+            throw sendFailure(primaryRequest, e.getCause());
+        } catch (InterruptedException e) {
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new RestClientException(String.format("Request to %s was interrupted: %s",
+                    primaryRequest.uri(), e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Sends the hedge request in its own slot of the concurrency limiter, which is released when the hedge
+     * completes, fails or is cancelled as the loser. The circuit breaker records only the original request.
+     */
+    private CompletableFuture<HttpResponse<JsonNode>> sendHedge(HttpClient client, HttpRequest request,
+            LoadBalancer.Node node) {
+        if (concurrencyLimiter == null) {
+            return sendAsync(client, request, node);
+        }
+        long startedAt = System.nanoTime();
+        CompletableFuture<HttpResponse<JsonNode>> future;
+        try {
+            future = sendAsync(client, request, node);
+        } catch (RuntimeException e) {
+            concurrencyLimiter.onCancelled();
+            throw e;
+        }
+        future.whenComplete((response, e) -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (response != null) {
+                if (response.statusCode() == 429 || response.statusCode() == 503) {
+                    concurrencyLimiter.onDropped();
+                } else {
+                    concurrencyLimiter.onSuccess(System.nanoTime() - startedAt);
+                }
+            } else if (cause instanceof CancellationException || cause instanceof RestClientException) {
+                concurrencyLimiter.onCancelled();
+            } else {
+                concurrencyLimiter.onDropped();
+            }
+        });
+        return future;
+    }
+
+    private CompletableFuture<HttpResponse<JsonNode>> sendAsync(HttpClient client, HttpRequest request,
+            LoadBalancer.Node node) {
+        logger.debugv("Sending {0} request to {1}", request.method(), request.uri());
+
+        long startedAt = node != null ? node.onRequest() : 0;
+        CompletableFuture<HttpResponse<JsonNode>> future = client.sendAsync(request, jsonBodyHandler(maxResponseSize));
+        if (node != null) {
+            future.whenComplete((response, e) -> {
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                if (response != null) {
+                    node.onResponse(startedAt, response.statusCode());
+                } else if (cause instanceof CancellationException || cause instanceof RestClientException) {
+                    node.onCancelled();
+                } else {
+                    node.onConnectionFailure();
+                }
+            });
+        }
+        return future;
+    }
+
+    /**
+     * Returns a future that completes with the first successful response, or exceptionally if both fail.
+     */
+    private static <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> a, CompletableFuture<T> b) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<T> future : List.of(a, b)) {
+            future.whenComplete((response, e) -> {
+                if (e == null) {
+                    result.complete(response);
+                } else if (failures.incrementAndGet() == 2) {
+                    result.completeExceptionally(e);
+                }
+            });
+        }
+        return result;
+    }
+
+    private static RestClientException sendFailure(HttpRequest request, Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RestClientException) {
+            return (RestClientException) cause;
+        }
+        return new RestClientException(String.format("Failed to send %s to %s: %s",
+                request.method(), request.uri(), cause), cause);
+    }
+
+    private static boolean isReadMethod(String method) {
+        return "GET".equalsIgnoreCase(method) || "LIST".equalsIgnoreCase(method) || "SCAN".equalsIgnoreCase(method);
+    }
+
+    private static boolean isIdempotentMethod(String method) {
+        return isReadMethod(method) || "PUT".equalsIgnoreCase(method) || "DELETE".equalsIgnoreCase(method);
+    }
+
     public HttpResponse<JsonNode> sendRequest(String endpoint, String method, Map<String, Object> body) {
         String bodyString = null;
         if (body != null) {
@@ -122,6 +588,87 @@ public class RestClient {
         return this;
     }
 
+    /**
+     * Enables hedging of read requests ({@code GET}, {@code LIST}, {@code SCAN}).
+     *
+     * @param hedgePolicy the policy, shared by the clients of a provider
+     */
+    public RestClient withHedging(HedgePolicy hedgePolicy) {
+        this.hedgePolicy = hedgePolicy;
+        return this;
+    }
+
+    /**
+     * Sets the timeout for establishing connections and the timeout for a single request attempt.
+     */
+    public RestClient withTimeouts(Duration connectionTimeout, Duration requestTimeout) {
+        this.connectionTimeout = Objects.requireNonNull(connectionTimeout);
+        this.requestTimeout = Objects.requireNonNull(requestTimeout);
+        return this;
+    }
+
+    /**
+     * Sets the maximum size of a response body in bytes. Larger responses are aborted while they are read.
+     */
+    public RestClient withMaxResponseSize(long maxResponseSize) {
+        if (maxResponseSize < 1) {
+            throw new IllegalArgumentException("Maximum response size must be positive: " + maxResponseSize);
+        }
+        this.maxResponseSize = maxResponseSize;
+        return this;
+    }
+
+    /**
+     * Enables retries of idempotent requests.
+     *
+     * @param retryPolicy the policy, shared by the clients of a provider
+     */
+    public RestClient withRetries(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Sets the overall time limit of a call, including all retries and backoff.
+     */
+    public RestClient withDeadline(Duration callDeadline) {
+        this.callDeadline = callDeadline;
+        return this;
+    }
+
+    /**
+     * Enables the circuit breaker, which rejects requests without sending them while OpenBao/HashiCorp Vault
+     * is failing.
+     *
+     * @param circuitBreaker the circuit breaker, shared by the clients of a provider
+     */
+    public RestClient withCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    /**
+     * Enables adaptive limiting of concurrent requests.
+     *
+     * @param concurrencyLimiter the limiter, shared by the clients of a provider
+     */
+    public RestClient withConcurrencyLimit(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        return this;
+    }
+
+    /**
+     * Sets the caller and priority used to schedule the requests fairly when the concurrency limit is reached.
+     *
+     * @param caller   the caller, e.g. realm, whose requests are queued together
+     * @param priority the priority of the requests
+     */
+    public RestClient withCaller(String caller, ConcurrencyLimiter.Priority priority) {
+        this.caller = caller;
+        this.priority = Objects.requireNonNull(priority);
+        return this;
+    }
+
     public RestClient removeAllHeaders() {
         headers.clear();
         return this;
@@ -136,6 +683,24 @@ public class RestClient {
         return this;
     }
 
+    /**
+     * Uses the given HTTP client, shared by clients so that connections are kept alive and reused.
+     * The connection timeout and the CA certificate file of this client are then ignored.
+     */
+    public RestClient withHttpClient(HttpClient httpClient) {
+        this.httpClient = Objects.requireNonNull(httpClient);
+        return this;
+    }
+
+    /**
+     * Sets a listener that is called when a request is answered with 403 Forbidden, e.g. to discard a token
+     * that the server no longer accepts.
+     */
+    public RestClient withPermissionDeniedListener(Runnable listener) {
+        this.permissionDeniedListener = listener;
+        return this;
+    }
+
     public URI getBaseUrl() {
         return baseUrl;
     }
@@ -148,10 +713,27 @@ public class RestClient {
         return response.statusCode() / 100 == 4 || response.statusCode() / 100 == 5;
     }
 
-    private HttpClient getHttpClient() {
+    /**
+     * Returns the HTTP client, built on first use unless a shared client was set with
+     * {@link #withHttpClient(HttpClient)}.
+     */
+    private synchronized HttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = newHttpClient(connectionTimeout, caCertificateFile);
+        }
+        return httpClient;
+    }
+
+    /**
+     * Builds an HTTP client that trusts the certificates in the given CA certificate file.
+     *
+     * @param connectionTimeout the timeout for establishing connections
+     * @param caCertificateFile the CA certificate file in PEM format, or null to use the default trust store
+     */
+    public static HttpClient newHttpClient(Duration connectionTimeout, String caCertificateFile) {
         Builder clientBuilder = HttpClient.newBuilder();
 
-        clientBuilder.connectTimeout(CONNECTION_TIMEOUT);
+        clientBuilder.connectTimeout(connectionTimeout);
         clientBuilder.followRedirects(HttpClient.Redirect.NORMAL);
 
         if (caCertificateFile != null) {
@@ -175,56 +757,134 @@ public class RestClient {
         return clientBuilder.build();
     }
 
-    private static BodyHandler<JsonNode> jsonBodyHandler() {
+    /**
+     * Returns a handler that parses JSON bodies of at most {@code maxSize} bytes. Only the beginning of other
+     * bodies is kept for error messages: the body of a successful non-JSON response is discarded, and error
+     * responses are read up to {@link #MAX_ERROR_BODY_SIZE} (JSON) or {@link #MAX_LOGGED_BODY_LENGTH} bytes.
+     */
+    private static BodyHandler<JsonNode> jsonBodyHandler(long maxSize) {
         return responseInfo -> {
             int statusCode = responseInfo.statusCode();
             String contentType = responseInfo.headers().firstValue("Content-Type").orElse("<none>").toLowerCase();
+            long declaredLength = responseInfo.headers().firstValueAsLong("Content-Length").orElse(-1);
 
             return BodySubscribers.mapping(
-                    BodySubscribers.ofString(StandardCharsets.UTF_8),
-                    body -> {
-                        if (contentType.contains(CONTENT_TYPE_JSON)) {
-                            try {
-                                return OBJECT_MAPPER.readTree(body);
-                            } catch (IOException e) {
-                                throw new RestClientException(
-                                        String.format(
-                                                "Failed to parse JSON response: HTTP %d, Content-Type: %s, Body: '%s', Error: %s",
-                                                statusCode, contentType, truncateBody(body), e.getMessage()));
-                            }
-                        }
-
-                        // For successful 2xx responses without JSON content-type, return empty object.
-                        if (statusCode / 100 == 2) {
-                            return OBJECT_MAPPER.createObjectNode();
-                        }
-
-                        // For other responses, check if body is empty and return empty object.
-                        if (body == null || body.trim().isEmpty()) {
-                            return OBJECT_MAPPER.createObjectNode();
-                        }
-
-                        // For non-2xx responses with non-JSON content-type and non-empty body, throw exception.
-                        throw new RestClientException(
-                                String.format(
-                                        "Unexpected response: HTTP %d, Content-Type: %s (expected %s), Body: '%s'",
-                                        statusCode, contentType, CONTENT_TYPE_JSON, truncateBody(body)));
-                    });
+                    new BoundedBodySubscriber(maxSize, retainLimit(statusCode, contentType, maxSize), declaredLength),
+                    body -> parseBody(statusCode, contentType, body));
         };
     }
 
-    private static String truncateBody(String body) {
-        int maxLength = 200;
-        if (body == null) {
-            return "<null>";
+    /**
+     * Returns the number of bytes to keep from the beginning of a response body.
+     *
+     * @param contentType the lower case content type of the response
+     */
+    static int retainLimit(int statusCode, String contentType, long maxSize) {
+        if (contentType.contains(CONTENT_TYPE_JSON)) {
+            return statusCode / 100 == 2 ? (int) Math.min(maxSize, Integer.MAX_VALUE - 8) : MAX_ERROR_BODY_SIZE;
+        }
+        return statusCode / 100 == 2 ? 0 : MAX_LOGGED_BODY_LENGTH;
+    }
+
+    private static JsonNode parseBody(int statusCode, String contentType, BoundedBodySubscriber.Body body) {
+        if (contentType.contains(CONTENT_TYPE_JSON) && !body.isTruncated()) {
+            try {
+                return OBJECT_MAPPER.readTree(body.bytes());
+            } catch (IOException e) {
+                throw new RestClientException(
+                        String.format(
+                                "Failed to parse JSON response: HTTP %d, Content-Type: %s, Body: '%s', Error: %s",
+                                statusCode, contentType, body.toText(MAX_LOGGED_BODY_LENGTH), e.getMessage()));
+            }
         }
-        if (body.isEmpty()) {
-            return "<empty>";
+
+        // For successful 2xx responses without JSON content-type, return empty object.
+        if (statusCode / 100 == 2) {
+            return OBJECT_MAPPER.createObjectNode();
+        }
+
+        // For other responses, check if body is empty and return empty object.
+        if (body.isBlank()) {
+            return OBJECT_MAPPER.createObjectNode();
         }
-        if (body.length() <= maxLength) {
+
+        // For non-2xx responses with non-JSON content-type or too large body, throw exception.
+        throw new RestClientException(
+                String.format(
+                        "Unexpected response: HTTP %d, Content-Type: %s (expected %s), Body: '%s'",
+                        statusCode, contentType, CONTENT_TYPE_JSON, body.toText(MAX_LOGGED_BODY_LENGTH)));
+    }
+
+    /**
+     * Response received over a Unix domain socket.
+     */
+    private static final class UnixSocketResponse implements HttpResponse<JsonNode> {
+        private final int statusCode;
+        private final HttpHeaders headers;
+        private final JsonNode body;
+        private final HttpRequest request;
+        private final URI uri;
+
+        UnixSocketResponse(UnixSocketTransport.Response response, JsonNode body, String endpoint, String method,
+                URI uri) {
+            this.statusCode = response.statusCode();
+            this.headers = HttpHeaders.of(response.headers(), (name, value) -> true);
+            this.body = body;
+            // The request is only informational; the URI of a Unix domain socket is not an HTTP URI.
+            this.request = HttpRequest.newBuilder(URI.create("http://localhost").resolve(endpoint))
+                    .method(method, HttpRequest.BodyPublishers.noBody())
+                    .build();
+            this.uri = uri;
+        }
+
+        @Override
+        public int statusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public HttpRequest request() {
+            return request;
+        }
+
+        @Override
+        public Optional<HttpResponse<JsonNode>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return headers;
+        }
+
+        @Override
+        public JsonNode body() {
             return body;
         }
-        return body.substring(0, maxLength) + "... (truncated, total length: " + body.length() + ")";
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return uri;
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+    }
+
+    /**
+     * Thrown when a response body exceeds the maximum size.
+     */
+    public static class ResponseTooLargeException extends RestClientException {
+        public ResponseTooLargeException(String message) {
+            super(message);
+        }
     }
 
     public static class RestClientException extends RuntimeException {
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.baoclient;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Policy for retrying idempotent requests that failed to connect or were answered with 429 or 5xx.
+ * <p>
+ * Retries are delayed with exponential backoff and full jitter. To avoid retry storms during outages, retries
+ * are limited by a budget: within a time window, at most the given fraction of requests may be retried,
+ * in addition to a small reserve that allows retries when traffic is low.
+ * The policy is shared by all clients of a provider.
+ */
+public class RetryPolicy {
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final int MIN_RETRIES_PER_WINDOW = 10;
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final int maxRetries;
+    private final long baseBackoffNanos;
+    private final double budgetRatio;
+
+    private long windowStart = System.nanoTime();
+    private long windowRequests;
+    private long windowRetries;
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param maxRetries         maximum number of retries per request
+     * @param baseBackoffMillis  backoff before the first retry, doubled for each further retry
+     * @param budgetRatio        maximum fraction of requests that may be retried, e.g. 0.2
+     */
+    public RetryPolicy(int maxRetries, long baseBackoffMillis, double budgetRatio) {
+        this.maxRetries = maxRetries;
+        this.baseBackoffNanos = TimeUnit.MILLISECONDS.toNanos(baseBackoffMillis);
+        this.budgetRatio = budgetRatio;
+    }
+
+    /**
+     * Must be called once for every request, before the first attempt.
+     */
+    public synchronized void onRequest() {
+        rotateWindow(System.nanoTime());
+        windowRequests++;
+    }
+
+    /**
+     * Returns true if the request may be retried, and withdraws the retry from the budget.
+     *
+     * @param attempt number of attempts made so far, starting from 1
+     */
+    public synchronized boolean tryRetry(int attempt) {
+        if (attempt > maxRetries) {
+            return false;
+        }
+        rotateWindow(System.nanoTime());
+        if (windowRetries >= MIN_RETRIES_PER_WINDOW + budgetRatio * windowRequests) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        windowRetries++;
+        retries.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Returns the randomized delay before the given retry.
+     *
+     * @param attempt number of attempts made so far, starting from 1
+     */
+    public long backoffNanos(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_NANOS, baseBackoffNanos << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Returns the number of retries made.
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * Returns the number of retries that were not made because the retry budget was exhausted.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private void rotateWindow(long now) {
+        if (now - windowStart > WINDOW_NANOS) {
+            windowStart = now;
+            windowRequests = 0;
+            windowRetries = 0;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.baoclient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Token read from a file that is written and rotated by another process, such as the projected Kubernetes
+ * service account token written by kubelet, an OpenBao agent sink or an init container.
+ * <p>
+ * The token is read once and cached. The modification time of the file is checked at most once per
+ * {@link #CHECK_INTERVAL_NANOS}, and the token is read again when the file has changed, so that rotated tokens
+ * are used without restarting Keycloak. The modification time of the resolved path is used, which also follows
+ * Kubernetes volumes that replace files by swapping symbolic links.
+ * <p>
+ * If the token is a JWT, its {@code exp} claim is parsed. A token that expires within {@link #EXPIRY_MARGIN_SECONDS}
+ * is not trusted from the cache, and the file is read again on every call until a fresh token has been written.
+ * Thread-safe; shared by all clients of a provider.
+ */
+public class TokenFile {
+
+    private static Logger logger = Logger.getLogger(TokenFile.class);
+
+    private static final long CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long EXPIRY_MARGIN_SECONDS = 30;
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Path path;
+
+    private String token;
+    private FileTime modifiedAt;
+    private long checkedAt;
+    private long expiresAt;
+
+    public TokenFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Returns the token, reading the file again if it has changed since it was last read.
+     *
+     * @throws IOException if the file cannot be read
+     * @throws BaoClient.BaoClientException if the file is empty
+     */
+    public synchronized String getToken() throws IOException {
+        long now = System.nanoTime();
+        if (token != null && now - checkedAt < CHECK_INTERVAL_NANOS && !isExpiring()) {
+            return token;
+        }
+        checkedAt = now;
+
+        FileTime currentModifiedAt = Files.getLastModifiedTime(path);
+        if (token == null || !currentModifiedAt.equals(modifiedAt)) {
+            String newToken = Files.readString(path, StandardCharsets.UTF_8).trim();
+            if (newToken.isEmpty()) {
+                throw new BaoClient.BaoClientException("Token file is empty: " + path);
+            }
+            if (token != null) {
+                logger.infov("Token file {0} changed, using the new token", path);
+            }
+            token = newToken;
+            modifiedAt = currentModifiedAt;
+            expiresAt = parseExpiry(newToken);
+            if (isExpiring()) {
+                logger.warnv("Token in {0} expires at {1}, waiting for it to be rotated", path,
+                        Instant.ofEpochSecond(expiresAt));
+            }
+        }
+        return token;
+    }
+
+    private boolean isExpiring() {
+        return expiresAt > 0 && System.currentTimeMillis() / 1000 >= expiresAt - EXPIRY_MARGIN_SECONDS;
+    }
+
+    /**
+     * Returns the {@code exp} claim of a JWT, or 0 if the token is not a JWT or has no expiry.
+     * The signature is not verified; the claim is only used to decide when to read the file again.
+     */
+    static long parseExpiry(String token) {
+        String[] parts = token.split("\\.", -1);
+        if (parts.length != 3) {
+            return 0;
+        }
+        try {
+            JsonNode claims = OBJECT_MAPPER.readTree(Base64.getUrlDecoder().decode(parts[1]));
+            return claims.path("exp").asLong(0);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.debugv("Token is not a JWT: {0}", e.getMessage());
+            return 0;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,490 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.baoclient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Minimal HTTP/1.1 client over a Unix domain socket, for talking to a local OpenBao agent without TCP and TLS.
+ * <p>
+ * {@link java.net.http.HttpClient} cannot connect to Unix domain sockets, so requests are written and responses
+ * parsed directly on a {@link SocketChannel}. Only what the OpenBao API needs is supported: requests with a
+ * string body, and responses with {@code Content-Length}, chunked transfer encoding or a body delimited by
+ * closing the connection. Connections are kept alive and reused by subsequent requests, up to
+ * {@link #MAX_IDLE_CONNECTIONS} idle connections.
+ * <p>
+ * Requests are not pipelined on a connection: responses arrive in the order of the requests, so a slow response
+ * would hold up every request sent after it on the same connection (head-of-line blocking). Concurrent requests
+ * use separate connections instead.
+ * <p>
+ * If a reused connection turns out to be closed by the agent, the request is sent again on a new connection
+ * only if it was not written, or if the method is idempotent: a request that was written may have been
+ * processed even though no response arrived.
+ * <p>
+ * The transport is thread-safe and shared by all clients of a provider. It must be closed to release the idle
+ * connections.
+ */
+public class UnixSocketTransport implements AutoCloseable {
+
+    private static Logger logger = Logger.getLogger(UnixSocketTransport.class);
+
+    /** URI scheme for Unix domain socket addresses, e.g. {@code unix:///run/openbao/agent.sock}. */
+    public static final String SCHEME = "unix";
+
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+
+    private final URI address;
+    private final UnixDomainSocketAddress socketAddress;
+    private final ArrayDeque<Connection> idle = new ArrayDeque<>();
+    private boolean closed;
+
+    /**
+     * @param address the socket address as {@code unix:///path/to/socket}
+     */
+    public UnixSocketTransport(URI address) {
+        if (!SCHEME.equalsIgnoreCase(address.getScheme()) || address.getPath() == null
+                || address.getPath().isEmpty()) {
+            throw new IllegalArgumentException("Not a Unix domain socket address: " + address);
+        }
+        this.address = address;
+        this.socketAddress = UnixDomainSocketAddress.of(Path.of(address.getPath()));
+    }
+
+    public static boolean isUnixSocketAddress(URI address) {
+        return SCHEME.equalsIgnoreCase(address.getScheme());
+    }
+
+    public URI getAddress() {
+        return address;
+    }
+
+    /**
+     * Sends a request and reads the response.
+     *
+     * @param method      the HTTP method
+     * @param path        the request path, e.g. {@code /v1/sys/health}
+     * @param headers     the request headers
+     * @param body        the request body, or null
+     * @param timeout     the time limit for sending the request and reading the response
+     * @param maxBodySize the maximum size of the response body in bytes
+     * @throws IOException if the connection fails or the response cannot be read within the timeout
+     * @throws RestClient.ResponseTooLargeException if the response body exceeds the maximum size
+     */
+    public Response send(String method, String path, Map<String, String> headers, String body, Duration timeout,
+            long maxBodySize) throws IOException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        byte[] request = encodeRequest(method, path, headers, body);
+
+        Connection connection = pollIdle();
+        if (connection != null) {
+            try {
+                return exchange(connection, request, method, maxBodySize, deadline);
+            } catch (StaleConnectionException e) {
+                if (e.written && !isIdempotentMethod(method)) {
+                    throw new EOFException("Reused connection to " + address + " closed before response, not "
+                            + "sending " + method + " again");
+                }
+                logger.debugv("Reused connection to {0} was closed, reconnecting", address);
+            }
+        }
+
+        connection = connect(deadline);
+        try {
+            return exchange(connection, request, method, maxBodySize, deadline);
+        } catch (StaleConnectionException e) {
+            throw new EOFException("Connection to " + address + " closed before response");
+        }
+    }
+
+    /**
+     * Closes the idle connections. Connections in use are closed when their requests complete.
+     */
+    @Override
+    public void close() {
+        synchronized (idle) {
+            closed = true;
+            idle.forEach(Connection::close);
+            idle.clear();
+        }
+    }
+
+    private Response exchange(Connection connection, byte[] request, String method, long maxBodySize,
+            long deadline) throws IOException {
+        boolean reusable = false;
+        try {
+            connection.write(ByteBuffer.wrap(request), deadline);
+            Response response = connection.readResponse("HEAD".equalsIgnoreCase(method), maxBodySize, deadline);
+            reusable = response.keepAlive;
+            return response;
+        } finally {
+            if (reusable) {
+                release(connection);
+            } else {
+                connection.close();
+            }
+        }
+    }
+
+    private Connection pollIdle() {
+        synchronized (idle) {
+            return idle.pollLast();
+        }
+    }
+
+    private void release(Connection connection) {
+        synchronized (idle) {
+            if (!closed && idle.size() < MAX_IDLE_CONNECTIONS) {
+                idle.addLast(connection);
+                return;
+            }
+        }
+        connection.close();
+    }
+
+    private Connection connect(long deadline) throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.configureBlocking(false);
+            Connection connection = new Connection(channel);
+            if (!channel.connect(socketAddress)) {
+                connection.await(SelectionKey.OP_CONNECT, deadline);
+                channel.finishConnect();
+            }
+            return connection;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static boolean isIdempotentMethod(String method) {
+        return "GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method) || "LIST".equalsIgnoreCase(method)
+                || "SCAN".equalsIgnoreCase(method) || "PUT".equalsIgnoreCase(method)
+                || "DELETE".equalsIgnoreCase(method);
+    }
+
+    private static byte[] encodeRequest(String method, String path, Map<String, String> headers, String body) {
+        byte[] bodyBytes = body != null ? body.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        StringBuilder head = new StringBuilder(256)
+                .append(method).append(' ').append(path.startsWith("/") ? path : "/" + path).append(" HTTP/1.1\r\n")
+                .append("Host: localhost\r\n");
+        headers.forEach((name, value) -> head.append(name).append(": ").append(value).append("\r\n"));
+        if (bodyBytes.length > 0 || !"GET".equalsIgnoreCase(method)) {
+            head.append("Content-Length: ").append(bodyBytes.length).append("\r\n");
+        }
+        head.append("\r\n");
+
+        byte[] headBytes = head.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] request = new byte[headBytes.length + bodyBytes.length];
+        System.arraycopy(headBytes, 0, request, 0, headBytes.length);
+        System.arraycopy(bodyBytes, 0, request, headBytes.length, bodyBytes.length);
+        return request;
+    }
+
+    /**
+     * HTTP response read from the socket.
+     */
+    public static final class Response {
+        private final int statusCode;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+        private final boolean keepAlive;
+
+        private Response(int statusCode, Map<String, List<String>> headers, byte[] body, boolean keepAlive) {
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.body = body;
+            this.keepAlive = keepAlive;
+        }
+
+        public int statusCode() {
+            return statusCode;
+        }
+
+        /**
+         * Returns the response headers, with lower case names.
+         */
+        public Map<String, List<String>> headers() {
+            return headers;
+        }
+
+        public String header(String name) {
+            List<String> values = headers.get(name.toLowerCase(Locale.ROOT));
+            return values != null && !values.isEmpty() ? values.get(0) : null;
+        }
+
+        public byte[] body() {
+            return body;
+        }
+    }
+
+    /**
+     * Thrown when a connection is found closed before any part of the response was read.
+     */
+    private static class StaleConnectionException extends IOException {
+        /** True if the request was written before the connection was found closed. */
+        private final boolean written;
+
+        StaleConnectionException(boolean written) {
+            super("Connection closed");
+            this.written = written;
+        }
+    }
+
+    /**
+     * Non-blocking socket channel with a read buffer, waited on with a selector to enforce the deadline.
+     */
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final Selector selector;
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+        private boolean received;
+
+        Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.selector = Selector.open();
+        }
+
+        void write(ByteBuffer data, long deadline) throws IOException {
+            try {
+                while (data.hasRemaining()) {
+                    if (channel.write(data) == 0) {
+                        await(SelectionKey.OP_WRITE, deadline);
+                    }
+                }
+            } catch (IOException e) {
+                if (e instanceof HttpTimeoutException) {
+                    throw e;
+                }
+                // Writing to a connection that the peer has closed fails with "Broken pipe".
+                throw new StaleConnectionException(false);
+            }
+        }
+
+        Response readResponse(boolean headRequest, long maxBodySize, long deadline) throws IOException {
+            received = false;
+            String statusLine = readLine(deadline);
+            String[] parts = statusLine.split(" ", 3);
+            if (parts.length < 2 || !parts[0].startsWith("HTTP/1.")) {
+                throw new IOException("Malformed HTTP status line: " + statusLine);
+            }
+            int statusCode;
+            try {
+                statusCode = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed HTTP status line: " + statusLine, e);
+            }
+
+            Map<String, List<String>> headers = new HashMap<>();
+            int headerSize = statusLine.length();
+            for (String line = readLine(deadline); !line.isEmpty(); line = readLine(deadline)) {
+                headerSize += line.length();
+                if (headerSize > MAX_HEADER_SIZE) {
+                    throw new IOException("HTTP response headers too large");
+                }
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    headers.computeIfAbsent(line.substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                            name -> new ArrayList<>()).add(line.substring(colon + 1).trim());
+                }
+            }
+
+            String connectionHeader = first(headers, "connection");
+            boolean keepAlive = parts[0].equals("HTTP/1.1")
+                    ? !"close".equalsIgnoreCase(connectionHeader)
+                    : "keep-alive".equalsIgnoreCase(connectionHeader);
+
+            byte[] body;
+            String transferEncoding = first(headers, "transfer-encoding");
+            String contentLength = first(headers, "content-length");
+            if (headRequest || statusCode == 204 || statusCode == 304 || statusCode / 100 == 1) {
+                body = new byte[0];
+            } else if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+                body = readChunked(maxBodySize, deadline);
+            } else if (contentLength != null) {
+                long length;
+                try {
+                    length = Long.parseLong(contentLength);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed Content-Length: " + contentLength, e);
+                }
+                if (length < 0) {
+                    throw new IOException("Malformed Content-Length: " + contentLength);
+                }
+                checkBodySize(length, maxBodySize);
+                body = readFixed((int) length, deadline);
+            } else {
+                body = readToEnd(maxBodySize, deadline);
+                keepAlive = false;
+            }
+
+            return new Response(statusCode, headers, body, keepAlive);
+        }
+
+        void close() {
+            try {
+                selector.close();
+                channel.close();
+            } catch (IOException e) {
+                logger.debugv("Failed to close connection: {0}", e.getMessage());
+            }
+        }
+
+        private static String first(Map<String, List<String>> headers, String name) {
+            List<String> values = headers.get(name);
+            return values != null ? values.get(0) : null;
+        }
+
+        private static void checkBodySize(long size, long maxBodySize) {
+            if (size > maxBodySize) {
+                throw new RestClient.ResponseTooLargeException(String.format(
+                        "Response body of %d bytes exceeds the maximum size of %d bytes", size, maxBodySize));
+            }
+        }
+
+        private byte[] readChunked(long maxBodySize, long deadline) throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            while (true) {
+                String sizeLine = readLine(deadline);
+                int extension = sizeLine.indexOf(';');
+                int size;
+                try {
+                    size = Integer.parseInt((extension >= 0 ? sizeLine.substring(0, extension) : sizeLine).trim(),
+                            16);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed chunk size: " + sizeLine, e);
+                }
+                if (size == 0) {
+                    // Skip trailers.
+                    while (!readLine(deadline).isEmpty()) {
+                        // Ignored.
+                    }
+                    return body.toByteArray();
+                }
+                checkBodySize((long) body.size() + size, maxBodySize);
+                body.write(readFixed(size, deadline));
+                readLine(deadline);
+            }
+        }
+
+        private byte[] readFixed(int length, long deadline) throws IOException {
+            byte[] data = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                fill(deadline);
+                int count = Math.min(readBuffer.remaining(), length - offset);
+                readBuffer.get(data, offset, count);
+                offset += count;
+            }
+            return data;
+        }
+
+        private byte[] readToEnd(long maxBodySize, long deadline) throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try {
+                while (true) {
+                    fill(deadline);
+                    checkBodySize((long) body.size() + readBuffer.remaining(), maxBodySize);
+                    body.write(readBuffer.array(), readBuffer.arrayOffset() + readBuffer.position(),
+                            readBuffer.remaining());
+                    readBuffer.position(readBuffer.limit());
+                }
+            } catch (EOFException e) {
+                return body.toByteArray();
+            }
+        }
+
+        private String readLine(long deadline) throws IOException {
+            StringBuilder line = new StringBuilder();
+            while (true) {
+                fill(deadline);
+                byte b = readBuffer.get();
+                if (b == '\n') {
+                    int length = line.length();
+                    if (length > 0 && line.charAt(length - 1) == '\r') {
+                        line.setLength(length - 1);
+                    }
+                    return line.toString();
+                }
+                if (line.length() > MAX_HEADER_SIZE) {
+                    throw new IOException("HTTP response line too long");
+                }
+                line.append((char) (b & 0xff));
+            }
+        }
+
+        /**
+         * Makes sure the read buffer has at least one byte.
+         */
+        private void fill(long deadline) throws IOException {
+            while (!readBuffer.hasRemaining()) {
+                readBuffer.clear();
+                int count = channel.read(readBuffer);
+                readBuffer.flip();
+                if (count < 0) {
+                    if (!received) {
+                        throw new StaleConnectionException(true);
+                    }
+                    throw new EOFException("Connection closed while reading response");
+                }
+                if (count == 0) {
+                    await(SelectionKey.OP_READ, deadline);
+                } else {
+                    received = true;
+                }
+            }
+        }
+
+        private void await(int operation, long deadline) throws IOException {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new HttpTimeoutException("Request timed out");
+            }
+            SelectionKey key = channel.register(selector, operation);
+            try {
+                if (selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining))) == 0
+                        && System.nanoTime() - deadline >= 0) {
+                    throw new HttpTimeoutException("Request timed out");
+                }
+            } finally {
+                key.interestOps(0);
+                selector.selectedKeys().clear();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return address.toString();
+    }
+}
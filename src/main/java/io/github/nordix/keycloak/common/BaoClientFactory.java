@@ -0,0 +1,380 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.keycloak.common;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.jboss.logging.Logger;
+
+import io.github.nordix.baoclient.BaoClient;
+import io.github.nordix.baoclient.CircuitBreaker;
+import io.github.nordix.baoclient.ConcurrencyLimiter;
+import io.github.nordix.baoclient.HedgePolicy;
+import io.github.nordix.baoclient.LoadBalancer;
+import io.github.nordix.baoclient.RetryPolicy;
+import io.github.nordix.baoclient.TokenFile;
+import io.github.nordix.baoclient.UnixSocketTransport;
+
+/**
+ * Creates {@link BaoClient} instances for the configured OpenBao/HashiCorp Vault address(es).
+ * <p>
+ * If multiple addresses are configured, the clients share a {@link LoadBalancer} that probes the nodes in the
+ * background. If hedging, retries, the circuit breaker or the concurrency limit are enabled, the clients share a
+ * {@link HedgePolicy}, a {@link RetryPolicy}, a {@link CircuitBreaker} and a {@link ConcurrencyLimiter}.
+ * The circuit breaker and the concurrency limiter are also shared with the factory of the other provider if it
+ * uses the same addresses, so that logins ({@link ConcurrencyLimiter.Priority#INTERACTIVE}) and administrative
+ * requests ({@link ConcurrencyLimiter.Priority#ADMIN}) are queued together and weighted against each other.
+ * If the address is a Unix domain socket ({@code unix:///path}), the clients share a {@link UnixSocketTransport}
+ * that keeps the connections to the local OpenBao agent alive. Otherwise the clients share an {@link HttpClient},
+ * so that connections are kept alive and reused across requests.
+ * <p>
+ * The token obtained by the Kubernetes login is shared by all clients and reused until two thirds of its lease
+ * have passed, or until OpenBao/HashiCorp Vault rejects it with 403 Forbidden. A login request is thus sent only
+ * when the token needs to be renewed, instead of for every client.
+ * The factory is created when the provider factory is initialized and must be closed with it.
+ */
+public class BaoClientFactory implements AutoCloseable {
+
+    private static Logger logger = Logger.getLogger(BaoClientFactory.class);
+
+    private static final double TOKEN_RENEWAL_FRACTION = 2.0 / 3;
+    private static final long CA_CERTIFICATE_CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * Circuit breakers and concurrency limiters of the factories, by the addresses they send requests to.
+     */
+    private static final Map<String, SharedLimits> SHARED_LIMITS = new HashMap<>();
+
+    private final ProviderConfig config;
+    private final LoadBalancer loadBalancer;
+    private final UnixSocketTransport unixSocketTransport;
+    private final TokenFile tokenFile;
+    private final TokenFile serviceAccountToken;
+    private final HedgePolicy hedgePolicy;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final String sharedLimitsKey;
+
+    private final Object loginLock = new Object();
+    private volatile BaoClient.AuthToken authToken;
+
+    private final ExecutorService executor;
+
+    private HttpClient httpClient;
+    private FileTime caCertificateModifiedAt;
+    private long caCertificateCheckedAt;
+
+    /**
+     * @param config     the provider configuration
+     * @param providerId the provider ID, used to tag the metrics
+     */
+    public BaoClientFactory(ProviderConfig config, String providerId) {
+        this.config = config;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, providerId + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (ProviderConfig.AUTH_METHOD_TOKEN_FILE.equals(config.getAuthMethod())) {
+            this.tokenFile = new TokenFile(Path.of(config.getTokenFile()));
+            this.serviceAccountToken = null;
+        } else {
+            this.tokenFile = null;
+            this.serviceAccountToken = new TokenFile(Path.of(config.getServiceAccountFile()));
+        }
+        if (config.getAddresses().size() > 1) {
+            logger.debugv("Load balancing over {0} using {1}", config.getAddresses(), config.getLoadBalancerPolicy());
+            this.loadBalancer = new LoadBalancer(config.getAddresses(), config.getLoadBalancerPolicy())
+                    .withHealthCheck(config.getHealthCheckInterval(), address -> create(address).getHealthStatus());
+        } else {
+            this.loadBalancer = null;
+        }
+
+        if (UnixSocketTransport.isUnixSocketAddress(config.getAddress())) {
+            logger.debugv("Connecting to {0} over Unix domain socket", config.getAddress());
+            this.unixSocketTransport = new UnixSocketTransport(config.getAddress());
+        } else {
+            this.unixSocketTransport = null;
+        }
+
+        if (config.getHedgePercentile() > 0) {
+            this.hedgePolicy = new HedgePolicy(config.getHedgePercentile(), config.getHedgeMinDelay(),
+                    config.getHedgeBudget());
+            ProviderMetrics.bindHedgePolicy(providerId, hedgePolicy);
+        } else {
+            this.hedgePolicy = null;
+        }
+
+        if (config.getMaxRetries() > 0) {
+            this.retryPolicy = new RetryPolicy(config.getMaxRetries(), config.getRetryBackoff(),
+                    config.getRetryBudget());
+            ProviderMetrics.bindRetryPolicy(providerId, retryPolicy);
+        } else {
+            this.retryPolicy = null;
+        }
+
+        this.sharedLimitsKey = sharedLimitsKey(config);
+        SharedLimits shared = acquireSharedLimits(sharedLimitsKey);
+        synchronized (shared) {
+            if (config.getCircuitBreakerFailureRate() > 0) {
+                if (shared.circuitBreaker == null) {
+                    shared.circuitBreaker = new CircuitBreaker(config.getCircuitBreakerFailureRate(),
+                            config.getCircuitBreakerMinimumCalls(), config.getCircuitBreakerOpenDuration());
+                    ProviderMetrics.bindCircuitBreaker(providerId, shared.circuitBreaker);
+                } else {
+                    logger.debugv("Sharing circuit breaker for {0} with the other provider", sharedLimitsKey);
+                }
+            }
+            this.circuitBreaker = config.getCircuitBreakerFailureRate() > 0 ? shared.circuitBreaker : null;
+
+            if (config.getMaxConcurrentRequests() > 0) {
+                if (shared.concurrencyLimiter == null) {
+                    shared.concurrencyLimiter = new ConcurrencyLimiter(config.getMaxConcurrentRequests(),
+                            config.getMaxQueuedRequests());
+                    ProviderMetrics.bindConcurrencyLimiter(providerId, shared.concurrencyLimiter);
+                } else {
+                    logger.debugv("Sharing concurrency limit for {0} with the other provider", sharedLimitsKey);
+                }
+            }
+            this.concurrencyLimiter = config.getMaxConcurrentRequests() > 0 ? shared.concurrencyLimiter : null;
+        }
+    }
+
+    /**
+     * Returns the key of the shared limits: the normalized addresses in sorted order, so that the providers share
+     * the limits when they are configured with the same nodes in any order.
+     */
+    private static String sharedLimitsKey(ProviderConfig config) {
+        return config.getAddresses().stream()
+                .map(address -> {
+                    String normalized = address.normalize().toString().toLowerCase();
+                    return normalized.endsWith("/") ? normalized.substring(0, normalized.length() - 1) : normalized;
+                })
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    private static SharedLimits acquireSharedLimits(String key) {
+        synchronized (SHARED_LIMITS) {
+            SharedLimits shared = SHARED_LIMITS.computeIfAbsent(key, k -> new SharedLimits());
+            shared.factories++;
+            return shared;
+        }
+    }
+
+    private static void releaseSharedLimits(String key) {
+        synchronized (SHARED_LIMITS) {
+            SharedLimits shared = SHARED_LIMITS.get(key);
+            if (shared != null && --shared.factories == 0) {
+                SHARED_LIMITS.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Returns a new client that is not logged in.
+     *
+     * @param realm    the realm on whose behalf the client is used, for fair scheduling between realms
+     * @param priority {@link ConcurrencyLimiter.Priority#INTERACTIVE} for requests that a user is waiting for,
+     *                 {@link ConcurrencyLimiter.Priority#ADMIN} for administrative requests
+     */
+    public BaoClient create(String realm, ConcurrencyLimiter.Priority priority) {
+        BaoClient client;
+        if (loadBalancer != null) {
+            client = new BaoClient(loadBalancer);
+        } else if (unixSocketTransport != null) {
+            client = new BaoClient(unixSocketTransport);
+        } else {
+            client = new BaoClient(config.getAddress());
+        }
+        client.withCaller(realm, priority);
+        if (hedgePolicy != null) {
+            client.withHedging(hedgePolicy);
+        }
+        if (circuitBreaker != null) {
+            client.withCircuitBreaker(circuitBreaker);
+        }
+        if (concurrencyLimiter != null) {
+            client.withConcurrencyLimit(concurrencyLimiter);
+        }
+        if (retryPolicy != null || config.getCallDeadline() > 0) {
+            client.withRetries(retryPolicy,
+                    config.getCallDeadline() > 0 ? Duration.ofMillis(config.getCallDeadline()) : null);
+        }
+        return withConnectionSettings(client);
+    }
+
+    /**
+     * Returns a new client that is logged in with the configured auth method.
+     * The token file or the service account token is cached until the file changes (see {@link TokenFile}).
+     * With auth method {@code token-file}, no login request is sent. With auth method {@code kubernetes}, the
+     * shared token is used and a login request is sent only if there is no valid token.
+     *
+     * @see #create(String, ConcurrencyLimiter.Priority)
+     * @throws IOException if the service account token or the token file cannot be read
+     */
+    public BaoClient createLoggedIn(String realm, ConcurrencyLimiter.Priority priority) throws IOException {
+        BaoClient client = create(realm, priority);
+        if (tokenFile != null) {
+            return client.loginWithTokenFile(tokenFile);
+        }
+        BaoClient.AuthToken token = getAuthToken(client);
+        return client.withToken(token.getToken())
+                .withPermissionDeniedListener(() -> invalidate(token));
+    }
+
+    /**
+     * Returns the shared token, logging in with the given client if there is none or it is about to expire.
+     * Concurrent callers wait for a single login.
+     */
+    private BaoClient.AuthToken getAuthToken(BaoClient client) throws IOException {
+        BaoClient.AuthToken token = authToken;
+        if (token != null && !token.isExpiring(TOKEN_RENEWAL_FRACTION)) {
+            return token;
+        }
+        synchronized (loginLock) {
+            token = authToken;
+            if (token == null || token.isExpiring(TOKEN_RENEWAL_FRACTION)) {
+                token = client.requestKubernetesToken(serviceAccountToken, config.getRole());
+                logger.debugv("Logged in to {0}, token lease {1} seconds", config.getAddress(),
+                        token.getLeaseDuration());
+                authToken = token;
+            }
+            return token;
+        }
+    }
+
+    /**
+     * Discards the shared token after a request with it was rejected, unless it has been replaced already.
+     */
+    private void invalidate(BaoClient.AuthToken token) {
+        synchronized (loginLock) {
+            if (authToken == token) {
+                logger.debug("Request was denied, logging in again for the next request");
+                authToken = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the executor for sending requests concurrently, e.g. for batch operations. The number of
+     * concurrent requests is bounded by the caller, and by the concurrency limit if it is enabled.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Returns false if the circuit breaker is open, i.e. calls to OpenBao/HashiCorp Vault would fail immediately.
+     */
+    public boolean isAvailable() {
+        return circuitBreaker == null || circuitBreaker.isCallPermitted();
+    }
+
+    /**
+     * Returns the state of the circuit breaker, or null if the circuit breaker is disabled.
+     */
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return circuitBreaker != null ? circuitBreaker.getState() : null;
+    }
+
+    /**
+     * Returns the concurrency limiter, or null if the concurrency limit is disabled.
+     */
+    ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    private BaoClient create(URI address) {
+        return withConnectionSettings(new BaoClient(address));
+    }
+
+    private BaoClient withConnectionSettings(BaoClient client) {
+        client.withTimeouts(Duration.ofMillis(config.getConnectTimeout()),
+                Duration.ofMillis(config.getRequestTimeout()));
+        client.withMaxResponseSize(config.getMaxResponseSize());
+        if (unixSocketTransport == null) {
+            client.withHttpClient(getHttpClient());
+        }
+        return client;
+    }
+
+    /**
+     * Returns the shared HTTP client. The client is built again when the CA certificate file has changed, which
+     * is checked at most every {@link #CA_CERTIFICATE_CHECK_INTERVAL_NANOS}.
+     */
+    private synchronized HttpClient getHttpClient() {
+        long now = System.nanoTime();
+        if (httpClient != null && now - caCertificateCheckedAt < CA_CERTIFICATE_CHECK_INTERVAL_NANOS) {
+            return httpClient;
+        }
+        caCertificateCheckedAt = now;
+
+        String caCertificateFile = config.getCaCertificateFile();
+        boolean hasCaCertificate = caCertificateFile != null && !caCertificateFile.isEmpty();
+        FileTime modifiedAt = null;
+        if (hasCaCertificate) {
+            try {
+                modifiedAt = Files.getLastModifiedTime(Path.of(caCertificateFile));
+            } catch (IOException e) {
+                logger.warnv("Failed to check CA certificate file {0}: {1}", caCertificateFile, e.getMessage());
+                if (httpClient != null) {
+                    return httpClient;
+                }
+            }
+        }
+        if (httpClient == null || !Objects.equals(modifiedAt, caCertificateModifiedAt)) {
+            if (httpClient != null) {
+                logger.infov("CA certificate file {0} changed, using the new certificate", caCertificateFile);
+            }
+            httpClient = BaoClient.newHttpClient(Duration.ofMillis(config.getConnectTimeout()),
+                    hasCaCertificate ? caCertificateFile : null);
+            caCertificateModifiedAt = modifiedAt;
+        }
+        return httpClient;
+    }
+
+    @Override
+    public void close() {
+        releaseSharedLimits(sharedLimitsKey);
+        executor.shutdownNow();
+        if (loadBalancer != null) {
+            loadBalancer.close();
+        }
+        if (unixSocketTransport != null) {
+            unixSocketTransport.close();
+        }
+    }
+
+    /**
+     * The circuit breaker and the concurrency limiter for a set of addresses. They are created with the
+     * configuration of the factory that enables them first.
+     */
+    private static final class SharedLimits {
+        private CircuitBreaker circuitBreaker;
+        private ConcurrencyLimiter concurrencyLimiter;
+        private int factories;
+    }
+}
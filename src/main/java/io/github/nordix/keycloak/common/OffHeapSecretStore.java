@@ -0,0 +1,378 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.keycloak.common;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntriesEvicted;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryExpired;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryInvalidated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntriesEvictedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryEvent;
+import org.jboss.logging.Logger;
+
+/**
+ * Node-local store for secret values outside of the Java heap.
+ * <p>
+ * Values are stored in direct {@link ByteBuffer} slabs, divided into slots of fixed size classes.
+ * A slab belongs to one size class at a time: a slab whose slots are all free is given to the size class that
+ * needs one, and if there is none, the least recently used secrets are evicted from the slab that holds the
+ * least recently used secret, so that no size class is shut out when the slabs have been taken by other sizes.
+ * Secrets are handed out as read-only views to the slots, so they are not copied on lookup and are never moved
+ * by the garbage collector. A slot is overwritten with zeros when its secret is evicted or invalidated.
+ * <p>
+ * The store is a local tier in front of the Infinispan secrets cache and is kept consistent with it by
+ * {@link Invalidator}, which removes the secret when the cache entry changes on any node.
+ * <p>
+ * Slots are pinned while a session uses them (see {@link #acquire(SecretCacheKey)}); a pinned slot that is
+ * evicted is zeroed and reused only after it has been released.
+ */
+public class OffHeapSecretStore {
+
+    private static Logger logger = Logger.getLogger(OffHeapSecretStore.class);
+
+    private static final int[] SIZE_CLASSES = { 32, 64, 128, 256, 512, 1024, 2048, 4096 };
+    static final int SLAB_SIZE = 64 * 1024;
+
+    /**
+     * Capacity below which there are fewer slabs than size classes, so secrets of different sizes evict each
+     * other.
+     */
+    public static final long RECOMMENDED_MINIMUM_CAPACITY = (long) SIZE_CLASSES.length * SLAB_SIZE;
+
+    private final long capacity;
+    private long invalidations;
+
+    private final List<Slab> slabs = new ArrayList<>();
+
+    /** Stored secrets in least recently used order. */
+    private final LinkedHashMap<SecretCacheKey, Slot> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param capacity maximum number of bytes to allocate for the slabs
+     */
+    public OffHeapSecretStore(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns a stamp to pass to {@link #put(SecretCacheKey, SecretCacheEntry, long)}.
+     * Must be read before the secret is read from the Infinispan cache, and after any write to the cache
+     * made by the caller.
+     */
+    public synchronized long stamp() {
+        return invalidations;
+    }
+
+    /**
+     * Returns the stored secret pinned for the caller, or null if the secret is not stored or its lease has expired.
+     * The slot must be released with {@link #release(Slot)} when the secret is no longer used.
+     */
+    public synchronized Slot acquire(SecretCacheKey key) {
+        Slot slot = entries.get(key);
+        if (slot == null) {
+            return null;
+        }
+        if (slot.leaseTtl > 0 && System.currentTimeMillis() - slot.fetchedAt > slot.leaseTtl * 1000) {
+            remove(key);
+            return null;
+        }
+        slot.pins++;
+        return slot;
+    }
+
+    /**
+     * Stores a copy of the secret and returns it pinned for the caller, or returns null if the secret was not stored.
+     * The secret is not stored if it is larger than the largest size class, if the store is full of pinned
+     * secrets, or if any secret was invalidated after the stamp was taken.
+     *
+     * @param key   the cache key
+     * @param entry the secret read from the Infinispan cache or from OpenBao/HashiCorp Vault
+     * @param stamp the value returned by {@link #stamp()} before the secret was read
+     */
+    public synchronized Slot put(SecretCacheKey key, SecretCacheEntry entry, long stamp) {
+        if (stamp != invalidations) {
+            logger.debugv("Not storing secret invalidated while it was read (key: {0})", key);
+            return null;
+        }
+
+        byte[] value = entry.getValue();
+        int sizeClass = sizeClassOf(value.length);
+        if (sizeClass < 0) {
+            return null;
+        }
+
+        remove(key);
+        Slab slab = allocate(sizeClass);
+        if (slab == null) {
+            logger.debugv("Off-heap secret store is full, not storing secret (key: {0})", key);
+            return null;
+        }
+
+        ByteBuffer buffer = slab.free.poll();
+        slab.used++;
+        buffer.put(0, value);
+        Slot slot = new Slot(slab, buffer, value.length, entry.getFetchedAt(), entry.getLeaseTtl());
+        slot.pins++;
+        entries.put(key, slot);
+        return slot;
+    }
+
+    /**
+     * Releases a slot returned by {@link #acquire(SecretCacheKey)} or
+     * {@link #put(SecretCacheKey, SecretCacheEntry, long)}.
+     */
+    public synchronized void release(Slot slot) {
+        slot.pins--;
+        if (slot.removed && slot.pins == 0) {
+            free(slot);
+        }
+    }
+
+    /**
+     * Removes the secret and zeroes its slot, unless the slot is pinned.
+     */
+    public synchronized void remove(SecretCacheKey key) {
+        invalidations++;
+        Slot slot = entries.remove(key);
+        if (slot != null) {
+            slot.removed = true;
+            if (slot.pins == 0) {
+                free(slot);
+            }
+        }
+    }
+
+    /**
+     * Zeroes all slabs and drops the stored secrets.
+     */
+    public synchronized void close() {
+        entries.clear();
+        slabs.forEach(slab -> zero(slab.buffer));
+        slabs.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of slabs allocated, for tests.
+     */
+    synchronized int slabCount() {
+        return slabs.size();
+    }
+
+    private static int sizeClassOf(int length) {
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            if (length <= SIZE_CLASSES[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a slab of the given size class with a free slot, or null if all slots are pinned. In order of
+     * preference, uses a free slot, allocates a new slab, takes a free slab from another size class, evicts the
+     * least recently used secret of the same size class, or evicts the secrets of the slab that holds the least
+     * recently used secret.
+     */
+    private Slab allocate(int sizeClass) {
+        Slab slab = findFree(sizeClass);
+        if (slab != null) {
+            return slab;
+        }
+        if ((long) (slabs.size() + 1) * SLAB_SIZE <= capacity) {
+            slab = new Slab(ByteBuffer.allocateDirect(SLAB_SIZE));
+            slabs.add(slab);
+            slab.assign(sizeClass);
+            return slab;
+        }
+        for (Slab candidate : slabs) {
+            if (candidate.used == 0) {
+                logger.debugv("Moving free off-heap slab from {0} to {1} byte secrets",
+                        SIZE_CLASSES[candidate.sizeClass], SIZE_CLASSES[sizeClass]);
+                candidate.assign(sizeClass);
+                return candidate;
+            }
+        }
+
+        for (Iterator<Slot> it = entries.values().iterator(); it.hasNext();) {
+            Slot slot = it.next();
+            if (slot.slab.sizeClass == sizeClass && slot.pins == 0) {
+                it.remove();
+                evict(slot);
+                return slot.slab;
+            }
+        }
+
+        slab = findEvictableSlab();
+        if (slab == null) {
+            return null;
+        }
+        logger.debugv("Evicting off-heap slab of {0} byte secrets for {1} byte secrets",
+                SIZE_CLASSES[slab.sizeClass], SIZE_CLASSES[sizeClass]);
+        for (Iterator<Slot> it = entries.values().iterator(); it.hasNext();) {
+            Slot slot = it.next();
+            if (slot.slab == slab) {
+                it.remove();
+                evict(slot);
+            }
+        }
+        slab.assign(sizeClass);
+        return slab;
+    }
+
+    private Slab findFree(int sizeClass) {
+        for (Slab slab : slabs) {
+            if (slab.sizeClass == sizeClass && !slab.free.isEmpty()) {
+                return slab;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the slab of the least recently used secret among the slabs whose slots are all used by unpinned
+     * secrets, or null if every slab has a pinned slot.
+     */
+    private Slab findEvictableSlab() {
+        Map<Slab, Integer> unpinned = new HashMap<>();
+        for (Slot slot : entries.values()) {
+            if (slot.pins == 0) {
+                unpinned.merge(slot.slab, 1, Integer::sum);
+            }
+        }
+        for (Slot slot : entries.values()) {
+            if (unpinned.getOrDefault(slot.slab, 0) == slot.slab.used) {
+                return slot.slab;
+            }
+        }
+        return null;
+    }
+
+    private void evict(Slot slot) {
+        slot.removed = true;
+        free(slot);
+    }
+
+    private void free(Slot slot) {
+        zero(slot.buffer);
+        slot.slab.free.add(slot.buffer);
+        slot.slab.used--;
+    }
+
+    private static void zero(ByteBuffer buffer) {
+        for (int i = 0; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    /**
+     * Secret stored in the off-heap slabs.
+     */
+    public static final class Slot {
+        private final Slab slab;
+        private final ByteBuffer buffer;
+        private final int length;
+        private final long fetchedAt;
+        private final long leaseTtl;
+        private int pins;
+        private boolean removed;
+
+        private Slot(Slab slab, ByteBuffer buffer, int length, long fetchedAt, long leaseTtl) {
+            this.slab = slab;
+            this.buffer = buffer;
+            this.length = length;
+            this.fetchedAt = fetchedAt;
+            this.leaseTtl = leaseTtl;
+        }
+
+        /**
+         * Returns a read-only view to the secret value. Valid until the slot is released.
+         */
+        public ByteBuffer view() {
+            return buffer.slice(0, length).asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * Slab of direct memory, divided into the free and used slots of one size class.
+     */
+    private static final class Slab {
+        private final ByteBuffer buffer;
+        private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+        private int sizeClass;
+
+        /**
+         * Number of slots that are not free: stored secrets, and removed secrets that are still pinned.
+         */
+        private int used;
+
+        private Slab(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * Divides the slab into free slots of the size class. Must be called only when no slot is used.
+         */
+        private void assign(int sizeClass) {
+            this.sizeClass = sizeClass;
+            free.clear();
+            int slotSize = SIZE_CLASSES[sizeClass];
+            for (int offset = 0; offset + slotSize <= SLAB_SIZE; offset += slotSize) {
+                free.add(buffer.slice(offset, slotSize));
+            }
+        }
+    }
+
+    /**
+     * Removes secrets from the store when their entries in the Infinispan secrets cache are created, modified,
+     * removed, invalidated, expired or evicted, whether the change was made on this node or on another node.
+     * Evictions are followed so that the store never holds a secret that the local cache does not, since
+     * changes to keys missing from the local cache are not notified.
+     */
+    @Listener
+    public static class Invalidator {
+
+        private final OffHeapSecretStore store;
+
+        public Invalidator(OffHeapSecretStore store) {
+            this.store = store;
+        }
+
+        @CacheEntryCreated
+        @CacheEntryModified
+        @CacheEntryRemoved
+        @CacheEntryInvalidated
+        @CacheEntryExpired
+        public void onChange(CacheEntryEvent<SecretCacheKey, SecretCacheEntry> event) {
+            if (!event.isPre()) {
+                store.remove(event.getKey());
+            }
+        }
+
+        @CacheEntriesEvicted
+        public void onEvict(CacheEntriesEvictedEvent<SecretCacheKey, SecretCacheEntry> event) {
+            event.getEntries().keySet().forEach(store::remove);
+        }
+    }
+}
@@ -11,49 +11,131 @@ package io.github.nordix.keycloak.common;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 
 import org.jboss.logging.Logger;
 import org.keycloak.Config.Scope;
 
+import io.github.nordix.baoclient.LoadBalancer;
+
 public class ProviderConfig {
 
     private static Logger logger = Logger.getLogger(ProviderConfig.class);
 
+    public static final String AUTH_METHOD_KUBERNETES = "kubernetes";
+    public static final String AUTH_METHOD_TOKEN_FILE = "token-file";
+
     private String authMethod;
     private String serviceAccountFile;
+    private String tokenFile;
     private URI address;
+    private List<URI> addresses;
+    private LoadBalancer.Policy loadBalancerPolicy;
+    private long healthCheckInterval;
+    private double hedgePercentile;
+    private long hedgeMinDelay;
+    private double hedgeBudget;
+    private long connectTimeout;
+    private long requestTimeout;
+    private long callDeadline;
+    private int maxRetries;
+    private long retryBackoff;
+    private double retryBudget;
+    private double circuitBreakerFailureRate;
+    private int circuitBreakerMinimumCalls;
+    private long circuitBreakerOpenDuration;
+    private int maxConcurrentRequests;
+    private int maxQueuedRequests;
+    private long maxResponseSize;
+    private long listCacheTtl;
+    private String etagSecret;
     private String kvMount;
     private String kvPathPrefix;
     private int kvVersion;
     private String caCertificateFile;
     private String role;
     private String cacheName;
+    private boolean cacheWriteThrough;
+    private long offHeapStoreSize;
 
     public ProviderConfig(Scope configScope, String cmdLineOptionPrefix) {
-        this.authMethod = configScope.get("auth-method", "kubernetes");
+        this.authMethod = configScope.get("auth-method", AUTH_METHOD_KUBERNETES);
+        this.tokenFile = configScope.get("token-file");
         this.serviceAccountFile = configScope.get("service-account-file",
                 "/var/run/secrets/kubernetes.io/serviceaccount/token");
-        this.address = configScope.get("address") != null ? URI.create(configScope.get("address")) : null;
+        this.addresses = configScope.get("address") != null ? parseAddresses(configScope.get("address")) : List.of();
+        this.address = addresses.isEmpty() ? null : addresses.get(0);
         this.kvMount = configScope.get("kv-mount", "secret");
         this.kvPathPrefix = configScope.get("kv-path-prefix", "keycloak/%realm%");
         this.kvVersion = Integer.parseInt(configScope.get("kv-version", "1"));
         this.caCertificateFile = configScope.get("ca-certificate-file");
         this.role = configScope.get("role", "");
         this.cacheName = configScope.get("cache-name");
+        this.cacheWriteThrough = configScope.getBoolean("cache-write-through", false);
+        this.offHeapStoreSize = Long.parseLong(configScope.get("off-heap-store-size", "0"));
+        this.healthCheckInterval = Long.parseLong(configScope.get("health-check-interval", "10000"));
+        this.hedgePercentile = Double.parseDouble(configScope.get("hedge-percentile", "0"));
+        this.hedgeMinDelay = Long.parseLong(configScope.get("hedge-min-delay", "10"));
+        this.hedgeBudget = Double.parseDouble(configScope.get("hedge-budget", "0.1"));
+        this.connectTimeout = Long.parseLong(configScope.get("connect-timeout", "3000"));
+        this.requestTimeout = Long.parseLong(configScope.get("request-timeout", "10000"));
+        this.callDeadline = Long.parseLong(configScope.get("call-deadline", "15000"));
+        this.maxRetries = Integer.parseInt(configScope.get("max-retries", "2"));
+        this.retryBackoff = Long.parseLong(configScope.get("retry-backoff", "100"));
+        this.retryBudget = Double.parseDouble(configScope.get("retry-budget", "0.2"));
+        this.circuitBreakerFailureRate = Double.parseDouble(configScope.get("circuit-breaker-failure-rate", "50"));
+        this.circuitBreakerMinimumCalls = Integer.parseInt(configScope.get("circuit-breaker-minimum-calls", "20"));
+        this.circuitBreakerOpenDuration = Long.parseLong(configScope.get("circuit-breaker-open-duration", "30000"));
+        this.maxConcurrentRequests = Integer.parseInt(configScope.get("max-concurrent-requests", "64"));
+        this.maxQueuedRequests = Integer.parseInt(configScope.get("max-queued-requests", "256"));
+        this.maxResponseSize = Long.parseLong(configScope.get("max-response-size", "10485760"));
+        this.listCacheTtl = Long.parseLong(configScope.get("list-cache-ttl", "10000"));
+        this.etagSecret = configScope.get("etag-secret");
+
+        try {
+            this.loadBalancerPolicy = LoadBalancer.Policy.fromString(configScope.get("load-balancer-policy", "ewma"));
+        } catch (IllegalArgumentException e) {
+            logger.error(cmdLineOptionPrefix + "load-balancer-policy must be 'ewma' or 'least-requests'");
+            throw new IllegalArgumentException(
+                    cmdLineOptionPrefix + "load-balancer-policy must be 'ewma' or 'least-requests'", e);
+        }
 
         if (address == null) {
             logger.error(cmdLineOptionPrefix + "address + must be provided");
             throw new IllegalArgumentException(cmdLineOptionPrefix + "address must be provided");
         }
 
-        if (serviceAccountFile != null && !fileExistsAndReadable(serviceAccountFile)) {
+        if (addresses.size() > 1 && addresses.stream().anyMatch(uri -> "unix".equalsIgnoreCase(uri.getScheme()))) {
+            logger.error(cmdLineOptionPrefix + "address with unix:// scheme cannot be combined with other addresses");
+            throw new IllegalArgumentException(
+                    cmdLineOptionPrefix + "address with unix:// scheme cannot be combined with other addresses");
+        }
+
+        if (!authMethod.equals(AUTH_METHOD_KUBERNETES) && !authMethod.equals(AUTH_METHOD_TOKEN_FILE)) {
+            logger.error(cmdLineOptionPrefix + "auth-method must be 'kubernetes' or 'token-file'");
+            throw new IllegalArgumentException(cmdLineOptionPrefix + "auth-method must be 'kubernetes' or 'token-file'");
+        }
+
+        if (authMethod.equals(AUTH_METHOD_TOKEN_FILE)) {
+            if (tokenFile == null || tokenFile.isEmpty()) {
+                logger.error(cmdLineOptionPrefix + "token-file must be provided for auth-method 'token-file'");
+                throw new IllegalArgumentException(
+                        cmdLineOptionPrefix + "token-file must be provided for auth-method 'token-file'");
+            }
+            if (!fileExistsAndReadable(tokenFile)) {
+                // The token may be written by an agent that starts after Keycloak.
+                logger.warnv(cmdLineOptionPrefix + "token-file does not exist or is not readable yet: {0}",
+                        tokenFile);
+            }
+        } else if (serviceAccountFile != null && !fileExistsAndReadable(serviceAccountFile)) {
             logger.errorv(cmdLineOptionPrefix + "service-account-file does not exist or is not readable: {0}",
                     serviceAccountFile);
             throw new IllegalArgumentException(cmdLineOptionPrefix
                     + "service-account-file does not exist or is not readable: " + serviceAccountFile);
         }
 
-        if (address.getScheme().equalsIgnoreCase("https")) {
+        if (addresses.stream().anyMatch(uri -> "https".equalsIgnoreCase(uri.getScheme()))) {
             if (caCertificateFile == null) {
                 logger.warn(cmdLineOptionPrefix + "ca-certificate-file is not provided for HTTPS connection");
             } else if (!fileExistsAndReadable(caCertificateFile)) {
@@ -64,9 +146,47 @@ public class ProviderConfig {
             }
         }
 
-        if (!authMethod.equals("kubernetes")) {
-            logger.error(cmdLineOptionPrefix + "auth-method only 'kubernetes' is supported");
-            throw new IllegalArgumentException(cmdLineOptionPrefix + "auth-method only 'kubernetes' is supported");
+        if (offHeapStoreSize > 0 && (cacheName == null || cacheName.isEmpty())) {
+            logger.warn(cmdLineOptionPrefix + "off-heap-store-size is ignored since cache-name is not set");
+            offHeapStoreSize = 0;
+        }
+
+        if (offHeapStoreSize > 0 && offHeapStoreSize < OffHeapSecretStore.SLAB_SIZE) {
+            logger.error(cmdLineOptionPrefix + "off-heap-store-size must be 0 or at least "
+                    + OffHeapSecretStore.SLAB_SIZE);
+            throw new IllegalArgumentException(
+                    cmdLineOptionPrefix + "off-heap-store-size must be 0 or at least " + OffHeapSecretStore.SLAB_SIZE);
+        }
+
+        if (offHeapStoreSize > 0 && offHeapStoreSize < OffHeapSecretStore.RECOMMENDED_MINIMUM_CAPACITY) {
+            logger.warnv(cmdLineOptionPrefix + "off-heap-store-size is below {0}, secrets of different sizes evict "
+                    + "each other from the store", OffHeapSecretStore.RECOMMENDED_MINIMUM_CAPACITY);
+        }
+
+        if (hedgePercentile < 0 || hedgePercentile >= 100) {
+            logger.error(cmdLineOptionPrefix + "hedge-percentile must be between 0 and 100");
+            throw new IllegalArgumentException(cmdLineOptionPrefix + "hedge-percentile must be between 0 and 100");
+        }
+
+        if (hedgeBudget < 0 || hedgeBudget > 1) {
+            logger.error(cmdLineOptionPrefix + "hedge-budget must be between 0 and 1");
+            throw new IllegalArgumentException(cmdLineOptionPrefix + "hedge-budget must be between 0 and 1");
+        }
+
+        if (circuitBreakerFailureRate < 0 || circuitBreakerFailureRate > 100) {
+            logger.error(cmdLineOptionPrefix + "circuit-breaker-failure-rate must be between 0 and 100");
+            throw new IllegalArgumentException(
+                    cmdLineOptionPrefix + "circuit-breaker-failure-rate must be between 0 and 100");
+        }
+
+        if (maxResponseSize < 1) {
+            logger.error(cmdLineOptionPrefix + "max-response-size must be positive");
+            throw new IllegalArgumentException(cmdLineOptionPrefix + "max-response-size must be positive");
+        }
+
+        if (listCacheTtl < 0) {
+            logger.error(cmdLineOptionPrefix + "list-cache-ttl must not be negative");
+            throw new IllegalArgumentException(cmdLineOptionPrefix + "list-cache-ttl must not be negative");
         }
 
         if (kvVersion != 1) {
@@ -75,6 +195,14 @@ public class ProviderConfig {
         }
     }
 
+    private static List<URI> parseAddresses(String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(address -> !address.isEmpty())
+                .map(URI::create)
+                .toList();
+    }
+
     private boolean fileExistsAndReadable(String filePath) {
         return Files.exists(Paths.get(filePath)) && Files.isReadable(Paths.get(filePath));
     }
@@ -83,6 +211,13 @@ public class ProviderConfig {
         return authMethod;
     }
 
+    /**
+     * Returns the path of the file holding the OpenBao/HashiCorp Vault token for auth method {@code token-file}.
+     */
+    public String getTokenFile() {
+        return tokenFile;
+    }
+
     public String getServiceAccountFile() {
         return serviceAccountFile;
     }
@@ -91,6 +226,112 @@ public class ProviderConfig {
         return address;
     }
 
+    /**
+     * Returns all configured addresses. The first address is also returned by {@link #getAddress()}.
+     */
+    public List<URI> getAddresses() {
+        return addresses;
+    }
+
+    public LoadBalancer.Policy getLoadBalancerPolicy() {
+        return loadBalancerPolicy;
+    }
+
+    public long getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    /**
+     * Returns the percentile of read response times after which a hedge request is sent, or 0 if disabled.
+     */
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public long getHedgeMinDelay() {
+        return hedgeMinDelay;
+    }
+
+    /**
+     * Returns the maximum fraction of read requests that may be hedged.
+     */
+    public double getHedgeBudget() {
+        return hedgeBudget;
+    }
+
+    public long getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public long getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * Returns the time limit in milliseconds of a call to OpenBao/HashiCorp Vault including retries,
+     * or 0 if there is no limit.
+     */
+    public long getCallDeadline() {
+        return callDeadline;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public long getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public double getRetryBudget() {
+        return retryBudget;
+    }
+
+    /**
+     * Returns the failure rate in percent at which the circuit breaker opens, or 0 if disabled.
+     */
+    public double getCircuitBreakerFailureRate() {
+        return circuitBreakerFailureRate;
+    }
+
+    public int getCircuitBreakerMinimumCalls() {
+        return circuitBreakerMinimumCalls;
+    }
+
+    public long getCircuitBreakerOpenDuration() {
+        return circuitBreakerOpenDuration;
+    }
+
+    /**
+     * Returns the upper bound of the adaptive concurrency limit, or 0 if concurrency is not limited.
+     */
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public int getMaxQueuedRequests() {
+        return maxQueuedRequests;
+    }
+
+    public long getMaxResponseSize() {
+        return maxResponseSize;
+    }
+
+    /**
+     * Returns the time in milliseconds that the Secrets Manager lists secrets from a snapshot before listing them
+     * again, or 0 if secrets are listed on every request.
+     */
+    public long getListCacheTtl() {
+        return listCacheTtl;
+    }
+
+    /**
+     * Returns the secret from which the keys of the secret ETags are derived, or null if not set.
+     */
+    public String getEtagSecret() {
+        return etagSecret;
+    }
+
     public String getKvMount() {
         return kvMount;
     }
@@ -115,18 +356,48 @@ public class ProviderConfig {
         return cacheName;
     }
 
+    public boolean isCacheWriteThrough() {
+        return cacheWriteThrough;
+    }
+
+    public long getOffHeapStoreSize() {
+        return offHeapStoreSize;
+    }
+
     @Override
     public String toString() {
         return "SecretsProviderConfig{" +
                 "authMethod='" + authMethod + '\'' +
                 ", serviceAccountFile='" + serviceAccountFile + '\'' +
-                ", address=" + address +
+                ", tokenFile='" + tokenFile + '\'' +
+                ", addresses=" + addresses +
+                ", loadBalancerPolicy=" + loadBalancerPolicy +
+                ", healthCheckInterval=" + healthCheckInterval +
+                ", hedgePercentile=" + hedgePercentile +
+                ", hedgeMinDelay=" + hedgeMinDelay +
+                ", hedgeBudget=" + hedgeBudget +
+                ", connectTimeout=" + connectTimeout +
+                ", requestTimeout=" + requestTimeout +
+                ", callDeadline=" + callDeadline +
+                ", maxRetries=" + maxRetries +
+                ", retryBackoff=" + retryBackoff +
+                ", retryBudget=" + retryBudget +
+                ", circuitBreakerFailureRate=" + circuitBreakerFailureRate +
+                ", circuitBreakerMinimumCalls=" + circuitBreakerMinimumCalls +
+                ", circuitBreakerOpenDuration=" + circuitBreakerOpenDuration +
+                ", maxConcurrentRequests=" + maxConcurrentRequests +
+                ", maxQueuedRequests=" + maxQueuedRequests +
+                ", maxResponseSize=" + maxResponseSize +
+                ", listCacheTtl=" + listCacheTtl +
+                ", etagSecret=" + (etagSecret != null ? "<set>" : null) +
                 ", kvMount='" + kvMount + '\'' +
                 ", kvPathPrefix='" + kvPathPrefix + '\'' +
                 ", kvVersion=" + kvVersion +
                 ", caCertificateFile='" + caCertificateFile + '\'' +
                 ", role='" + role + '\'' +
                 ", cacheName=" + (cacheName == null || cacheName.isEmpty() ? "<disabled>" : "'" + cacheName + "'") +
+                ", cacheWriteThrough=" + cacheWriteThrough +
+                ", offHeapStoreSize=" + offHeapStoreSize +
                 '}';
     }
 }
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.keycloak.common;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.github.nordix.baoclient.CircuitBreaker;
+import io.github.nordix.baoclient.ConcurrencyLimiter;
+import io.github.nordix.baoclient.HedgePolicy;
+import io.github.nordix.baoclient.RetryPolicy;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Binds the statistics of the OpenBao/HashiCorp Vault client to Micrometer.
+ * <p>
+ * Meters are registered to the global registry, which Keycloak exposes at the metrics endpoint when
+ * {@code --metrics-enabled=true} is set. Every meter is tagged with the ID of the provider that owns it.
+ */
+public final class ProviderMetrics {
+
+    private static final String TAG_PROVIDER = "provider";
+    private static final String TAG_REALM = "realm";
+    private static final String TAG_PRIORITY = "priority";
+
+    private ProviderMetrics() {
+        // Utility class.
+    }
+
+    /**
+     * Registers counters for hedge requests sent ({@code secrets_provider_hedge_fired_total}), hedge requests
+     * answered before the original request ({@code secrets_provider_hedge_won_total}) and hedge requests that
+     * were not sent because the hedge budget was exhausted ({@code secrets_provider_hedge_rejected_total}).
+     */
+    public static void bindHedgePolicy(String providerId, HedgePolicy hedgePolicy) {
+        MeterRegistry registry = Metrics.globalRegistry;
+        FunctionCounter.builder("secrets.provider.hedge.fired", hedgePolicy, HedgePolicy::getFired)
+                .description("Read requests to OpenBao/HashiCorp Vault that were hedged")
+                .tag(TAG_PROVIDER, providerId)
+                .register(registry);
+        FunctionCounter.builder("secrets.provider.hedge.won", hedgePolicy, HedgePolicy::getWon)
+                .description("Hedge requests that were answered before the original request")
+                .tag(TAG_PROVIDER, providerId)
+                .register(registry);
+        FunctionCounter.builder("secrets.provider.hedge.rejected", hedgePolicy, HedgePolicy::getRejected)
+                .description("Hedge requests that were not sent because the hedge budget was exhausted")
+                .tag(TAG_PROVIDER, providerId)
+                .register(registry);
+    }
+
+    /**
+     * Registers counters for retried requests ({@code secrets_provider_retries_total}) and retries that were not
+     * made because the retry budget was exhausted ({@code secrets_provider_retries_rejected_total}).
+     */
+    public static void bindRetryPolicy(String providerId, RetryPolicy retryPolicy) {
+        MeterRegistry registry = Metrics.globalRegistry;
+        FunctionCounter.builder("secrets.provider.retries", retryPolicy, RetryPolicy::getRetries)
+                .description("Requests to OpenBao/HashiCorp Vault that were retried")
+                .tag(TAG_PROVIDER, providerId)
+                .register(registry);
+        FunctionCounter.builder("secrets.provider.retries.rejected", retryPolicy, RetryPolicy::getRejected)
+                .description("Retries that were not made because the retry budget was exhausted")
+                .tag(TAG_PROVIDER, providerId)
+                .register(registry);
+    }
+
+    /**
+     * Registers a gauge for the circuit breaker state ({@code secrets_provider_circuit_breaker_state}: 0 closed,
+     * 1 open, 2 half-open) and a counter for requests rejected while it was open
+     * ({@code secrets_provider_circuit_breaker_rejected_total}).
+     */
+    public static void bindCircuitBreaker(String providerId, CircuitBreaker circuitBreaker) {
+        MeterRegistry registry = Metrics.globalRegistry;
+        Gauge.builder("secrets.provider.circuit.breaker.state", circuitBreaker, cb -> cb.getState().ordinal())
+                .description("State of the OpenBao/HashiCorp Vault circuit breaker: 0 closed, 1 open, 2 half-open")
+                .tag(TAG_PROVIDER, providerId)
+                .register(registry);
+        FunctionCounter.builder("secrets.provider.circuit.breaker.rejected", circuitBreaker,
+                CircuitBreaker::getRejected)
+                .description("Requests to OpenBao/HashiCorp Vault rejected because the circuit breaker was open")
+                .tag(TAG_PROVIDER, providerId)
+                .register(registry);
+    }
+
+    /**
+     * Registers gauges for the adaptive concurrency limit ({@code secrets_provider_concurrency_limit}), the
+     * requests in flight ({@code secrets_provider_concurrency_in_flight}) and the requests waiting for a slot
+     * ({@code secrets_provider_concurrency_queued}), and a counter for rejected requests
+     * ({@code secrets_provider_concurrency_rejected_total}).
+     * <p>
+     * Per realm, registers a gauge for the requests waiting for a slot ({@code secrets_provider_queue_depth}) and
+     * a timer for the time requests waited ({@code secrets_provider_queue_wait_seconds}), also tagged with the
+     * priority. The meters of a realm are registered when the realm first sends a request.
+     */
+    public static void bindConcurrencyLimiter(String providerId, ConcurrencyLimiter limiter) {
+        MeterRegistry registry = Metrics.globalRegistry;
+        Gauge.builder("secrets.provider.concurrency.limit", limiter, ConcurrencyLimiter::getLimit)
+                .description("Current limit for concurrent requests to OpenBao/HashiCorp Vault")
+                .tag(TAG_PROVIDER, providerId)
+                .register(registry);
+        Gauge.builder("secrets.provider.concurrency.in.flight", limiter, ConcurrencyLimiter::getInFlight)
+                .description("Requests to OpenBao/HashiCorp Vault in flight")
+                .tag(TAG_PROVIDER, providerId)
+                .register(registry);
+        Gauge.builder("secrets.provider.concurrency.queued", limiter, ConcurrencyLimiter::getQueued)
+                .description("Requests waiting for the concurrency limit")
+                .tag(TAG_PROVIDER, providerId)
+                .register(registry);
+        FunctionCounter.builder("secrets.provider.concurrency.rejected", limiter, ConcurrencyLimiter::getRejected)
+                .description("Requests rejected because the queue was full or the deadline passed while queued")
+                .tag(TAG_PROVIDER, providerId)
+                .register(registry);
+
+        Map<String, Timer> waitTimers = new ConcurrentHashMap<>();
+        limiter.withListener((realm, priority, waitNanos) -> waitTimers.computeIfAbsent(realm + "/" + priority,
+                key -> {
+                    Gauge.builder("secrets.provider.queue.depth", limiter, l -> l.getQueued(realm))
+                            .description("Requests of the realm waiting for the concurrency limit")
+                            .tag(TAG_PROVIDER, providerId)
+                            .tag(TAG_REALM, realm)
+                            .register(registry);
+                    return Timer.builder("secrets.provider.queue.wait")
+                            .description("Time requests of the realm waited for the concurrency limit")
+                            .tag(TAG_PROVIDER, providerId)
+                            .tag(TAG_REALM, realm)
+                            .tag(TAG_PRIORITY, priority.toString().toLowerCase())
+                            .register(registry);
+                }).record(waitNanos, TimeUnit.NANOSECONDS));
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.keycloak.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Value of the secrets cache.
+ * <p>
+ * A negative entry has no value. It marks a deleted secret (tombstone) or, in invalidation mode, a fetch that is
+ * in progress. See {@link SecretsCacheSchema} for the serialized format.
+ */
+public final class SecretCacheEntry {
+
+    private static final byte[] NO_VALUE = new byte[0];
+
+    private final byte[] value;
+    private final long fetchedAt;
+    private final long leaseTtl;
+    private final int kvVersion;
+    private final boolean negative;
+
+    /**
+     * @param value     the secret value as UTF-8 bytes
+     * @param fetchedAt wall clock time in milliseconds when the value was known to be current, used as version
+     * @param leaseTtl  lease duration in seconds reported by OpenBao/HashiCorp Vault, or 0 if none
+     * @param kvVersion the KV v2 version of the secret, or 0 for KV v1
+     * @param negative  true if the entry has no value
+     */
+    SecretCacheEntry(byte[] value, long fetchedAt, long leaseTtl, int kvVersion, boolean negative) {
+        this.value = value != null ? value : NO_VALUE;
+        this.fetchedAt = fetchedAt;
+        this.leaseTtl = leaseTtl;
+        this.kvVersion = kvVersion;
+        this.negative = negative;
+    }
+
+    public static SecretCacheEntry of(String value, long fetchedAt, long leaseTtl, int kvVersion) {
+        return new SecretCacheEntry(value.getBytes(StandardCharsets.UTF_8), fetchedAt, leaseTtl, kvVersion, false);
+    }
+
+    public static SecretCacheEntry negative(long fetchedAt) {
+        return new SecretCacheEntry(NO_VALUE, fetchedAt, 0, 0, true);
+    }
+
+    /**
+     * Returns the secret value as UTF-8 bytes. The returned array must not be modified.
+     */
+    public byte[] getValue() {
+        return value;
+    }
+
+    public String getValueAsString() {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public long getLeaseTtl() {
+        return leaseTtl;
+    }
+
+    public int getKvVersion() {
+        return kvVersion;
+    }
+
+    public boolean isNegative() {
+        return negative;
+    }
+
+    /**
+     * Returns true if the lease reported by OpenBao/HashiCorp Vault has expired.
+     */
+    public boolean isLeaseExpired(long now) {
+        return leaseTtl > 0 && now - fetchedAt > leaseTtl * 1000;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SecretCacheEntry)) {
+            return false;
+        }
+        SecretCacheEntry other = (SecretCacheEntry) o;
+        return fetchedAt == other.fetchedAt && leaseTtl == other.leaseTtl && kvVersion == other.kvVersion
+                && negative == other.negative && Arrays.equals(value, other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(fetchedAt) * 31 + Arrays.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        // Never include the secret value.
+        return "SecretCacheEntry{fetchedAt=" + fetchedAt + ", leaseTtl=" + leaseTtl + ", kvVersion=" + kvVersion
+                + ", negative=" + negative + '}';
+    }
+}
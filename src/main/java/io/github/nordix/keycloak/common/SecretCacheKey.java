@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.keycloak.common;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Key of the secrets cache: 128 bits of the SHA-256 hash of {@code fullPath:fieldName}.
+ * <p>
+ * The secret path is not stored in the key, so paths are not visible in the cluster traffic.
+ * See {@link SecretsCacheSchema} for the serialized format.
+ */
+public final class SecretCacheKey {
+
+    private final long high;
+    private final long low;
+
+    SecretCacheKey(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Returns the cache key for the given field of the secret at the given KV path.
+     */
+    public static SecretCacheKey of(String fullPath, String fieldName) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest((fullPath + ":" + fieldName).getBytes(StandardCharsets.UTF_8));
+            ByteBuffer buffer = ByteBuffer.wrap(hash);
+            return new SecretCacheKey(buffer.getLong(), buffer.getLong());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    long getHigh() {
+        return high;
+    }
+
+    long getLow() {
+        return low;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SecretCacheKey)) {
+            return false;
+        }
+        SecretCacheKey other = (SecretCacheKey) o;
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(high) * 31 + Long.hashCode(low);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
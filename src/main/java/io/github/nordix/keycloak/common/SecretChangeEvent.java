@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.keycloak.common;
+
+import org.keycloak.cluster.ClusterEvent;
+
+/**
+ * Change of a secret written through the Secrets Manager, sent to the other Keycloak nodes for the
+ * {@link SecretChangeFeed} and the {@link SecretListCache}. Does not carry the secret value.
+ * Marshalled with ProtoStream (see {@link SecretsCacheSchema}).
+ */
+public class SecretChangeEvent implements ClusterEvent {
+
+    private final String realmId;
+    private final String path;
+    private final String id;
+    private final boolean deleted;
+    private final String origin;
+    private final long sequence;
+
+    /**
+     * @param realmId the ID of the realm
+     * @param path    the resolved path prefix of the realm's secrets
+     * @param id      the ID of the secret in the realm
+     * @param deleted true if the secret was deleted, false if it was created or updated
+     */
+    public SecretChangeEvent(String realmId, String path, String id, boolean deleted) {
+        this(realmId, path, id, deleted, null, 0);
+    }
+
+    /**
+     * @param origin   the epoch of the Keycloak node that made the change, or null if not published yet
+     * @param sequence the sequence number of the change on that node
+     */
+    SecretChangeEvent(String realmId, String path, String id, boolean deleted, String origin, long sequence) {
+        this.realmId = realmId;
+        this.path = path;
+        this.id = id;
+        this.deleted = deleted;
+        this.origin = origin != null && !origin.isEmpty() ? origin : null;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Returns a copy of the change stamped with its position in the feed of the node that made it.
+     */
+    SecretChangeEvent withOrigin(String origin, long sequence) {
+        return new SecretChangeEvent(realmId, path, id, deleted, origin, sequence);
+    }
+
+    public String getRealmId() {
+        return realmId;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    /**
+     * Returns the epoch of the Keycloak node that made the change, or null if the change has not been published
+     * or was sent by a node that does not stamp the changes.
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public String toString() {
+        return "SecretChangeEvent{realmId='" + realmId + "', path='" + path + "', id='" + id + "', deleted=" + deleted
+                + ", origin='" + origin + "', sequence=" + sequence + "}";
+    }
+}
@@ -0,0 +1,548 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.keycloak.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.jboss.logging.Logger;
+import org.keycloak.cluster.ClusterProvider;
+import org.keycloak.connections.infinispan.InfinispanConnectionProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.utils.KeycloakModelUtils;
+
+/**
+ * Feed of the secrets written through the Secrets Manager, for clients that watch the secrets of a realm instead
+ * of polling them.
+ * <p>
+ * Each Keycloak node keeps the recent changes of all realms in a ring buffer. Changes are sent to the other nodes
+ * with the Keycloak cluster provider, so that a watcher connected to any node receives the changes made through
+ * all nodes. Each change is stamped with the origin, a random epoch of the node that made it, and a sequence
+ * number on that node. A cursor holds the highest sequence number the watcher has seen of each origin, and the
+ * time when the watcher listed the secrets, so any node can continue it: the node returns the changes above the
+ * sequence numbers. The cursor cannot be continued, and the watcher must list the secrets again, if the node may
+ * have missed changes the watcher has not seen: changes that have been overwritten in the ring buffer, changes
+ * made before the node was started, or changes the node did not receive from the cluster.
+ * <p>
+ * Watchers waiting for changes do not hold a thread: a {@link Watch} is completed by the thread that appends the
+ * changes, or by the caller when the watch times out.
+ */
+public class SecretChangeFeed {
+
+    private static Logger logger = Logger.getLogger(SecretChangeFeed.class);
+
+    /**
+     * Key of the cluster events.
+     */
+    public static final String CLUSTER_TASK_KEY = "secrets-manager-changes";
+
+    /**
+     * Tolerated difference between the clocks of the Keycloak nodes, when comparing the listing time of a cursor
+     * issued by another node with the times of this node.
+     */
+    static final long CLOCK_SKEW_MILLIS = 5000;
+
+    /**
+     * Maximum number of origins in a cursor. Origins unknown to the node that issues the cursor are dropped first.
+     * Dropping an origin is safe: its changes are returned again, or the cursor is reset.
+     */
+    private static final int MAX_CURSOR_ORIGINS = 32;
+
+    private final String epoch;
+    private final long startedAt;
+    private final Entry[] ring;
+
+    /**
+     * Position of the next change in the ring buffer. Changes from {@code next - ring.length} to {@code next - 1}
+     * are in the ring buffer.
+     */
+    private long next;
+
+    /**
+     * Sequence number of the last change made through this node.
+     */
+    private long published;
+
+    /**
+     * Origins this node has received changes from. The state of an origin is a few numbers, so origins are kept
+     * also after their changes have been overwritten.
+     */
+    private final Map<String, Origin> origins = new HashMap<>();
+
+    /**
+     * Watches waiting for changes, in the order they started.
+     */
+    private final Set<Watch> watches = new LinkedHashSet<>();
+
+    /**
+     * @param capacity number of recent changes kept
+     */
+    public SecretChangeFeed(int capacity) {
+        this(capacity, System.currentTimeMillis());
+    }
+
+    /**
+     * @param startedAt wall clock time in milliseconds from which this node receives the changes of other nodes
+     */
+    SecretChangeFeed(int capacity, long startedAt) {
+        byte[] random = new byte[8];
+        new SecureRandom().nextBytes(random);
+        this.epoch = HexFormat.of().formatHex(random);
+        this.startedAt = startedAt;
+        this.ring = new Entry[capacity];
+        this.origins.put(epoch, new Origin(1));
+    }
+
+    /**
+     * Registers the ProtoStream schema of the change events and starts receiving the changes made through the
+     * other Keycloak nodes. Must be called from {@code postInit()} of the provider factory.
+     */
+    public void register(KeycloakSessionFactory factory) {
+        KeycloakModelUtils.runJobInTransaction(factory, session -> {
+            InfinispanConnectionProvider infinispan = session.getProvider(InfinispanConnectionProvider.class);
+            ClusterProvider cluster = session.getProvider(ClusterProvider.class);
+            if (infinispan == null || cluster == null) {
+                logger.warn("Cluster provider is not available, secret changes are not received from other nodes");
+                return;
+            }
+            SecretsCacheSchema.register(
+                    infinispan.getCache(InfinispanConnectionProvider.WORK_CACHE_NAME).getCacheManager());
+            cluster.registerListener(CLUSTER_TASK_KEY, event -> {
+                if (event instanceof SecretChangeEvent change) {
+                    append(List.of(change));
+                }
+            });
+        });
+    }
+
+    /**
+     * Adds the changes to the feed of this node and sends them to the other nodes.
+     */
+    public void publish(KeycloakSession session, List<SecretChangeEvent> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<SecretChangeEvent> stamped = appendOwn(changes);
+        try {
+            ClusterProvider cluster = session.getProvider(ClusterProvider.class);
+            if (cluster != null) {
+                cluster.notify(CLUSTER_TASK_KEY, stamped, true, ClusterProvider.DCNotify.ALL_DCS);
+            }
+        } catch (RuntimeException e) {
+            // Watchers on other nodes miss the changes, and their cursors are reset when this node sends the next
+            // change.
+            logger.warnv(e, "Failed to send {0} secret changes to other nodes", changes.size());
+        }
+    }
+
+    /**
+     * Returns the cursor of the current end of the feed, for a watcher that lists the secrets now.
+     */
+    public synchronized String getCursor() {
+        return currentCursor().toString();
+    }
+
+    /**
+     * Returns the changes of the realm after the cursor without waiting.
+     *
+     * @param realmId    the ID of the realm
+     * @param cursor     a cursor returned by {@link #getCursor()} or a previous call, on any node
+     * @param maxChanges the maximum number of changes to return
+     * @return the changes, or a reset if the cursor cannot be continued
+     */
+    public synchronized Changes read(String realmId, String cursor, int maxChanges) {
+        return read(realmId, Cursor.parse(cursor), maxChanges, next - ring.length);
+    }
+
+    /**
+     * Calls the listener with the changes of the realm after the cursor as soon as there is at least one change,
+     * or the cursor cannot be continued. If there are changes already, the listener is called before this method
+     * returns. Otherwise it is called by the thread that appends the changes, or by {@link Watch#timeout()}.
+     *
+     * @param realmId    the ID of the realm
+     * @param cursor     a cursor returned by {@link #getCursor()} or a previous call, on any node
+     * @param maxChanges the maximum number of changes to return
+     * @param listener   called once with the changes
+     * @return the watch, to be timed out by the caller
+     */
+    public Watch watch(String realmId, String cursor, int maxChanges, Consumer<Changes> listener) {
+        Watch watch = new Watch(realmId, maxChanges, listener);
+        Changes changes;
+        synchronized (this) {
+            changes = read(realmId, Cursor.parse(cursor), maxChanges, next - ring.length);
+            if (!changes.isReset() && changes.getEvents().isEmpty()) {
+                // Continue from the returned cursor, so that only the changes appended later are scanned.
+                watch.cursor = changes.next;
+                watch.position = next;
+                watches.add(watch);
+                return watch;
+            }
+        }
+        watch.complete(changes);
+        return watch;
+    }
+
+    /**
+     * Returns the number of watches waiting for changes.
+     */
+    public synchronized int getWatchCount() {
+        return watches.size();
+    }
+
+    /**
+     * Stamps the changes made through this node with its epoch and the next sequence numbers, and adds them to
+     * the feed of this node.
+     *
+     * @return the stamped changes, to be sent to the other nodes
+     */
+    List<SecretChangeEvent> appendOwn(Collection<SecretChangeEvent> changes) {
+        List<SecretChangeEvent> stamped = new ArrayList<>();
+        synchronized (this) {
+            for (SecretChangeEvent change : changes) {
+                stamped.add(change.withOrigin(epoch, ++published));
+            }
+        }
+        append(stamped);
+        return stamped;
+    }
+
+    /**
+     * Adds the changes to the feed of this node only, and completes the watches that receive some of them.
+     */
+    void append(Collection<SecretChangeEvent> changes) {
+        List<Watch> completed = new ArrayList<>();
+        List<Changes> results = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for (SecretChangeEvent change : changes) {
+                if (change.getOrigin() == null) {
+                    logger.debugv("Ignoring secret change without origin: {0}", change);
+                    continue;
+                }
+                Origin origin = origins.get(change.getOrigin());
+                if (origin == null) {
+                    origin = new Origin(change.getSequence());
+                    origins.put(change.getOrigin(), origin);
+                } else if (change.getSequence() <= origin.latest) {
+                    continue;
+                } else if (change.getSequence() > origin.latest + 1) {
+                    logger.debugv("Missed secret changes {0} to {1} of node {2}", origin.latest + 1,
+                            change.getSequence() - 1, change.getOrigin());
+                    origin.first = change.getSequence();
+                    origin.lostAt = now;
+                }
+                origin.latest = change.getSequence();
+
+                int slot = (int) (next % ring.length);
+                Entry overwritten = ring[slot];
+                if (overwritten != null) {
+                    Origin overwrittenOrigin = origins.get(overwritten.change.getOrigin());
+                    overwrittenOrigin.first = Math.max(overwrittenOrigin.first,
+                            overwritten.change.getSequence() + 1);
+                    overwrittenOrigin.lostAt = Math.max(overwrittenOrigin.lostAt, overwritten.arrivedAt);
+                }
+                ring[slot] = new Entry(change, now);
+                next++;
+            }
+            for (Iterator<Watch> it = watches.iterator(); it.hasNext();) {
+                Watch watch = it.next();
+                Changes result = read(watch.realmId, watch.cursor, watch.maxChanges, watch.position);
+                watch.cursor = result.next;
+                watch.position = next;
+                if (result.isReset() || !result.getEvents().isEmpty()) {
+                    it.remove();
+                    completed.add(watch);
+                    results.add(result);
+                }
+            }
+        }
+        // Outside of the lock: the listeners write the responses.
+        for (int i = 0; i < completed.size(); i++) {
+            completed.get(i).complete(results.get(i));
+        }
+    }
+
+    /**
+     * Returns the changes of the realm after the cursor, scanning the ring buffer from the given position.
+     */
+    private Changes read(String realmId, Cursor cursor, int maxChanges, long from) {
+        if (!canContinue(cursor)) {
+            logger.debugv("Cannot continue secret change feed from cursor {0}", cursor);
+            return new Changes(currentCursor(), true, List.of());
+        }
+
+        // Changes of origins that are not in the cursor are new to the watcher, unless they arrived before it
+        // listed the secrets.
+        long listedAt = listedAt(cursor);
+        Map<String, Long> positions = new LinkedHashMap<>(cursor.positions);
+        List<SecretChangeEvent> changes = new ArrayList<>();
+        long position = Math.max(from, Math.max(next - ring.length, 0));
+        for (; position < next && changes.size() < maxChanges; position++) {
+            Entry entry = ring[(int) (position % ring.length)];
+            String origin = entry.change.getOrigin();
+            Long seen = positions.get(origin);
+            if (seen == null ? entry.arrivedAt < listedAt : entry.change.getSequence() <= seen) {
+                continue;
+            }
+            positions.put(origin, entry.change.getSequence());
+            if (entry.change.getRealmId().equals(realmId)) {
+                changes.add(entry.change);
+            }
+        }
+        if (position == next) {
+            // All changes have been scanned: the watcher is up to date with all origins known to this node.
+            for (Map.Entry<String, Origin> origin : origins.entrySet()) {
+                if (origin.getValue().latest > 0) {
+                    positions.merge(origin.getKey(), origin.getValue().latest, Math::max);
+                }
+            }
+        }
+        return new Changes(new Cursor(cursor.listedBy, cursor.listedAt, limit(positions)), false, changes);
+    }
+
+    /**
+     * Returns true if this node has all changes that the watcher has not seen.
+     */
+    private boolean canContinue(Cursor cursor) {
+        if (cursor == null) {
+            return false;
+        }
+        long listedAt = listedAt(cursor);
+        if (listedAt < startedAt) {
+            // Changes made before this node was started are not known to it.
+            return false;
+        }
+        for (Map.Entry<String, Long> position : cursor.positions.entrySet()) {
+            Origin origin = origins.get(position.getKey());
+            long seen = position.getValue();
+            if (seen < 0 || (position.getKey().equals(epoch) && seen > origin.latest)) {
+                return false;
+            }
+            if (origin != null && seen < origin.first - 1) {
+                // Changes after the position have been overwritten or were not received.
+                return false;
+            }
+            // An origin this node does not know has not made changes since this node was started.
+        }
+        for (Map.Entry<String, Origin> origin : origins.entrySet()) {
+            if (!cursor.positions.containsKey(origin.getKey()) && origin.getValue().lostAt >= listedAt) {
+                // Changes that the watcher has not seen have been overwritten or were not received.
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the time when the watcher listed the secrets, for comparing with the times of this node: earlier by
+     * the tolerated clock skew if the secrets were listed through another node.
+     */
+    private long listedAt(Cursor cursor) {
+        return cursor.listedBy.equals(epoch) ? cursor.listedAt : cursor.listedAt - CLOCK_SKEW_MILLIS;
+    }
+
+    private Cursor currentCursor() {
+        Map<String, Long> positions = new LinkedHashMap<>();
+        for (Map.Entry<String, Origin> origin : origins.entrySet()) {
+            if (origin.getValue().latest > 0) {
+                positions.put(origin.getKey(), origin.getValue().latest);
+            }
+        }
+        return new Cursor(epoch, System.currentTimeMillis(), limit(positions));
+    }
+
+    /**
+     * Drops origins from the positions if there are too many, those not known to this node first.
+     */
+    private Map<String, Long> limit(Map<String, Long> positions) {
+        if (positions.size() <= MAX_CURSOR_ORIGINS) {
+            return positions;
+        }
+        Map<String, Long> limited = new LinkedHashMap<>();
+        positions.entrySet().stream()
+                .sorted((a, b) -> Boolean.compare(!origins.containsKey(a.getKey()), !origins.containsKey(b.getKey())))
+                .limit(MAX_CURSOR_ORIGINS)
+                .forEach(position -> limited.put(position.getKey(), position.getValue()));
+        return limited;
+    }
+
+    /**
+     * A watcher waiting for changes, see {@link SecretChangeFeed#watch}.
+     */
+    public final class Watch {
+        private final String realmId;
+        private final int maxChanges;
+        private final Consumer<Changes> listener;
+        private Cursor cursor;
+        private long position;
+
+        private Watch(String realmId, int maxChanges, Consumer<Changes> listener) {
+            this.realmId = realmId;
+            this.maxChanges = maxChanges;
+            this.listener = listener;
+        }
+
+        /**
+         * Stops waiting and calls the listener with no changes and the cursor to continue from, unless the listener
+         * has already been called.
+         */
+        public void timeout() {
+            Changes changes;
+            synchronized (SecretChangeFeed.this) {
+                if (!watches.remove(this)) {
+                    return;
+                }
+                changes = read(realmId, cursor, maxChanges, position);
+            }
+            complete(changes);
+        }
+
+        private void complete(Changes changes) {
+            try {
+                listener.accept(changes);
+            } catch (RuntimeException e) {
+                logger.warnv(e, "Failed to complete watch of realm {0}", realmId);
+            }
+        }
+    }
+
+    /**
+     * Changes returned by {@link #read} and {@link #watch}.
+     */
+    public static final class Changes {
+        private final Cursor next;
+        private final boolean reset;
+        private final List<SecretChangeEvent> events;
+
+        Changes(Cursor next, boolean reset, List<SecretChangeEvent> events) {
+            this.next = next;
+            this.reset = reset;
+            this.events = events;
+        }
+
+        /**
+         * Returns the cursor to continue from.
+         */
+        public String getCursor() {
+            return next.toString();
+        }
+
+        /**
+         * Returns true if the given cursor could not be continued, and changes may have been missed.
+         */
+        public boolean isReset() {
+            return reset;
+        }
+
+        public List<SecretChangeEvent> getEvents() {
+            return events;
+        }
+    }
+
+    /**
+     * Position of a watcher: the node where and the time when the watcher listed the secrets, and the highest
+     * sequence number of each origin that the watcher has seen since. Encoded as Base64 of
+     * {@code <listed by>:<listed at>:<origin>=<sequence>,...}, so clients treat it as opaque.
+     */
+    private static final class Cursor {
+        private final String listedBy;
+        private final long listedAt;
+        private final Map<String, Long> positions;
+
+        private Cursor(String listedBy, long listedAt, Map<String, Long> positions) {
+            this.listedBy = listedBy;
+            this.listedAt = listedAt;
+            this.positions = positions;
+        }
+
+        /**
+         * Returns the cursor, or null if it is malformed.
+         */
+        private static Cursor parse(String value) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8)
+                        .split(":", -1);
+                if (parts.length != 3 || parts[0].isEmpty()) {
+                    return null;
+                }
+                Map<String, Long> positions = new LinkedHashMap<>();
+                if (!parts[2].isEmpty()) {
+                    for (String position : parts[2].split(",", -1)) {
+                        int separator = position.indexOf('=');
+                        if (separator < 1 || positions.put(position.substring(0, separator),
+                                Long.parseLong(position.substring(separator + 1))) != null) {
+                            return null;
+                        }
+                    }
+                }
+                return new Cursor(parts[0], Long.parseLong(parts[1]), positions);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder().append(listedBy).append(':').append(listedAt).append(':');
+            String separator = "";
+            for (Map.Entry<String, Long> position : positions.entrySet()) {
+                text.append(separator).append(position.getKey()).append('=').append(position.getValue());
+                separator = ",";
+            }
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final class Origin {
+        /**
+         * Sequence number from which all changes of the origin are in the ring buffer, or have been received if
+         * greater than {@link #latest}.
+         */
+        private long first;
+        private long latest;
+
+        /**
+         * Wall clock time when changes of the origin that arrived at this node were last overwritten, or when
+         * changes were found missing. Zero if never.
+         */
+        private long lostAt;
+
+        private Origin(long first) {
+            this.first = first;
+            this.latest = first - 1;
+        }
+    }
+
+    private static final class Entry {
+        private final SecretChangeEvent change;
+        private final long arrivedAt;
+
+        private Entry(SecretChangeEvent change, long arrivedAt) {
+            this.change = change;
+            this.arrivedAt = arrivedAt;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.keycloak.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jboss.logging.Logger;
+import org.keycloak.cluster.ClusterProvider;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.utils.KeycloakModelUtils;
+
+/**
+ * Short-lived snapshots of the secret IDs under a path, so that paging through a long list of secrets or polling
+ * the list sends one LIST request to OpenBao/HashiCorp Vault per TTL instead of one per request.
+ * <p>
+ * A snapshot is a sorted, immutable list that is shared by all requests for the same path until it expires.
+ * Concurrent requests for an expired or missing snapshot wait for a single LIST request. Snapshots are local to
+ * the Keycloak node. Secrets written or deleted through the Secrets Manager are added to or removed from the
+ * snapshots of all nodes without listing again, through the change events of the {@link SecretChangeFeed};
+ * changes made directly in OpenBao/HashiCorp Vault become visible when the snapshot expires.
+ */
+public class SecretListCache {
+
+    private static Logger logger = Logger.getLogger(SecretListCache.class);
+
+    /**
+     * Loads the secret IDs under a path.
+     */
+    public interface Loader {
+        List<String> load();
+    }
+
+    private final long ttlNanos;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param ttlMillis time a snapshot is used before the list is loaded again, or 0 to load the list on every
+     *                  request
+     */
+    public SecretListCache(long ttlMillis) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * Starts updating the snapshots with the secrets written or deleted through the other Keycloak nodes.
+     * Must be called from {@code postInit()} of the provider factory, after {@link SecretChangeFeed#register}.
+     */
+    public void register(KeycloakSessionFactory factory) {
+        KeycloakModelUtils.runJobInTransaction(factory, session -> {
+            ClusterProvider cluster = session.getProvider(ClusterProvider.class);
+            if (cluster == null) {
+                logger.warn("Cluster provider is not available, lists of secrets are not updated from other nodes");
+                return;
+            }
+            cluster.registerListener(SecretChangeFeed.CLUSTER_TASK_KEY, event -> {
+                if (event instanceof SecretChangeEvent change) {
+                    if (change.isDeleted()) {
+                        update(change.getPath(), List.of(), List.of(change.getId()));
+                    } else {
+                        update(change.getPath(), List.of(change.getId()), List.of());
+                    }
+                }
+            });
+        });
+    }
+
+    /**
+     * Returns the snapshot of the secret IDs under the path, loading it if there is no current snapshot.
+     *
+     * @param path   the path, e.g. the resolved path prefix of a realm
+     * @param loader loads the secret IDs if needed
+     */
+    public Snapshot get(String path, Loader loader) {
+        Entry entry = entries.computeIfAbsent(path, p -> new Entry());
+        synchronized (entry) {
+            long now = System.nanoTime();
+            Snapshot previous = entry.snapshot.get();
+            if (previous != null && now - previous.loadedAt < ttlNanos) {
+                return previous;
+            }
+            int generation = entry.generation.get();
+            Snapshot loaded;
+            entry.loading = true;
+            try {
+                removeExpired(now);
+                List<String> ids = new ArrayList<>(loader.load());
+                Collections.sort(ids);
+                loaded = new Snapshot(Collections.unmodifiableList(ids), now);
+            } finally {
+                entry.loading = false;
+            }
+            logger.debugv("Loaded {0} secret IDs under {1}", loaded.ids.size(), path);
+
+            // A list loaded while a secret was written may be stale; use it for this request only.
+            if (ttlNanos > 0 && entry.generation.get() == generation
+                    && entry.snapshot.compareAndSet(previous, loaded)) {
+                entries.putIfAbsent(path, entry);
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * Updates the snapshot of the path after secrets under it were written or deleted.
+     *
+     * @param path    the path
+     * @param written IDs of the secrets that were created or updated
+     * @param deleted IDs of the secrets that were deleted
+     */
+    public void update(String path, Collection<String> written, Collection<String> deleted) {
+        Entry entry = entries.get(path);
+        if (entry == null) {
+            return;
+        }
+        // Generation is changed first, so that a load in progress does not replace the updated snapshot.
+        entry.generation.incrementAndGet();
+        entry.snapshot.updateAndGet(snapshot -> snapshot != null ? snapshot.with(written, deleted) : null);
+    }
+
+    /**
+     * Discards the snapshot of the path, e.g. after a large number of secrets under it were written.
+     */
+    public void invalidate(String path) {
+        Entry entry = entries.get(path);
+        if (entry != null) {
+            entry.generation.incrementAndGet();
+            entry.snapshot.set(null);
+        }
+    }
+
+    private void removeExpired(long now) {
+        // Entries without snapshot, e.g. being loaded, are kept so that an update during a load is not missed.
+        entries.values().removeIf(entry -> {
+            Snapshot snapshot = entry.snapshot.get();
+            return !entry.loading && snapshot != null && now - snapshot.loadedAt >= ttlNanos;
+        });
+    }
+
+    /**
+     * Sorted, immutable list of secret IDs.
+     */
+    public static final class Snapshot {
+        private final List<String> ids;
+        private final long loadedAt;
+        private volatile String digest;
+
+        private Snapshot(List<String> ids, long loadedAt) {
+            this.ids = ids;
+            this.loadedAt = loadedAt;
+        }
+
+        public List<String> getIds() {
+            return ids;
+        }
+
+        /**
+         * Returns a hex encoded SHA-256 digest of the IDs, which changes when the list changes.
+         * Computed on first use and shared by all requests that use the snapshot.
+         */
+        public String getDigest() {
+            String result = digest;
+            if (result == null) {
+                MessageDigest sha256;
+                try {
+                    sha256 = MessageDigest.getInstance("SHA-256");
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException("SHA-256 is not available", e);
+                }
+                for (String id : ids) {
+                    sha256.update(id.getBytes(StandardCharsets.UTF_8));
+                    sha256.update((byte) '\n');
+                }
+                result = HexFormat.of().formatHex(sha256.digest());
+                digest = result;
+            }
+            return result;
+        }
+
+        /**
+         * Returns a snapshot with the written IDs added and the deleted IDs removed, loaded at the same time as
+         * this snapshot so that it expires at the same time.
+         */
+        private Snapshot with(Collection<String> written, Collection<String> deleted) {
+            List<String> updated = new ArrayList<>(ids);
+            for (String id : written) {
+                int index = Collections.binarySearch(updated, id);
+                if (index < 0) {
+                    updated.add(-index - 1, id);
+                }
+            }
+            for (String id : deleted) {
+                int index = Collections.binarySearch(updated, id);
+                if (index >= 0) {
+                    updated.remove(index);
+                }
+            }
+            return new Snapshot(Collections.unmodifiableList(updated), loadedAt);
+        }
+    }
+
+    private static final class Entry {
+        private final AtomicInteger generation = new AtomicInteger();
+        private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+        private volatile boolean loading;
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.keycloak.common;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.infinispan.AdvancedCache;
+import org.infinispan.Cache;
+import org.infinispan.context.Flag;
+import org.jboss.logging.Logger;
+import org.keycloak.connections.infinispan.InfinispanConnectionProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.utils.KeycloakModelUtils;
+
+/**
+ * Infinispan cache for secrets, shared by the Vault provider and the Secrets Manager.
+ * <p>
+ * Every entry carries a version, which is the wall clock time when the value was known to be current.
+ * Entries fetched from OpenBao/HashiCorp Vault are versioned with the time the fetch started, entries written
+ * by the Secrets Manager with the time of the write. A fetched entry only replaces an entry with an older
+ * version, so a slow fetch that started before a write cannot overwrite the written value.
+ * Deleted and evicted secrets are kept as versioned tombstones for the same reason.
+ * Written values and tombstones are stored unconditionally: the writer knows that its value is current, while
+ * comparing versions created by the clocks of different nodes could reject it, and with a lease TTL of 0 the
+ * previous value would then never expire.
+ * <p>
+ * If the Infinispan cache is an invalidation cache, secret values are never sent to other nodes.
+ * Fetched values are stored only in the local node, and updates and deletes broadcast only an invalidation of
+ * the key. Instead of versions, a pending marker is stored locally before the fetch starts; the fetched value
+ * replaces the marker only if it was not invalidated while the fetch was in progress.
+ * <p>
+ * Cache keys are hashes of the secret path, so paths are not visible in the cluster traffic either.
+ * Keys and entries are marshalled with ProtoStream (see {@link SecretsCacheSchema}).
+ */
+public class SecretsCache {
+
+    private static Logger logger = Logger.getLogger(SecretsCache.class);
+
+    private final Cache<SecretCacheKey, SecretCacheEntry> cache;
+    private final AdvancedCache<SecretCacheKey, SecretCacheEntry> localCache;
+    private final boolean invalidationMode;
+
+    public SecretsCache(Cache<SecretCacheKey, SecretCacheEntry> cache) {
+        this.cache = cache;
+        this.localCache = cache.getAdvancedCache().withFlags(Flag.CACHE_MODE_LOCAL);
+        this.invalidationMode = cache.getCacheConfiguration().clustering().cacheMode().isInvalidation();
+    }
+
+    /**
+     * Returns the secrets cache configured for the provider, or null if caching is disabled.
+     */
+    public static SecretsCache create(KeycloakSession session, ProviderConfig config) {
+        if (config.getCacheName() == null || config.getCacheName().isEmpty()) {
+            return null;
+        }
+        return new SecretsCache(session.getProvider(InfinispanConnectionProvider.class).getCache(config.getCacheName()));
+    }
+
+    /**
+     * Registers the ProtoStream schema of the cache entries, if caching is enabled.
+     * Must be called from {@code postInit()} of the provider factories.
+     */
+    public static void registerSchema(KeycloakSessionFactory factory, ProviderConfig config) {
+        if (config.getCacheName() == null || config.getCacheName().isEmpty()) {
+            return;
+        }
+        KeycloakModelUtils.runJobInTransaction(factory, session -> SecretsCacheSchema.register(
+                session.getProvider(InfinispanConnectionProvider.class).getCache(config.getCacheName())
+                        .getCacheManager()));
+    }
+
+    /**
+     * Adds an Infinispan listener to the secrets cache of the local node.
+     * Must be called from {@code postInit()} of the provider factories, after {@link #registerSchema}.
+     */
+    public static void addListener(KeycloakSessionFactory factory, ProviderConfig config, Object listener) {
+        KeycloakModelUtils.runJobInTransaction(factory, session -> session
+                .getProvider(InfinispanConnectionProvider.class).getCache(config.getCacheName())
+                .addListener(listener));
+    }
+
+    /**
+     * Returns the cached secret, or null if the secret is not cached, has been deleted or its lease has expired.
+     */
+    public SecretCacheEntry get(SecretCacheKey key) {
+        SecretCacheEntry entry = cache.get(key);
+        if (entry == null || entry.isNegative()) {
+            return null;
+        }
+        if (entry.isLeaseExpired(System.currentTimeMillis())) {
+            logger.debugv("Cached secret lease expired (key: {0})", key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the cached secret even if its lease has expired, or null if the secret is not cached or has been
+     * deleted. Used as a fallback when OpenBao/HashiCorp Vault is unavailable.
+     */
+    public SecretCacheEntry getStale(SecretCacheKey key) {
+        SecretCacheEntry entry = cache.get(key);
+        return entry == null || entry.isNegative() ? null : entry;
+    }
+
+    /**
+     * Must be called before fetching a secret from OpenBao/HashiCorp Vault after a cache miss.
+     *
+     * @param key the cache key
+     * @return the fetch version to pass to {@link SecretCacheEntry#of(String, long, long, int)}
+     */
+    public long beginFetch(SecretCacheKey key) {
+        long fetchStartedAt = System.currentTimeMillis();
+        if (invalidationMode) {
+            // Marker is left in place if the fetch fails; it reads as a miss.
+            localCache.put(key, SecretCacheEntry.negative(fetchStartedAt));
+        }
+        return fetchStartedAt;
+    }
+
+    /**
+     * Stores a secret fetched from OpenBao/HashiCorp Vault.
+     * The entry is discarded if the secret was updated, deleted or invalidated after the fetch was started.
+     *
+     * @param key   the cache key
+     * @param entry the fetched secret, versioned with the time returned by {@link #beginFetch(SecretCacheKey)}
+     */
+    public void putFetched(SecretCacheKey key, SecretCacheEntry entry) {
+        boolean stored;
+        if (invalidationMode) {
+            stored = localCache.replace(key, SecretCacheEntry.negative(entry.getFetchedAt()), entry);
+        } else {
+            stored = putIfNewer(key, entry);
+        }
+        if (!stored) {
+            logger.debugv("Discarding stale fetched secret (key: {0})", key);
+        }
+    }
+
+    /**
+     * Stores a secret value that was just written to OpenBao/HashiCorp Vault.
+     * In invalidation mode the value is stored in the local node and invalidated on the other nodes.
+     */
+    public void putWritten(SecretCacheKey key, String value) {
+        cache.put(key, SecretCacheEntry.of(value, System.currentTimeMillis(), 0, 0));
+    }
+
+    /**
+     * Invalidates the cached secret value.
+     * In invalidation mode the entry is removed on all nodes, otherwise it is replaced with a tombstone.
+     */
+    public void invalidate(SecretCacheKey key) {
+        if (invalidationMode) {
+            cache.remove(key);
+        } else {
+            cache.put(key, SecretCacheEntry.negative(System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Stores the written secret values and invalidates the deleted secrets with one cache operation, instead of
+     * one operation per secret as {@link #putWritten} and {@link #invalidate} do.
+     * <p>
+     * In invalidation mode the values and tombstones are stored in the local node and invalidated on the other
+     * nodes.
+     *
+     * @param values the written values by key, null for a deleted or invalidated secret
+     */
+    public void updateAll(Map<SecretCacheKey, String> values) {
+        long now = System.currentTimeMillis();
+        Map<SecretCacheKey, SecretCacheEntry> entries = new HashMap<>();
+        values.forEach((key, value) -> entries.put(key,
+                value != null ? SecretCacheEntry.of(value, now, 0, 0) : SecretCacheEntry.negative(now)));
+        cache.putAll(entries);
+    }
+
+    /**
+     * Stores the entry unless the cache holds an entry with newer version.
+     * Uses conditional operations so that concurrent updates from other nodes are not lost.
+     *
+     * @return true if the entry was stored
+     */
+    private boolean putIfNewer(SecretCacheKey key, SecretCacheEntry entry) {
+        SecretCacheEntry current = cache.get(key);
+        while (true) {
+            if (current == null) {
+                current = cache.putIfAbsent(key, entry);
+                if (current == null) {
+                    return true;
+                }
+                continue;
+            }
+
+            if (current.getFetchedAt() >= entry.getFetchedAt()) {
+                return false;
+            }
+
+            if (cache.replace(key, current, entry)) {
+                return true;
+            }
+            current = cache.get(key);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.github.nordix.keycloak.common;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import org.infinispan.factories.GlobalComponentRegistry;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.marshall.protostream.impl.SerializationContextRegistry;
+import org.infinispan.protostream.FileDescriptorSource;
+import org.infinispan.protostream.ProtobufTagMarshaller;
+import org.infinispan.protostream.SerializationContext;
+import org.infinispan.protostream.SerializationContextInitializer;
+import org.infinispan.protostream.TagReader;
+import org.infinispan.protostream.TagWriter;
+import org.infinispan.protostream.descriptors.WireType;
+import org.jboss.logging.Logger;
+
+/**
+ * ProtoStream schema and marshallers for the secrets cache entries and the secret change events
+ * (see {@code proto/secrets-cache.proto}).
+ * <p>
+ * The marshallers are written by hand since annotation processing is not used in the build.
+ * Fields with default values are not written, and unknown fields are skipped when reading, so that nodes
+ * running different versions of the extension can exchange entries.
+ */
+public class SecretsCacheSchema implements SerializationContextInitializer {
+
+    private static Logger logger = Logger.getLogger(SecretsCacheSchema.class);
+
+    public static final SecretsCacheSchema INSTANCE = new SecretsCacheSchema();
+
+    private static final String PROTO_FILE_NAME = "secrets-cache.proto";
+    private static final String PACKAGE = "io.github.nordix.keycloak.";
+
+    private SecretsCacheSchema() {
+        // Use INSTANCE.
+    }
+
+    /**
+     * Registers the schema to the user serialization context of the cache manager.
+     * Must be called on every node before entries are stored in the cache.
+     */
+    public static void register(EmbeddedCacheManager cacheManager) {
+        logger.debugv("Registering {0} to cache manager {1}", PROTO_FILE_NAME, cacheManager.getClusterName());
+        GlobalComponentRegistry.componentOf(cacheManager, SerializationContextRegistry.class)
+                .addContextInitializer(SerializationContextRegistry.MarshallerType.USER, INSTANCE);
+    }
+
+    @Override
+    public String getProtoFileName() {
+        return PROTO_FILE_NAME;
+    }
+
+    @Override
+    public String getProtoFile() throws UncheckedIOException {
+        return FileDescriptorSource.getResourceAsString(getClass(), "/proto/" + PROTO_FILE_NAME);
+    }
+
+    @Override
+    public void registerSchema(SerializationContext serCtx) {
+        serCtx.registerProtoFiles(FileDescriptorSource.fromString(getProtoFileName(), getProtoFile()));
+    }
+
+    @Override
+    public void registerMarshallers(SerializationContext serCtx) {
+        serCtx.registerMarshaller(new KeyMarshaller());
+        serCtx.registerMarshaller(new EntryMarshaller());
+        serCtx.registerMarshaller(new ChangeEventMarshaller());
+    }
+
+    static final class KeyMarshaller implements ProtobufTagMarshaller<SecretCacheKey> {
+
+        private static final int HIGH = WireType.makeTag(1, WireType.WIRETYPE_FIXED64);
+        private static final int LOW = WireType.makeTag(2, WireType.WIRETYPE_FIXED64);
+
+        @Override
+        public Class<SecretCacheKey> getJavaClass() {
+            return SecretCacheKey.class;
+        }
+
+        @Override
+        public String getTypeName() {
+            return PACKAGE + "SecretCacheKey";
+        }
+
+        @Override
+        public SecretCacheKey read(ReadContext ctx) throws IOException {
+            TagReader in = ctx.getReader();
+            long high = 0;
+            long low = 0;
+            for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+                if (tag == HIGH) {
+                    high = in.readFixed64();
+                } else if (tag == LOW) {
+                    low = in.readFixed64();
+                } else if (!in.skipField(tag)) {
+                    break;
+                }
+            }
+            return new SecretCacheKey(high, low);
+        }
+
+        @Override
+        public void write(WriteContext ctx, SecretCacheKey key) throws IOException {
+            TagWriter out = ctx.getWriter();
+            out.writeFixed64(1, key.getHigh());
+            out.writeFixed64(2, key.getLow());
+        }
+    }
+
+    static final class EntryMarshaller implements ProtobufTagMarshaller<SecretCacheEntry> {
+
+        private static final int VALUE = WireType.makeTag(1, WireType.WIRETYPE_LENGTH_DELIMITED);
+        private static final int FETCHED_AT = WireType.makeTag(2, WireType.WIRETYPE_VARINT);
+        private static final int LEASE_TTL = WireType.makeTag(3, WireType.WIRETYPE_VARINT);
+        private static final int KV_VERSION = WireType.makeTag(4, WireType.WIRETYPE_VARINT);
+        private static final int NEGATIVE = WireType.makeTag(5, WireType.WIRETYPE_VARINT);
+
+        @Override
+        public Class<SecretCacheEntry> getJavaClass() {
+            return SecretCacheEntry.class;
+        }
+
+        @Override
+        public String getTypeName() {
+            return PACKAGE + "SecretCacheEntry";
+        }
+
+        @Override
+        public SecretCacheEntry read(ReadContext ctx) throws IOException {
+            TagReader in = ctx.getReader();
+            byte[] value = null;
+            long fetchedAt = 0;
+            long leaseTtl = 0;
+            int kvVersion = 0;
+            boolean negative = false;
+            for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+                if (tag == VALUE) {
+                    value = in.readByteArray();
+                } else if (tag == FETCHED_AT) {
+                    fetchedAt = in.readInt64();
+                } else if (tag == LEASE_TTL) {
+                    leaseTtl = in.readInt64();
+                } else if (tag == KV_VERSION) {
+                    kvVersion = in.readInt32();
+                } else if (tag == NEGATIVE) {
+                    negative = in.readBool();
+                } else if (!in.skipField(tag)) {
+                    break;
+                }
+            }
+            return new SecretCacheEntry(value, fetchedAt, leaseTtl, kvVersion, negative);
+        }
+
+        @Override
+        public void write(WriteContext ctx, SecretCacheEntry entry) throws IOException {
+            TagWriter out = ctx.getWriter();
+            if (entry.getValue().length > 0) {
+                out.writeBytes(1, entry.getValue());
+            }
+            if (entry.getFetchedAt() != 0) {
+                out.writeInt64(2, entry.getFetchedAt());
+            }
+            if (entry.getLeaseTtl() != 0) {
+                out.writeInt64(3, entry.getLeaseTtl());
+            }
+            if (entry.getKvVersion() != 0) {
+                out.writeInt32(4, entry.getKvVersion());
+            }
+            if (entry.isNegative()) {
+                out.writeBool(5, true);
+            }
+        }
+    }
+
+    static final class ChangeEventMarshaller implements ProtobufTagMarshaller<SecretChangeEvent> {
+
+        private static final int REALM_ID = WireType.makeTag(1, WireType.WIRETYPE_LENGTH_DELIMITED);
+        private static final int ID = WireType.makeTag(2, WireType.WIRETYPE_LENGTH_DELIMITED);
+        private static final int DELETED = WireType.makeTag(3, WireType.WIRETYPE_VARINT);
+        private static final int PATH = WireType.makeTag(4, WireType.WIRETYPE_LENGTH_DELIMITED);
+        private static final int ORIGIN = WireType.makeTag(5, WireType.WIRETYPE_LENGTH_DELIMITED);
+        private static final int SEQUENCE = WireType.makeTag(6, WireType.WIRETYPE_VARINT);
+
+        @Override
+        public Class<SecretChangeEvent> getJavaClass() {
+            return SecretChangeEvent.class;
+        }
+
+        @Override
+        public String getTypeName() {
+            return PACKAGE + "SecretChangeEvent";
+        }
+
+        @Override
+        public SecretChangeEvent read(ReadContext ctx) throws IOException {
+            TagReader in = ctx.getReader();
+            String realmId = "";
+            String path = "";
+            String id = "";
+            boolean deleted = false;
+            String origin = "";
+            long sequence = 0;
+            for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+                if (tag == REALM_ID) {
+                    realmId = in.readString();
+                } else if (tag == ID) {
+                    id = in.readString();
+                } else if (tag == DELETED) {
+                    deleted = in.readBool();
+                } else if (tag == PATH) {
+                    path = in.readString();
+                } else if (tag == ORIGIN) {
+                    origin = in.readString();
+                } else if (tag == SEQUENCE) {
+                    sequence = in.readInt64();
+                } else if (!in.skipField(tag)) {
+                    break;
+                }
+            }
+            return new SecretChangeEvent(realmId, path, id, deleted, origin, sequence);
+        }
+
+        @Override
+        public void write(WriteContext ctx, SecretChangeEvent event) throws IOException {
+            TagWriter out = ctx.getWriter();
+            out.writeString(1, event.getRealmId());
+            out.writeString(2, event.getId());
+            if (event.isDeleted()) {
+                out.writeBool(3, true);
+            }
+            out.writeString(4, event.getPath());
+            if (event.getOrigin() != null) {
+                out.writeString(5, event.getOrigin());
+                out.writeInt64(6, event.getSequence());
+            }
+        }
+    }
+}
@@ -9,43 +9,70 @@
 
 package io.github.nordix.keycloak.services.secretsmanager;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.jboss.logging.Logger;
 import org.keycloak.Config.Scope;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.provider.ServerInfoAwareProviderFactory;
 import org.keycloak.services.resources.admin.ext.AdminRealmResourceProvider;
 import org.keycloak.services.resources.admin.ext.AdminRealmResourceProviderFactory;
 
+import io.github.nordix.baoclient.CircuitBreaker;
+import io.github.nordix.keycloak.common.BaoClientFactory;
 import io.github.nordix.keycloak.common.ProviderConfig;
+import io.github.nordix.keycloak.common.SecretChangeFeed;
+import io.github.nordix.keycloak.common.SecretListCache;
+import io.github.nordix.keycloak.common.SecretsCache;
 
-public class SecretsManagerProviderFactory implements AdminRealmResourceProviderFactory {
+public class SecretsManagerProviderFactory implements AdminRealmResourceProviderFactory, ServerInfoAwareProviderFactory {
 
     private static Logger logger = Logger.getLogger(SecretsManagerProviderFactory.class);
     private static final String PROVIDER_ID = "secrets-manager";
     private static final String CMD_LINE_OPTION_PREFIX = "--spi-admin-realm-restapi-extension--secrets-manager--";
 
+    /**
+     * Number of recent secret changes kept for watchers.
+     */
+    private static final int CHANGE_FEED_CAPACITY = 10000;
+
     private ProviderConfig config;
+    private BaoClientFactory clientFactory;
+    private SecretListCache listCache;
+    private SecretChangeFeed changeFeed;
 
     @Override
     public void init(Scope scopedConfig) {
         config = new ProviderConfig(scopedConfig, CMD_LINE_OPTION_PREFIX);
         logger.debugv("Initializing secrets-manager with {0}", config);
+        if (config.getEtagSecret() == null) {
+            logger.info(CMD_LINE_OPTION_PREFIX + "etag-secret is not set, ETags of secrets differ between Keycloak nodes");
+        }
+        clientFactory = new BaoClientFactory(config, PROVIDER_ID);
+        listCache = new SecretListCache(config.getListCacheTtl());
+        changeFeed = new SecretChangeFeed(CHANGE_FEED_CAPACITY);
     }
 
     @Override
     public AdminRealmResourceProvider create(KeycloakSession session) {
         logger.debug("Creating SecretManagerProvider");
-        return new SecretsManagerProviderCompat(config);
+        return new SecretsManagerProviderCompat(config, clientFactory, listCache, changeFeed);
     }
 
     @Override
     public void postInit(KeycloakSessionFactory factory) {
-        // Intentionally left empty.
+        SecretsCache.registerSchema(factory, config);
+        changeFeed.register(factory);
+        listCache.register(factory);
     }
 
     @Override
     public void close() {
-        // Intentionally left empty.
+        if (clientFactory != null) {
+            clientFactory.close();
+        }
     }
 
     @Override
@@ -53,4 +80,16 @@ public class SecretsManagerProviderFactory implements AdminRealmResourceProvider
         return PROVIDER_ID;
     }
 
+    /**
+     * Shown in the provider info of the admin console.
+     */
+    @Override
+    public Map<String, String> getOperationalInfo() {
+        Map<String, String> info = new LinkedHashMap<>();
+        info.put("address", config.getAddresses().toString());
+        CircuitBreaker.State state = clientFactory.getCircuitBreakerState();
+        info.put("circuit-breaker", state != null ? state.toString() : "DISABLED");
+        return info;
+    }
+
 }
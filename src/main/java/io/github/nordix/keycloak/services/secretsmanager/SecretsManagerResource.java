@@ -9,10 +9,38 @@
 
 package io.github.nordix.keycloak.services.secretsmanager;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.regex.Pattern;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
@@ -22,26 +50,48 @@ import org.eclipse.microprofile.openapi.annotations.parameters.RequestBody;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.jboss.logging.Logger;
-import org.keycloak.connections.infinispan.InfinispanConnectionProvider;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
+import org.keycloak.representations.idm.ErrorRepresentation;
 import org.keycloak.services.ErrorResponse;
+import org.keycloak.services.ErrorResponseException;
 import org.keycloak.services.resources.admin.AdminEventBuilder;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.github.nordix.baoclient.BaoClient;
+import io.github.nordix.baoclient.ConcurrencyLimiter;
+import io.github.nordix.baoclient.RestClient;
+import io.github.nordix.keycloak.common.BaoClientFactory;
 import io.github.nordix.keycloak.common.ProviderConfig;
+import io.github.nordix.keycloak.common.SecretCacheEntry;
+import io.github.nordix.keycloak.common.SecretCacheKey;
+import io.github.nordix.keycloak.common.SecretChangeEvent;
+import io.github.nordix.keycloak.common.SecretChangeFeed;
+import io.github.nordix.keycloak.common.SecretListCache;
+import io.github.nordix.keycloak.common.SecretsCache;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
 @Tag(name = "Secrets Manager")
 @Produces(MediaType.APPLICATION_JSON)
@@ -75,77 +125,420 @@ abstract public class SecretsManagerResource {
      */
     private static final String SECRET_ID_REGEX = "^[a-zA-Z0-9_.-]+$";
 
+    /**
+     * Secret IDs that are used as paths of batch and other operations, and cannot be used for secrets.
+     */
+    private static final Set<String> RESERVED_SECRET_IDS = Set.of("_batch-get", "_batch-write", "_export",
+            "_import", "_sync", "_watch");
+
+    /**
+     * Maximum number of secrets in a batch request.
+     */
+    private static final int MAX_BATCH_SIZE = 100;
+
+    /**
+     * Maximum number of requests that a batch request sends to OpenBao/HashiCorp Vault concurrently.
+     */
+    private static final int BATCH_PARALLELISM = 8;
+
+    /**
+     * Maximum number of secrets in the desired state of a sync request.
+     */
+    private static final int MAX_SYNC_SIZE = 10000;
+
+    /**
+     * Default and maximum time in milliseconds that a watch request waits for changes.
+     */
+    private static final long DEFAULT_WATCH_TIMEOUT = 30000;
+    private static final long MAX_WATCH_TIMEOUT = 60000;
+
+    /**
+     * Maximum number of changes returned by a watch request.
+     */
+    private static final int MAX_WATCH_CHANGES = 1000;
+
+    /**
+     * Media type of export and import: one JSON object per line.
+     */
+    static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    /**
+     * Maximum length of a line in an import. Longer lines are reported as errors without parsing them.
+     */
+    private static final int MAX_IMPORT_LINE_LENGTH = 64 * 1024;
+
+    /**
+     * Maximum number of errors reported in detail in the response of an import.
+     */
+    private static final int MAX_IMPORT_ERRORS = 100;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String HMAC_SHA256 = "HmacSHA256";
+    private static final byte[] ETAG_KEY_SALT = "secrets-manager-etag".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Secret from which the keys of the secret ETags are derived if {@code etag-secret} is not configured.
+     */
+    private static final byte[] NODE_ETAG_SECRET = newRandomSecret();
+
+    private final KeycloakSession session;
     private final RealmModel realm;
     private final ProviderConfig providerConfig;
+    private final BaoClientFactory clientFactory;
     private BaoClient baoClient;
     private final String resolvedRealmPathPrefix;
-    private final KeycloakSession session;
+    private final SecretsCache secretsCache;
+    private final SecretListCache listCache;
+    private final SecretChangeFeed changeFeed;
 
     public SecretsManagerResource(KeycloakSession session,
             RealmModel realm,
             AdminEventBuilder adminEvent,
-            ProviderConfig providerConfig) {
+            ProviderConfig providerConfig,
+            BaoClientFactory clientFactory,
+            SecretListCache listCache,
+            SecretChangeFeed changeFeed) {
         logger.debugv("Creating SecretResource for session: {0}, realm: {1}", session, realm.getName());
+        this.session = session;
         this.realm = realm;
         this.providerConfig = providerConfig;
+        this.clientFactory = clientFactory;
         this.resolvedRealmPathPrefix = providerConfig.getKvPathPrefix().replace("%realm%", realm.getName());
-        this.session = session;
+        this.secretsCache = SecretsCache.create(session, providerConfig);
+        this.listCache = listCache;
+        this.changeFeed = changeFeed;
     }
 
     @GET
     @Path("")
-    @Operation(summary = "List all secrets", description = "Returns a list of all secret IDs for the realm.")
+    @Operation(summary = "List all secrets", description = "Returns a sorted list of the secret IDs for the realm, optionally filtered and paginated. The list is read from a snapshot that is refreshed every few seconds, so that paging through it or polling it does not list the secrets again for each request. The response has an ETag, and a request with a matching If-None-Match header returns 304 Not Modified. Subfolders are listed as IDs ending with '/', unless recursive listing is requested.")
     @APIResponse(responseCode = "200", description = "List of secrets", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = SecretsListResponse.class)))
+    @APIResponse(responseCode = "304", description = "The list has not changed since the response with the ETag given in If-None-Match")
+    @APIResponse(responseCode = "400", description = "Bad request, e.g., negative first or max, or pagination with recursive listing")
     @APIResponse(responseCode = "500", description = "Internal server error")
-    public Response listSecrets() {
+    public Response listSecrets(
+            @Parameter(description = "Index of the first secret ID to return, in the sorted and filtered list.", required = false, example = "0") @Schema(defaultValue = "0", minimum = "0") @QueryParam("first") Integer first,
+            @Parameter(description = "Maximum number of secret IDs to return. By default all are returned.", required = false, example = "100") @Schema(minimum = "1") @QueryParam("max") Integer max,
+            @Parameter(description = "Return only secret IDs that match the glob pattern, where '*' matches any characters and '?' matches one character. A prefix is matched with 'prefix*'.", required = false, example = "ldap.*") @QueryParam("filter") String filter,
+            @Parameter(description = "List the secrets in subfolders as well, with IDs prefixed with the path of the subfolder, e.g. 'my-app/secret-id-1'. The subfolders are listed concurrently and the IDs are streamed in the order they are found, so first and max cannot be used.", required = false, example = "true") @Schema(defaultValue = "false") @QueryParam("recursive") boolean recursive,
+            @Parameter(description = "ETag of a previous response with the same query parameters. If the list has not changed, 304 Not Modified is returned without a body. Not used with recursive listing.", required = false) @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
 
         authorizeRequest();
 
-        initializeBaoClient();
+        if ((first != null && first < 0) || (max != null && max < 1)) {
+            throw ErrorResponse.error("first must not be negative and max must be positive",
+                    Response.Status.BAD_REQUEST);
+        }
+
+        if (recursive) {
+            if (first != null || max != null) {
+                throw ErrorResponse.error("first and max cannot be used with recursive listing",
+                        Response.Status.BAD_REQUEST);
+            }
+
+            initializeBaoClient();
+
+            logger.debugv("Listing secrets recursively for realm {0}, filter {1}", realm.getName(), filter);
+
+            Pattern pattern = filter != null && !filter.isEmpty() ? globToPattern(filter) : null;
+            StreamingOutput output = out -> listSecretsRecursively(pattern, out);
+            return Response.ok(output, MediaType.APPLICATION_JSON).build();
+        }
 
-        logger.debugv("Listing all secrets for realm {0}", realm.getName());
+        logger.debugv("Listing secrets for realm {0}, first {1}, max {2}, filter {3}", realm.getName(), first, max,
+                filter);
 
         try {
-            List<String> secretKeys = baoClient.kv1ListKeys(providerConfig.getKvMount(), resolvedRealmPathPrefix);
-            return Response.ok(new SecretsListResponse(secretKeys)).build();
+            SecretListCache.Snapshot snapshot = listCache.get(resolvedRealmPathPrefix, () -> {
+                initializeBaoClient();
+                return baoClient.kv1ListKeys(providerConfig.getKvMount(), resolvedRealmPathPrefix);
+            });
+            EntityTag etag = listETag(snapshot, first, max, filter);
+            if (matchesETag(ifNoneMatch, etag)) {
+                return Response.notModified(etag).build();
+            }
+            List<String> secretIds = snapshot.getIds();
+            if (filter != null && !filter.isEmpty()) {
+                secretIds = filterSecretIds(secretIds, filter);
+            }
+            int total = secretIds.size();
+            int from = first != null ? Math.min(first, total) : 0;
+            int to = max != null ? (int) Math.min((long) from + max, total) : total;
+            // Sublists are views of the shared snapshot, so the IDs are not copied for each page.
+            return Response.ok(new SecretsListResponse(secretIds.subList(from, to), total)).tag(etag).build();
         } catch (BaoClient.BaoClientException e) {
             logger.errorv(e, "Error listing secrets for realm {0}", realm.getName());
             throw ErrorResponse.error("Error listing secrets", Response.Status.INTERNAL_SERVER_ERROR);
         }
     }
 
+    /**
+     * Returns the entity tag of a list response, which depends on the listed IDs and on the query parameters.
+     */
+    private static EntityTag listETag(SecretListCache.Snapshot snapshot, Integer first, Integer max,
+            String filter) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        String input = snapshot.getDigest() + "\n" + first + "\n" + max + "\n" + filter;
+        byte[] digest = sha256.digest(input.getBytes(StandardCharsets.UTF_8));
+        // Half of the digest is enough to tell versions of the list apart.
+        return new EntityTag(HexFormat.of().formatHex(digest, 0, 16));
+    }
+
+    /**
+     * Returns the entity tag of a secret, a keyed hash of the secret ID and value, so that the tag cannot be used
+     * to test guesses of the value without the key. The key is dedicated to ETags and derived per realm from the
+     * {@code etag-secret} of the provider, so that all Keycloak nodes return the same tag for the same value.
+     */
+    private EntityTag secretETag(String id, String value) {
+        try {
+            Mac hmac = Mac.getInstance(HMAC_SHA256);
+            hmac.init(etagKey());
+            hmac.update((id + "\n").getBytes(StandardCharsets.UTF_8));
+            byte[] digest = hmac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+            return new EntityTag(HexFormat.of().formatHex(digest, 0, 16));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to compute ETag", e);
+        }
+    }
+
+    /**
+     * Returns the ETag key of the realm, derived with HKDF-SHA256 (RFC 5869) from the {@code etag-secret} of the
+     * provider, or from a random secret of this Keycloak node if none is configured.
+     */
+    private SecretKey etagKey() throws GeneralSecurityException {
+        String configured = providerConfig.getEtagSecret();
+        byte[] secret = configured != null ? configured.getBytes(StandardCharsets.UTF_8) : NODE_ETAG_SECRET;
+
+        // Extract
+        Mac hmac = Mac.getInstance(HMAC_SHA256);
+        hmac.init(new SecretKeySpec(ETAG_KEY_SALT, HMAC_SHA256));
+        byte[] prk = hmac.doFinal(secret);
+
+        // Expand, a single block for a 256-bit key
+        hmac.init(new SecretKeySpec(prk, HMAC_SHA256));
+        hmac.update(realm.getId().getBytes(StandardCharsets.UTF_8));
+        return new SecretKeySpec(hmac.doFinal(new byte[] { 1 }), HMAC_SHA256);
+    }
+
+    private static byte[] newRandomSecret() {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        return secret;
+    }
+
+    /**
+     * Returns true if the If-None-Match header lists the entity tag. Weak tags match as well, since the list
+     * does not depend on the representation.
+     */
+    private static boolean matchesETag(String ifNoneMatch, EntityTag etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String quoted = "\"" + etag.getValue() + "\"";
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(quoted)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the IDs in the sorted list that match the glob pattern. The IDs that start with the literal prefix
+     * of the pattern are found with binary search, so a prefix filter does not scan the whole list.
+     */
+    static List<String> filterSecretIds(List<String> sortedIds, String glob) {
+        int wildcard = 0;
+        while (wildcard < glob.length() && glob.charAt(wildcard) != '*' && glob.charAt(wildcard) != '?') {
+            wildcard++;
+        }
+        String prefix = glob.substring(0, wildcard);
+
+        int start = Collections.binarySearch(sortedIds, prefix);
+        start = start >= 0 ? start : -start - 1;
+        int end = start;
+        while (end < sortedIds.size() && sortedIds.get(end).startsWith(prefix)) {
+            end++;
+        }
+        if (wildcard == glob.length()) {
+            // No wildcards: the pattern matches the ID itself only.
+            return end > start && sortedIds.get(start).equals(glob) ? sortedIds.subList(start, start + 1)
+                    : List.of();
+        }
+        if (wildcard == glob.length() - 1 && glob.charAt(wildcard) == '*') {
+            return sortedIds.subList(start, end);
+        }
+
+        Pattern pattern = globToPattern(glob);
+        List<String> matching = new ArrayList<>();
+        for (String id : sortedIds.subList(start, end)) {
+            if (pattern.matcher(id).matches()) {
+                matching.add(id);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Writes the IDs of the secrets in the realm's folder and its subfolders as a {@link SecretsListResponse}.
+     * The IDs of a folder are written as soon as the folder has been listed, and at most
+     * {@link #BATCH_PARALLELISM} folders are listed at a time.
+     *
+     * @param pattern the IDs to write, or null to write all IDs
+     */
+    private void listSecretsRecursively(Pattern pattern, OutputStream out) throws IOException {
+        CompletionService<List<String>> listings = new ExecutorCompletionService<>(clientFactory.getExecutor());
+        Set<Future<List<String>>> running = new HashSet<>();
+        ArrayDeque<String> folders = new ArrayDeque<>();
+        folders.add("");
+        int total = 0;
+        JsonGenerator json = OBJECT_MAPPER.getFactory().createGenerator(out);
+        try {
+            json.writeStartObject();
+            json.writeArrayFieldStart("secret_ids");
+            while (!folders.isEmpty() || !running.isEmpty()) {
+                while (!folders.isEmpty() && running.size() < BATCH_PARALLELISM) {
+                    String folder = folders.remove();
+                    running.add(listings.submit(() -> listFolder(folder)));
+                }
+                Future<List<String>> listing = listings.take();
+                running.remove(listing);
+                for (String id : listing.get()) {
+                    if (id.endsWith("/")) {
+                        folders.add(id);
+                    } else if (pattern == null || pattern.matcher(id).matches()) {
+                        json.writeString(id);
+                        total++;
+                    }
+                }
+                json.flush();
+            }
+            json.writeEndArray();
+            json.writeNumberField("total", total);
+            json.writeEndObject();
+            json.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while listing secrets", e);
+        } catch (ExecutionException e) {
+            // The status has already been sent, aborting the response tells the client that the list is incomplete.
+            logger.errorv(e.getCause(), "Aborting recursive listing of secrets for realm {0} after {1} secrets",
+                    realm.getName(), total);
+            throw new IOException("Error listing secrets", e.getCause());
+        } finally {
+            running.forEach(future -> future.cancel(true));
+        }
+        logger.debugv("Listed {0} secrets recursively for realm {1}", total, realm.getName());
+    }
+
+    /**
+     * Lists one folder under the realm's folder.
+     *
+     * @param folder the path of the folder relative to the realm's folder, ending with '/', or empty for the
+     *               realm's folder itself
+     * @return the IDs and subfolders in the folder, prefixed with the folder path
+     */
+    private List<String> listFolder(String folder) {
+        String path = folder.isEmpty() ? resolvedRealmPathPrefix
+                : resolvedRealmPathPrefix + "/" + folder.substring(0, folder.length() - 1);
+        List<String> ids = new ArrayList<>();
+        for (String key : baoClient.kv1ListKeys(providerConfig.getKvMount(), path)) {
+            ids.add(folder + key);
+        }
+        return ids;
+    }
+
+    private static Pattern globToPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (!literal.isEmpty()) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (!literal.isEmpty()) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
     @GET
     @Path("{id}")
-    @Operation(summary = "Get a secret", description = "Retrieves a secret by its ID.")
+    @Operation(summary = "Get a secret", description = "Retrieves a secret by its ID. The response has an ETag that changes when the secret value changes, and a request with a matching If-None-Match header returns 304 Not Modified. If the secret was read into the secrets cache within list-cache-ttl, the If-None-Match header is checked without contacting OpenBao/HashiCorp Vault.")
     @APIResponse(responseCode = "200", description = "Secret found", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = SecretResponse.class)))
+    @APIResponse(responseCode = "304", description = "The secret has not changed since the response with the ETag given in If-None-Match")
     @APIResponse(responseCode = "404", description = "Secret not found")
     @APIResponse(responseCode = "400", description = "Bad request, e.g., invalid ID format")
     @APIResponse(responseCode = "500", description = "Internal server error")
     public Response getSecret(
             @Parameter(description = "The ID of the secret to retrieve. Must match regular expression "
                     + SECRET_ID_REGEX
-                    + " and must exist.", required = true) @PathParam("id") String id) {
+                    + " and must exist.", required = true) @PathParam("id") String id,
+            @Parameter(description = "ETag of a previous response. If the secret value has not changed, 304 Not Modified is returned without a body.", required = false) @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
 
         authorizeRequest();
 
-        initializeBaoClient();
-
         logger.debugv("Retrieving secret with ID: {0} in realm {1}", id, realm.getName());
 
         validateSecretIdFormat(id);
 
+        String fullPath = fullPathToSecret(id);
+        SecretCacheKey cacheKey = SecretCacheKey.of(fullPath, SECRET_FIELD_NAME);
+
+        // A client polling for changes is answered from the cache only if the secret was read from OpenBao/HashiCorp
+        // Vault recently, so that changes made there directly are detected within list-cache-ttl.
+        if (ifNoneMatch != null && secretsCache != null) {
+            SecretCacheEntry cached = secretsCache.get(cacheKey);
+            if (cached != null && isFresh(cached)) {
+                EntityTag etag = secretETag(id, cached.getValueAsString());
+                if (matchesETag(ifNoneMatch, etag)) {
+                    logger.debugv("Secret with ID: {0} in realm {1} not modified (cache hit)", id, realm.getName());
+                    return Response.notModified(etag).build();
+                }
+            }
+        }
+
+        initializeBaoClient();
+
         try {
-            Map<String, String> response = baoClient.kv1Get(providerConfig.getKvMount(), fullPathToSecret(id));
-            String secret = response.get(SECRET_FIELD_NAME);
+            long fetchStartedAt = secretsCache != null ? secretsCache.beginFetch(cacheKey) : 0;
+            BaoClient.KvSecret kvSecret = baoClient.kv1GetSecret(providerConfig.getKvMount(), fullPath);
+            String secret = kvSecret.getData().get(SECRET_FIELD_NAME);
 
             if (secret == null) {
                 logger.warnv("Secret with ID: {0} not found in realm {1}", id, realm.getName());
                 return Response.status(Response.Status.NOT_FOUND).entity("Secret not found.").build();
             }
 
+            if (secretsCache != null && !secret.isEmpty()) {
+                secretsCache.putFetched(cacheKey, SecretCacheEntry.of(secret, fetchStartedAt,
+                        kvSecret.getLeaseDuration(), kvSecret.getVersion()));
+            }
+
+            EntityTag etag = secretETag(id, secret);
+            if (matchesETag(ifNoneMatch, etag)) {
+                return Response.notModified(etag).build();
+            }
+
             SecretResponse secretResponse = new SecretResponse(id, secret);
 
-            return Response.ok(secretResponse).build();
+            return Response.ok(secretResponse).tag(etag).build();
 
         } catch (BaoClient.BaoClientException e) {
             if (e.getStatusCode() == 404) {
@@ -157,153 +550,818 @@ abstract public class SecretsManagerResource {
         }
     }
 
-    @PUT
-    @Path("{id}")
-    @Operation(summary = "Create or update a secret", description = "Creates a new secret or updates an existing secret. If a secret value is not provided in the request body, a random secret will be generated.")
-    @RequestBody(description = "Optional secret data. If not provided, a random secret will be generated.", required = false, content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = SecretRequest.class)))
-    @APIResponse(responseCode = "200", description = "Secret created or updated", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = SecretResponse.class)))
-    @APIResponse(responseCode = "400", description = "Bad request, e.g., invalid ID format")
+    /**
+     * Returns true if the cached secret was fetched from OpenBao/HashiCorp Vault within list-cache-ttl. Secrets
+     * stored by write-through and secrets without a lease are never fresh: they may have been changed directly in
+     * OpenBao/HashiCorp Vault since, and the lease does not bound how long ago they were read.
+     */
+    private boolean isFresh(SecretCacheEntry cached) {
+        return cached.getLeaseTtl() > 0
+                && System.currentTimeMillis() - cached.getFetchedAt() < providerConfig.getListCacheTtl();
+    }
+
+    @POST
+    @Path("_batch-get")
+    @Operation(summary = "Get multiple secrets", description = "Retrieves the secrets with the given IDs in one request. Secrets that cannot be retrieved are reported with an error per ID, the request itself succeeds.")
+    @RequestBody(description = "The IDs of the secrets to retrieve, at most " + MAX_BATCH_SIZE + ".", required = true, content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = BatchGetRequest.class)))
+    @APIResponse(responseCode = "200", description = "Secrets and per-ID errors", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = BatchGetResponse.class)))
+    @APIResponse(responseCode = "400", description = "Bad request, e.g., no IDs or too many IDs")
     @APIResponse(responseCode = "500", description = "Internal server error")
-    public Response updateSecret(
-            @Parameter(description = "The ID of the secret to update. Must match regular expression " + SECRET_ID_REGEX
-                    + ".", required = true) @PathParam("id") String id,
-            SecretRequest secretRequest,
-            @Parameter(description = "Number of characters in the generated random secret. Ignored if secret data is provided.", required = false, example = "32") @Schema(defaultValue = "60", minimum = "1", maximum = "2048") @QueryParam("length") Integer length,
-            @Parameter(description = "Character classes to use for random secret generation. Ignored if secret data is provided. Specify as comma-separated values: 'lower' (a-z), 'upper' (A-Z), 'digit' (0-9), 'special' ("
-                    + SECRET_CHAR_CLASS_SPECIAL
-                    + ")", required = false, example = "lower,upper") @Schema(defaultValue = "lower,upper,digit,special") @QueryParam("charset") String charset) {
+    public Response batchGetSecrets(BatchGetRequest batchGetRequest) {
 
         authorizeRequest();
 
-        initializeBaoClient();
-
-        logger.debugv("Creating/updating secret with ID: {0} in realm {1}", id, realm.getName());
+        if (batchGetRequest == null || batchGetRequest.getSecretIds() == null
+                || batchGetRequest.getSecretIds().isEmpty()) {
+            throw ErrorResponse.error("No secret IDs given", Response.Status.BAD_REQUEST);
+        }
+        Set<String> ids = new LinkedHashSet<>(batchGetRequest.getSecretIds());
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw ErrorResponse.error("At most " + MAX_BATCH_SIZE + " secret IDs can be given",
+                    Response.Status.BAD_REQUEST);
+        }
 
-        validateSecretIdFormat(id);
+        initializeBaoClient();
 
-        String secretValue;
-        if (secretRequest == null || secretRequest.getSecret() == null || secretRequest.getSecret().isEmpty()) {
-            logger.debugv(
-                    "No secret data provided, generating random secret for ID: {0} with length {1} and charset {2}", id,
-                    length, charset);
+        logger.debugv("Retrieving {0} secrets in realm {1}", ids.size(), realm.getName());
 
-            secretValue = createRandomSecretValue(length, charset);
-        } else {
-            secretValue = secretRequest.getSecret();
-        }
+        List<String> pending = new ArrayList<>(ids);
+        BatchResult[] results = new BatchResult[pending.size()];
+        runConcurrently(results.length, i -> results[i] = batchGet(pending.get(i)), "retrieving secrets");
 
-        try {
-            String fullPath = fullPathToSecret(id);
-            baoClient.kv1Upsert(providerConfig.getKvMount(), fullPath,
-                    Map.of(SECRET_FIELD_NAME, secretValue));
-            evictSecretCache(fullPath);
-            SecretResponse secretResponse = new SecretResponse(id, secretValue);
-            return Response.status(Response.Status.OK).entity(secretResponse).build();
-        } catch (BaoClient.BaoClientException e) {
-            if (e.getStatusCode() == 404) {
-                throw ErrorResponse.error("Secret not found", Response.Status.NOT_FOUND);
+        BatchGetResponse batchGetResponse = new BatchGetResponse();
+        for (BatchResult result : results) {
+            if (result.secret != null) {
+                batchGetResponse.getSecrets().add(result.secret);
             } else {
-                logger.errorv(e, "Error creating secret {0} for realm {1}", id, realm.getName());
-                throw ErrorResponse.error("Error updating secret", Response.Status.INTERNAL_SERVER_ERROR);
+                batchGetResponse.getErrors().add(result.error);
             }
         }
+        return Response.ok(batchGetResponse).build();
     }
 
-    @DELETE
-    @Path("{id}")
-    @Operation(summary = "Delete a secret", description = "Deletes a secret by its ID.")
-    @APIResponse(responseCode = "204", description = "Secret deleted successfully")
-    @APIResponse(responseCode = "400", description = "Bad request, e.g., invalid ID format")
+    @POST
+    @Path("_batch-write")
+    @Operation(summary = "Create, update or delete multiple secrets", description = "Applies the given operations in one request. The writes are sent to OpenBao/HashiCorp Vault concurrently, and each operation succeeds or fails on its own. Operations that fail are reported with an error per ID, the request itself succeeds.")
+    @RequestBody(description = "The operations to apply, at most " + MAX_BATCH_SIZE + ", with at most one operation per ID.", required = true, content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = BatchWriteRequest.class)))
+    @APIResponse(responseCode = "200", description = "Result of each operation", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = BatchWriteResponse.class)))
+    @APIResponse(responseCode = "400", description = "Bad request, e.g., no operations, too many operations or duplicate IDs")
     @APIResponse(responseCode = "500", description = "Internal server error")
-    public Response deleteSecret(
-            @Parameter(description = "The ID of the secret to delete. Must match the regular expression "
-                    + SECRET_ID_REGEX
-                    + ".", required = true) @PathParam("id") String id) {
+    public Response batchWriteSecrets(BatchWriteRequest batchWriteRequest) {
 
         authorizeRequest();
 
+        if (batchWriteRequest == null || batchWriteRequest.getOperations() == null
+                || batchWriteRequest.getOperations().isEmpty()) {
+            throw ErrorResponse.error("No operations given", Response.Status.BAD_REQUEST);
+        }
+        List<BatchWriteOperation> operations = batchWriteRequest.getOperations();
+        if (operations.size() > MAX_BATCH_SIZE) {
+            throw ErrorResponse.error("At most " + MAX_BATCH_SIZE + " operations can be given",
+                    Response.Status.BAD_REQUEST);
+        }
+        Set<String> ids = new HashSet<>();
+        for (BatchWriteOperation operation : operations) {
+            if (operation == null || !ids.add(operation.getId())) {
+                throw ErrorResponse.error("Each secret ID can be given only once", Response.Status.BAD_REQUEST);
+            }
+        }
+
         initializeBaoClient();
 
-        logger.debugv("Deleting secret with ID: {0} in realm {1}", id, realm.getName());
+        logger.debugv("Applying {0} secret operations in realm {1}", operations.size(), realm.getName());
 
-        validateSecretIdFormat(id);
+        BatchWriteResult[] results = new BatchWriteResult[operations.size()];
+        runConcurrently(results.length, i -> results[i] = batchWrite(operations.get(i)), "writing secrets");
+        updateSecretList(List.of(results));
+        updateSecretCache(List.of(results));
+        publishChanges(List.of(results));
 
-        try {
-            String fullPath = fullPathToSecret(id);
-            baoClient.kv1Delete(providerConfig.getKvMount(), fullPath);
-            evictSecretCache(fullPath);
-            return Response.noContent().build();
-        } catch (BaoClient.BaoClientException e) {
-            logger.errorv(e, "Error deleting secret {0} for realm {1}", id, realm.getName());
-            throw ErrorResponse.error("Error deleting secret", Response.Status.INTERNAL_SERVER_ERROR);
-        }
+        return Response.ok(new BatchWriteResponse(List.of(results))).build();
     }
 
-    /**
-     * Checks that requester is authorized to manage secrets.
-     * This method is implemented by concrete subclasses per Keycloak version (pre 26.3.x vs post 26.3.x).
-     */
-    protected abstract void authorizeRequest();
+    @POST
+    @Path("_sync")
+    @Operation(summary = "Sync secrets to a desired state", description = "Compares the given secrets with the current secrets concurrently, and writes only the secrets whose value differs. A secret can be given with its value, or with the SHA-256 hash of its value to check that it is current without sending the value. Optionally deletes the secrets that are not given. Returns a summary of the differences. Secrets that fail are reported with an error per ID, the request itself succeeds.")
+    @RequestBody(description = "The desired secrets, at most " + MAX_SYNC_SIZE + ", with at most one entry per ID.", required = true, content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = SyncRequest.class)))
+    @APIResponse(responseCode = "200", description = "Summary of the differences", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = SyncResponse.class)))
+    @APIResponse(responseCode = "400", description = "Bad request, e.g., too many secrets, duplicate IDs, entries without value or hash, or no secrets with prune but without allow_empty_prune")
+    @APIResponse(responseCode = "500", description = "Internal server error")
+    public Response syncSecrets(SyncRequest syncRequest) {
+
+        authorizeRequest();
+
+        if (syncRequest == null || syncRequest.getSecrets() == null) {
+            throw ErrorResponse.error("No secrets given", Response.Status.BAD_REQUEST);
+        }
+        List<SyncEntry> entries = syncRequest.getSecrets();
+        if (entries.isEmpty() && syncRequest.isPrune() && !syncRequest.isAllowEmptyPrune()) {
+            // Most likely a client that failed to build its desired state, not a request to delete everything.
+            throw ErrorResponse.error("No secrets given with prune, set allow_empty_prune to delete all secrets",
+                    Response.Status.BAD_REQUEST);
+        }
+        if (entries.size() > MAX_SYNC_SIZE) {
+            throw ErrorResponse.error("At most " + MAX_SYNC_SIZE + " secrets can be given",
+                    Response.Status.BAD_REQUEST);
+        }
+        Set<String> ids = new HashSet<>();
+        for (SyncEntry entry : entries) {
+            if (entry == null || !ids.add(entry.getId())) {
+                throw ErrorResponse.error("Each secret ID can be given only once", Response.Status.BAD_REQUEST);
+            }
+            boolean hasSecret = entry.getSecret() != null && !entry.getSecret().isEmpty();
+            if (hasSecret == (entry.getSha256() != null)) {
+                throw ErrorResponse.error("Either secret or sha256 must be given for secret " + entry.getId(),
+                        Response.Status.BAD_REQUEST);
+            }
+        }
+
+        initializeBaoClient();
+
+        logger.debugv("Syncing {0} secrets in realm {1}, prune {2}, dry run {3}", entries.size(), realm.getName(),
+                syncRequest.isPrune(), syncRequest.isDryRun());
+
+        // Listed before the writes, so that secrets created by this request are never pruned.
+        List<String> extra = new ArrayList<>();
+        if (syncRequest.isPrune()) {
+            try {
+                for (String id : baoClient.kv1ListKeys(providerConfig.getKvMount(), resolvedRealmPathPrefix)) {
+                    if (!id.endsWith("/") && !ids.contains(id)) {
+                        extra.add(id);
+                    }
+                }
+            } catch (BaoClient.BaoClientException e) {
+                logger.errorv(e, "Error listing secrets for realm {0}", realm.getName());
+                throw ErrorResponse.error("Error listing secrets", Response.Status.INTERNAL_SERVER_ERROR);
+            }
+        }
+
+        SyncResult[] results = new SyncResult[entries.size() + extra.size()];
+        runConcurrently(results.length, i -> results[i] = i < entries.size()
+                ? syncSecret(entries.get(i), syncRequest.isDryRun())
+                : pruneSecret(extra.get(i - entries.size()), syncRequest.isDryRun()),
+                "syncing secrets");
+
+        SyncResponse syncResponse = new SyncResponse(syncRequest.isDryRun());
+        List<BatchWriteResult> written = new ArrayList<>();
+        for (SyncResult result : results) {
+            syncResponse.add(result);
+            if (result.written != null && result.written.getError() == null) {
+                written.add(result.written);
+            }
+        }
+        updateSecretList(written);
+        updateSecretCache(written);
+        publishChanges(written);
+
+        return Response.ok(syncResponse).build();
+    }
 
     /**
-     * Login to OpenBao/HashiCorp Vault.
+     * Compares one desired secret with the current value and writes it if it differs, returning the error
+     * instead of throwing it.
      */
-    private void initializeBaoClient() {
-        this.baoClient = new BaoClient(providerConfig.getAddress());
-        if (providerConfig.getCaCertificateFile() != null && !providerConfig.getCaCertificateFile().isEmpty()) {
-            this.baoClient.withCaCertificateFile(providerConfig.getCaCertificateFile());
+    private SyncResult syncSecret(SyncEntry entry, boolean dryRun) {
+        String id = entry.getId();
+        if (id == null || !id.matches(SECRET_ID_REGEX) || RESERVED_SECRET_IDS.contains(id)) {
+            return SyncResult.error(id, Response.Status.BAD_REQUEST, "Invalid secret ID format");
         }
 
+        String current;
         try {
-            this.baoClient.loginWithKubernetes(providerConfig.getServiceAccountFile(), providerConfig.getRole());
-        } catch (IOException e) {
-            logger.errorv(e, "Failed to login to OpenBao/Vault using Kubernetes auth for realm {0}",
-                    realm.getName());
-            throw new RuntimeException("Failed to login to OpenBao/Vault using Kubernetes auth: " + e.getMessage(), e);
+            current = baoClient.kv1Get(providerConfig.getKvMount(), fullPathToSecret(id)).get(SECRET_FIELD_NAME);
+        } catch (BaoClient.BaoClientException e) {
+            if (e.getStatusCode() != 404) {
+                logger.errorv(e, "Error retrieving secret {0} for realm {1}", id, realm.getName());
+                return SyncResult.error(id, Response.Status.INTERNAL_SERVER_ERROR, "Error retrieving secret");
+            }
+            current = null;
+        } catch (RestClient.RestClientException e) {
+            logger.errorv(e, "Error retrieving secret {0} for realm {1}", id, realm.getName());
+            return SyncResult.error(id, Response.Status.SERVICE_UNAVAILABLE,
+                    "OpenBao/HashiCorp Vault is unavailable");
+        }
+
+        if (entry.getSha256() != null) {
+            // Without the value the secret cannot be written, only reported.
+            boolean same = current != null && MessageDigest.isEqual(sha256(current),
+                    entry.getSha256().toLowerCase().getBytes(StandardCharsets.US_ASCII));
+            return new SyncResult(id, same ? SyncResult.Change.UNCHANGED : SyncResult.Change.MISMATCHED, null);
+        }
+        if (current != null && MessageDigest.isEqual(current.getBytes(StandardCharsets.UTF_8),
+                entry.getSecret().getBytes(StandardCharsets.UTF_8))) {
+            return new SyncResult(id, SyncResult.Change.UNCHANGED, null);
+        }
+
+        SyncResult.Change change = current == null ? SyncResult.Change.CREATED : SyncResult.Change.UPDATED;
+        if (dryRun) {
+            return new SyncResult(id, change, null);
         }
+        BatchWriteOperation operation = new BatchWriteOperation();
+        operation.setId(id);
+        operation.setSecret(entry.getSecret());
+        return new SyncResult(id, change, batchWrite(operation));
     }
 
     /**
-     * Returns the full path to the secret for the given ID.
-     *
-     * @param id the secret ID
-     * @return the full path to the secret
+     * Deletes a secret that is not in the desired state, returning the error instead of throwing it.
      */
-    private String fullPathToSecret(String id) {
-        return resolvedRealmPathPrefix + "/" + id;
+    private SyncResult pruneSecret(String id, boolean dryRun) {
+        if (dryRun) {
+            return new SyncResult(id, SyncResult.Change.DELETED, null);
+        }
+        BatchWriteOperation operation = new BatchWriteOperation();
+        operation.setId(id);
+        operation.setAction(BatchWriteOperation.ACTION_DELETE);
+        return new SyncResult(id, SyncResult.Change.DELETED, batchWrite(operation));
     }
 
     /**
-     * Validates the format of the secret ID.
-     * Throws an error response if the format is invalid.
-     *
-     * @param id the secret ID
+     * Returns the hex encoded SHA-256 hash of the value, as ASCII bytes.
      */
-    private void validateSecretIdFormat(String id) {
-        if (!id.matches(SECRET_ID_REGEX)) {
-            logger.warnv("Invalid secret ID: {0}. Must match regex {1}", id, SECRET_ID_REGEX);
-            throw ErrorResponse.error("Invalid secret ID format. Must match regex " + SECRET_ID_REGEX,
-                    Response.Status.BAD_REQUEST);
+    private static byte[] sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest).getBytes(StandardCharsets.US_ASCII);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
     }
 
-    private void evictSecretCache(String fullPath) {
-        if (providerConfig.getCacheName() == null || providerConfig.getCacheName().isEmpty()) {
+    @GET
+    @Path("_watch")
+    @Operation(summary = "Watch secret changes", description = "Returns the secrets of the realm that were created, updated or deleted through the Secrets Manager after the cursor, waiting until there is at least one change or the timeout elapses. Without a cursor, returns the cursor of the current position immediately. The response does not contain secret values. The cursor can be continued on any Keycloak node. If the node may have missed changes after the cursor, e.g., because it was started after the cursor was created or too many changes have happened since, reset is true and the client must list the secrets again.")
+    @APIResponse(responseCode = "200", description = "Changes after the cursor, and the cursor to continue from", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = WatchResponse.class)))
+    @APIResponse(responseCode = "400", description = "Bad request, e.g., invalid timeout")
+    public void watchSecrets(
+            @Suspended AsyncResponse asyncResponse,
+            @Parameter(description = "Cursor returned by a previous watch request. If omitted, the current cursor is returned without waiting.", required = false) @QueryParam("cursor") String cursor,
+            @Parameter(description = "Maximum time in milliseconds to wait for changes.", required = false, example = "30000") @Schema(defaultValue = "" + DEFAULT_WATCH_TIMEOUT, minimum = "0", maximum = "" + MAX_WATCH_TIMEOUT) @QueryParam("timeout") Long timeout) {
+
+        authorizeRequest();
+
+        if (timeout != null && (timeout < 0 || timeout > MAX_WATCH_TIMEOUT)) {
+            throw ErrorResponse.error("timeout must be between 0 and " + MAX_WATCH_TIMEOUT,
+                    Response.Status.BAD_REQUEST);
+        }
+        if (cursor == null || cursor.isEmpty()) {
+            asyncResponse.resume(Response.ok(new WatchResponse(changeFeed.getCursor(), false, List.of())).build());
             return;
         }
 
-        String cacheKey = fullPath + ":" + SECRET_FIELD_NAME;
+        // The request does not hold a worker thread while waiting: the response is sent by the thread that appends
+        // the changes to the feed, or by the timeout handler.
+        SecretChangeFeed.Watch watch = changeFeed.watch(realm.getId(), cursor, MAX_WATCH_CHANGES,
+                changes -> asyncResponse.resume(toWatchResponse(changes)));
+        long waitMillis = timeout != null ? timeout : DEFAULT_WATCH_TIMEOUT;
+        if (waitMillis == 0) {
+            watch.timeout();
+            return;
+        }
+        asyncResponse.setTimeoutHandler(response -> watch.timeout());
+        asyncResponse.setTimeout(waitMillis, TimeUnit.MILLISECONDS);
+    }
 
-        logger.debugv("Evicting secret cache (key: {0})", cacheKey);
-        session.getProvider(InfinispanConnectionProvider.class)
-                .getCache(providerConfig.getCacheName()).remove(cacheKey);
+    private static Response toWatchResponse(SecretChangeFeed.Changes changes) {
+        List<SecretChange> events = new ArrayList<>();
+        for (SecretChangeEvent change : changes.getEvents()) {
+            events.add(new SecretChange(change.getId(),
+                    change.isDeleted() ? BatchWriteOperation.ACTION_DELETE : BatchWriteOperation.ACTION_UPSERT));
+        }
+        return Response.ok(new WatchResponse(changes.getCursor(), changes.isReset(), events)).build();
     }
 
-    /**
-     * Generate a random secret value of specified length and character set.
-     */
-    private static String createRandomSecretValue(Integer length, String charset) {
-        int secretLen = (length != null && length > 0) ? length : 60;
+    @GET
+    @Path("_export")
+    @Produces(APPLICATION_NDJSON)
+    @Operation(summary = "Export all secrets", description = "Streams all secrets of the realm as newline-delimited JSON, one object with the ID and value of a secret per line, sorted by ID. Secrets in subfolders are not exported. The secrets are fetched from OpenBao/HashiCorp Vault concurrently while the response is written. If a secret cannot be fetched, the response is aborted and the export is incomplete.")
+    @APIResponse(responseCode = "200", description = "The secrets, one per line", content = @Content(mediaType = APPLICATION_NDJSON, schema = @Schema(implementation = ExportedSecret.class)))
+    @APIResponse(responseCode = "500", description = "Internal server error")
+    public Response exportSecrets() {
+
+        authorizeRequest();
+
+        initializeBaoClient();
+
+        logger.debugv("Exporting secrets for realm {0}", realm.getName());
+
+        List<String> secretIds;
+        try {
+            secretIds = new ArrayList<>(baoClient.kv1ListKeys(providerConfig.getKvMount(), resolvedRealmPathPrefix));
+        } catch (BaoClient.BaoClientException e) {
+            logger.errorv(e, "Error listing secrets for realm {0}", realm.getName());
+            throw ErrorResponse.error("Error listing secrets", Response.Status.INTERNAL_SERVER_ERROR);
+        }
+        // Subfolders cannot be read as secrets, and their secrets cannot be imported through the API.
+        secretIds.removeIf(id -> id.endsWith("/"));
+        Collections.sort(secretIds);
+
+        StreamingOutput output = out -> exportSecrets(secretIds, out);
+        return Response.ok(output, APPLICATION_NDJSON).build();
+    }
+
+    /**
+     * Writes the secrets to the stream in the order of the IDs, with at most {@link #BATCH_PARALLELISM} secrets
+     * being fetched at a time. Secrets that were deleted after listing are skipped.
+     */
+    private void exportSecrets(List<String> secretIds, OutputStream out) throws IOException {
+        ArrayDeque<Future<BatchResult>> window = new ArrayDeque<>();
+        int next = 0;
+        int exported = 0;
+        try {
+            try {
+                while (next < secretIds.size() || !window.isEmpty()) {
+                    if (next < secretIds.size() && window.size() < BATCH_PARALLELISM) {
+                        String id = secretIds.get(next++);
+                        window.add(clientFactory.getExecutor().submit(() -> batchGet(id)));
+                        continue;
+                    }
+                    BatchResult result = window.remove().get();
+                    if (result.secret != null) {
+                        out.write(OBJECT_MAPPER.writeValueAsBytes(
+                                new ExportedSecret(result.secret.getId(), result.secret.getSecret())));
+                        out.write('\n');
+                        exported++;
+                    } else if (result.error.getStatus() != Response.Status.NOT_FOUND.getStatusCode()) {
+                        throw new IOException("Error exporting secret " + result.error.getId() + ": "
+                                + result.error.getError());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while exporting secrets", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Error exporting secrets", e.getCause());
+            }
+        } catch (IOException e) {
+            // The status has already been sent, aborting the response tells the client that the export is incomplete.
+            logger.errorv(e, "Aborting export of secrets for realm {0} after {1} secrets", realm.getName(), exported);
+            throw e;
+        } finally {
+            window.forEach(future -> future.cancel(true));
+        }
+        logger.debugv("Exported {0} secrets for realm {1}", exported, realm.getName());
+    }
+
+    @POST
+    @Path("_import")
+    @Consumes(APPLICATION_NDJSON)
+    @Operation(summary = "Import secrets", description = "Creates or updates the secrets in a newline-delimited JSON stream, in the format of the export. The request body is read as it arrives, and the secrets are written to OpenBao/HashiCorp Vault concurrently. Lines that cannot be imported are reported with an error per line, the request itself succeeds. If an ID appears on several lines, the last line wins.")
+    @RequestBody(description = "The secrets, one JSON object with the ID and value of a secret per line.", required = true, content = @Content(mediaType = APPLICATION_NDJSON, schema = @Schema(implementation = ExportedSecret.class)))
+    @APIResponse(responseCode = "200", description = "Number of imported secrets and per-line errors", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = ImportResponse.class)))
+    @APIResponse(responseCode = "400", description = "Bad request, e.g., the request body cannot be read")
+    @APIResponse(responseCode = "500", description = "Internal server error")
+    public Response importSecrets(InputStream body) {
+
+        authorizeRequest();
+
+        if (body == null) {
+            throw ErrorResponse.error("No secrets given", Response.Status.BAD_REQUEST);
+        }
+
+        initializeBaoClient();
+
+        logger.debugv("Importing secrets in realm {0}", realm.getName());
+
+        ImportResponse importResponse = new ImportResponse();
+        ArrayDeque<PendingImport> window = new ArrayDeque<>();
+        Set<String> inFlight = new HashSet<>();
+        List<BatchWriteResult> written = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        try {
+            int lineNumber = 0;
+            for (String line = readLine(reader, MAX_IMPORT_LINE_LENGTH); line != null; line = readLine(reader,
+                    MAX_IMPORT_LINE_LENGTH)) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (line.length() > MAX_IMPORT_LINE_LENGTH) {
+                    importResponse.add(lineNumber, BatchWriteResult.error(null, Response.Status.BAD_REQUEST,
+                            "Line is longer than " + MAX_IMPORT_LINE_LENGTH + " characters"));
+                    continue;
+                }
+                ExportedSecret secret;
+                try {
+                    secret = OBJECT_MAPPER.readValue(line, ExportedSecret.class);
+                } catch (JsonProcessingException e) {
+                    importResponse.add(lineNumber,
+                            BatchWriteResult.error(null, Response.Status.BAD_REQUEST, "Invalid JSON"));
+                    continue;
+                }
+                if (secret.getSecret() == null || secret.getSecret().isEmpty()) {
+                    importResponse.add(lineNumber,
+                            BatchWriteResult.error(secret.getId(), Response.Status.BAD_REQUEST, "No secret value"));
+                    continue;
+                }
+
+                // Writes of the same ID are not sent concurrently, so that the last line for an ID wins.
+                while (window.size() >= BATCH_PARALLELISM
+                        || (!window.isEmpty() && inFlight.contains(secret.getId()))) {
+                    finishImport(window.remove(), importResponse, inFlight, written);
+                }
+                BatchWriteOperation operation = new BatchWriteOperation();
+                operation.setId(secret.getId());
+                operation.setSecret(secret.getSecret());
+                inFlight.add(secret.getId());
+                window.add(new PendingImport(lineNumber, secret.getId(),
+                        clientFactory.getExecutor().submit(() -> batchWrite(operation))));
+            }
+            while (!window.isEmpty()) {
+                finishImport(window.remove(), importResponse, inFlight, written);
+            }
+        } catch (IOException e) {
+            logger.errorv(e, "Error reading secrets to import for realm {0}", realm.getName());
+            throw ErrorResponse.error("Error reading request body", Response.Status.BAD_REQUEST);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw ErrorResponse.error("Interrupted while importing secrets", Response.Status.INTERNAL_SERVER_ERROR);
+        } catch (ExecutionException e) {
+            logger.errorv(e.getCause(), "Error importing secrets for realm {0}", realm.getName());
+            throw ErrorResponse.error("Error importing secrets", Response.Status.INTERNAL_SERVER_ERROR);
+        } finally {
+            window.forEach(pending -> pending.result.cancel(true));
+            listCache.invalidate(resolvedRealmPathPrefix);
+            updateSecretCache(written);
+            publishChanges(written);
+        }
+
+        logger.debugv("Imported {0} secrets in realm {1}, {2} failed", importResponse.getImported(),
+                realm.getName(), importResponse.getFailed());
+        return Response.ok(importResponse).build();
+    }
+
+    /**
+     * Waits for the write of one imported secret and records the result. The cache is updated for every
+     * {@link #MAX_BATCH_SIZE} written secrets, so that the written values are not held until the import ends.
+     */
+    private void finishImport(PendingImport pending, ImportResponse importResponse, Set<String> inFlight,
+            List<BatchWriteResult> written) throws InterruptedException, ExecutionException {
+        BatchWriteResult result = pending.result.get();
+        inFlight.remove(pending.id);
+        importResponse.add(pending.line, result);
+        if (result.getError() == null) {
+            written.add(result);
+            if (written.size() >= MAX_BATCH_SIZE) {
+                updateSecretCache(written);
+                publishChanges(written);
+                written.clear();
+            }
+        }
+    }
+
+    /**
+     * Reads the next line without the line terminator, or returns null at the end of the stream.
+     * Characters after the first {@code maxLength + 1} are skipped, so that a line that is too long is not held
+     * in memory, and is returned as a string longer than maxLength.
+     */
+    private static String readLine(BufferedReader reader, int maxLength) throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        StringBuilder line = new StringBuilder();
+        while (c != -1 && c != '\n') {
+            if (line.length() <= maxLength) {
+                line.append((char) c);
+            }
+            c = reader.read();
+        }
+        if (!line.isEmpty() && line.charAt(line.length() - 1) == '\r') {
+            line.setLength(line.length() - 1);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Calls the task for indexes 0 to {@code count - 1} with at most {@link #BATCH_PARALLELISM} tasks running
+     * concurrently. The current thread works on the tasks as well, and returns when all tasks are done.
+     */
+    private void runConcurrently(int count, IntConsumer task, String description) {
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+                task.accept(i);
+            }
+        };
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 1; i < Math.min(BATCH_PARALLELISM, count); i++) {
+            workers.add(clientFactory.getExecutor().submit(worker));
+        }
+        worker.run();
+        try {
+            for (Future<?> future : workers) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            workers.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw ErrorResponse.error("Interrupted while " + description, Response.Status.INTERNAL_SERVER_ERROR);
+        } catch (ExecutionException e) {
+            logger.errorv(e.getCause(), "Error {0} for realm {1}", description, realm.getName());
+            throw ErrorResponse.error("Error " + description, Response.Status.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Applies one operation of a batch write request, returning the error instead of throwing it.
+     */
+    private BatchWriteResult batchWrite(BatchWriteOperation operation) {
+        String id = operation.getId();
+        boolean delete = BatchWriteOperation.ACTION_DELETE.equals(operation.getAction());
+        if (!delete && operation.getAction() != null
+                && !BatchWriteOperation.ACTION_UPSERT.equals(operation.getAction())) {
+            return BatchWriteResult.error(id, Response.Status.BAD_REQUEST,
+                    "Invalid action, must be 'upsert' or 'delete'");
+        }
+        if (id == null || !id.matches(SECRET_ID_REGEX) || RESERVED_SECRET_IDS.contains(id)) {
+            return BatchWriteResult.error(id, Response.Status.BAD_REQUEST, "Invalid secret ID format");
+        }
+
+        try {
+            if (delete) {
+                baoClient.kv1Delete(providerConfig.getKvMount(), fullPathToSecret(id));
+                return new BatchWriteResult(id, Response.Status.NO_CONTENT.getStatusCode(), null, null);
+            }
+
+            String secretValue = operation.getSecret();
+            if (secretValue == null || secretValue.isEmpty()) {
+                secretValue = createRandomSecretValue(operation.getLength(), operation.getCharset());
+            }
+            baoClient.kv1Upsert(providerConfig.getKvMount(), fullPathToSecret(id),
+                    Map.of(SECRET_FIELD_NAME, secretValue));
+            return new BatchWriteResult(id, Response.Status.OK.getStatusCode(), secretValue, null);
+        } catch (ErrorResponseException e) {
+            return BatchWriteResult.error(id, Response.Status.fromStatusCode(e.getResponse().getStatus()),
+                    e.getResponse().getEntity() instanceof ErrorRepresentation error ? error.getErrorMessage()
+                            : "Invalid request");
+        } catch (BaoClient.BaoClientException e) {
+            logger.errorv(e, "Error writing secret {0} for realm {1}", id, realm.getName());
+            return BatchWriteResult.error(id, Response.Status.INTERNAL_SERVER_ERROR,
+                    delete ? "Error deleting secret" : "Error updating secret");
+        } catch (RestClient.RestClientException e) {
+            logger.errorv(e, "Error writing secret {0} for realm {1}", id, realm.getName());
+            return BatchWriteResult.error(id, Response.Status.SERVICE_UNAVAILABLE,
+                    "OpenBao/HashiCorp Vault is unavailable");
+        }
+    }
+
+    /**
+     * Retrieves one secret of a batch request, returning the error instead of throwing it.
+     */
+    private BatchResult batchGet(String id) {
+        if (id == null || !id.matches(SECRET_ID_REGEX) || RESERVED_SECRET_IDS.contains(id)) {
+            return BatchResult.error(id, Response.Status.BAD_REQUEST, "Invalid secret ID format");
+        }
+        try {
+            String secret = baoClient.kv1Get(providerConfig.getKvMount(), fullPathToSecret(id)).get(SECRET_FIELD_NAME);
+            if (secret == null) {
+                return BatchResult.error(id, Response.Status.NOT_FOUND, "Secret not found");
+            }
+            return new BatchResult(new SecretResponse(id, secret), null);
+        } catch (BaoClient.BaoClientException e) {
+            if (e.getStatusCode() == 404) {
+                return BatchResult.error(id, Response.Status.NOT_FOUND, "Secret not found");
+            }
+            logger.errorv(e, "Error retrieving secret {0} for realm {1}", id, realm.getName());
+            return BatchResult.error(id, Response.Status.INTERNAL_SERVER_ERROR, "Error retrieving secret");
+        } catch (RestClient.RestClientException e) {
+            logger.errorv(e, "Error retrieving secret {0} for realm {1}", id, realm.getName());
+            return BatchResult.error(id, Response.Status.SERVICE_UNAVAILABLE,
+                    "OpenBao/HashiCorp Vault is unavailable");
+        }
+    }
+
+    @PUT
+    @Path("{id}")
+    @Operation(summary = "Create or update a secret", description = "Creates a new secret or updates an existing secret. If a secret value is not provided in the request body, a random secret will be generated.")
+    @RequestBody(description = "Optional secret data. If not provided, a random secret will be generated.", required = false, content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = SecretRequest.class)))
+    @APIResponse(responseCode = "200", description = "Secret created or updated", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = SecretResponse.class)))
+    @APIResponse(responseCode = "400", description = "Bad request, e.g., invalid ID format")
+    @APIResponse(responseCode = "500", description = "Internal server error")
+    public Response updateSecret(
+            @Parameter(description = "The ID of the secret to update. Must match regular expression " + SECRET_ID_REGEX
+                    + ".", required = true) @PathParam("id") String id,
+            SecretRequest secretRequest,
+            @Parameter(description = "Number of characters in the generated random secret. Ignored if secret data is provided.", required = false, example = "32") @Schema(defaultValue = "60", minimum = "1", maximum = "2048") @QueryParam("length") Integer length,
+            @Parameter(description = "Character classes to use for random secret generation. Ignored if secret data is provided. Specify as comma-separated values: 'lower' (a-z), 'upper' (A-Z), 'digit' (0-9), 'special' ("
+                    + SECRET_CHAR_CLASS_SPECIAL
+                    + ")", required = false, example = "lower,upper") @Schema(defaultValue = "lower,upper,digit,special") @QueryParam("charset") String charset) {
+
+        authorizeRequest();
+
+        initializeBaoClient();
+
+        logger.debugv("Creating/updating secret with ID: {0} in realm {1}", id, realm.getName());
+
+        validateSecretIdFormat(id);
+
+        String secretValue;
+        if (secretRequest == null || secretRequest.getSecret() == null || secretRequest.getSecret().isEmpty()) {
+            logger.debugv(
+                    "No secret data provided, generating random secret for ID: {0} with length {1} and charset {2}", id,
+                    length, charset);
+
+            secretValue = createRandomSecretValue(length, charset);
+        } else {
+            secretValue = secretRequest.getSecret();
+        }
+
+        try {
+            String fullPath = fullPathToSecret(id);
+            baoClient.kv1Upsert(providerConfig.getKvMount(), fullPath,
+                    Map.of(SECRET_FIELD_NAME, secretValue));
+            updateSecretCache(fullPath, secretValue);
+            listCache.update(resolvedRealmPathPrefix, List.of(id), List.of());
+            changeFeed.publish(session, List.of(new SecretChangeEvent(realm.getId(), resolvedRealmPathPrefix, id, false)));
+            SecretResponse secretResponse = new SecretResponse(id, secretValue);
+            return Response.status(Response.Status.OK).entity(secretResponse).build();
+        } catch (BaoClient.BaoClientException e) {
+            if (e.getStatusCode() == 404) {
+                throw ErrorResponse.error("Secret not found", Response.Status.NOT_FOUND);
+            } else {
+                logger.errorv(e, "Error creating secret {0} for realm {1}", id, realm.getName());
+                throw ErrorResponse.error("Error updating secret", Response.Status.INTERNAL_SERVER_ERROR);
+            }
+        }
+    }
+
+    @DELETE
+    @Path("{id}")
+    @Operation(summary = "Delete a secret", description = "Deletes a secret by its ID.")
+    @APIResponse(responseCode = "204", description = "Secret deleted successfully")
+    @APIResponse(responseCode = "400", description = "Bad request, e.g., invalid ID format")
+    @APIResponse(responseCode = "500", description = "Internal server error")
+    public Response deleteSecret(
+            @Parameter(description = "The ID of the secret to delete. Must match the regular expression "
+                    + SECRET_ID_REGEX
+                    + ".", required = true) @PathParam("id") String id) {
+
+        authorizeRequest();
+
+        initializeBaoClient();
+
+        logger.debugv("Deleting secret with ID: {0} in realm {1}", id, realm.getName());
+
+        validateSecretIdFormat(id);
+
+        try {
+            String fullPath = fullPathToSecret(id);
+            baoClient.kv1Delete(providerConfig.getKvMount(), fullPath);
+            updateSecretCache(fullPath, null);
+            listCache.update(resolvedRealmPathPrefix, List.of(), List.of(id));
+            changeFeed.publish(session, List.of(new SecretChangeEvent(realm.getId(), resolvedRealmPathPrefix, id, true)));
+            return Response.noContent().build();
+        } catch (BaoClient.BaoClientException e) {
+            logger.errorv(e, "Error deleting secret {0} for realm {1}", id, realm.getName());
+            throw ErrorResponse.error("Error deleting secret", Response.Status.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Checks that requester is authorized to manage secrets.
+     * This method is implemented by concrete subclasses per Keycloak version (pre 26.3.x vs post 26.3.x).
+     */
+    protected abstract void authorizeRequest();
+
+    /**
+     * Creates a client that is logged in to OpenBao/HashiCorp Vault with the token shared by the provider, so that
+     * a login request is sent only when the token needs to be renewed.
+     * Fails with 503 Service Unavailable without connecting if the circuit breaker is open.
+     */
+    private void initializeBaoClient() {
+        if (!clientFactory.isAvailable()) {
+            logger.warnv("Circuit breaker is open, rejecting request for realm {0}", realm.getName());
+            throw ErrorResponse.error("OpenBao/HashiCorp Vault is unavailable", Response.Status.SERVICE_UNAVAILABLE);
+        }
+
+        try {
+            this.baoClient = clientFactory.createLoggedIn(realm.getName(), ConcurrencyLimiter.Priority.ADMIN);
+        } catch (IOException e) {
+            logger.errorv(e, "Failed to login to OpenBao/Vault using {0} auth for realm {1}",
+                    providerConfig.getAuthMethod(), realm.getName());
+            throw new RuntimeException("Failed to login to OpenBao/Vault using " + providerConfig.getAuthMethod()
+                    + " auth: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the full path to the secret for the given ID.
+     *
+     * @param id the secret ID
+     * @return the full path to the secret
+     */
+    private String fullPathToSecret(String id) {
+        return resolvedRealmPathPrefix + "/" + id;
+    }
+
+    /**
+     * Validates the format of the secret ID.
+     * Throws an error response if the format is invalid.
+     *
+     * @param id the secret ID
+     */
+    private void validateSecretIdFormat(String id) {
+        if (!id.matches(SECRET_ID_REGEX)) {
+            logger.warnv("Invalid secret ID: {0}. Must match regex {1}", id, SECRET_ID_REGEX);
+            throw ErrorResponse.error("Invalid secret ID format. Must match regex " + SECRET_ID_REGEX,
+                    Response.Status.BAD_REQUEST);
+        }
+        if (RESERVED_SECRET_IDS.contains(id)) {
+            logger.warnv("Invalid secret ID: {0}. The ID is reserved", id);
+            throw ErrorResponse.error("Invalid secret ID. The ID is reserved: " + id, Response.Status.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Updates the secrets cache after the secret was written or deleted.
+     * In write-through mode the new value is stored in the cache, otherwise the cached value is invalidated
+     * and fetched again on next use.
+     *
+     * @param fullPath    the full path to the secret
+     * @param secretValue the new secret value, or null if the secret was deleted
+     */
+    private void updateSecretCache(String fullPath, String secretValue) {
+        if (secretsCache == null) {
+            return;
+        }
+
+        SecretCacheKey cacheKey = SecretCacheKey.of(fullPath, SECRET_FIELD_NAME);
+
+        if (secretValue != null && providerConfig.isCacheWriteThrough()) {
+            logger.debugv("Writing secret to cache (key: {0})", cacheKey);
+            secretsCache.putWritten(cacheKey, secretValue);
+        } else {
+            logger.debugv("Evicting secret cache (key: {0})", cacheKey);
+            secretsCache.invalidate(cacheKey);
+        }
+    }
+
+    /**
+     * Adds the written secrets to and removes the deleted secrets from the list snapshot of the realm.
+     *
+     * @param results the results of the write operations, failed operations are ignored
+     */
+    private void updateSecretList(List<BatchWriteResult> results) {
+        List<String> written = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        for (BatchWriteResult result : results) {
+            if (result.getError() != null) {
+                continue;
+            }
+            if (result.getStatus() == Response.Status.NO_CONTENT.getStatusCode()) {
+                deleted.add(result.getId());
+            } else {
+                written.add(result.getId());
+            }
+        }
+        listCache.update(resolvedRealmPathPrefix, written, deleted);
+    }
+
+    /**
+     * Publishes the written and deleted secrets to the watchers of the realm.
+     *
+     * @param results the results of the write operations, failed operations are ignored
+     */
+    private void publishChanges(List<BatchWriteResult> results) {
+        List<SecretChangeEvent> changes = new ArrayList<>();
+        for (BatchWriteResult result : results) {
+            if (result.getError() == null) {
+                changes.add(new SecretChangeEvent(realm.getId(), resolvedRealmPathPrefix, result.getId(),
+                        result.getStatus() == Response.Status.NO_CONTENT.getStatusCode()));
+            }
+        }
+        changeFeed.publish(session, changes);
+    }
+
+    /**
+     * Updates the secrets cache after a batch of secrets was written or deleted, with one cache operation.
+     *
+     * @param results the results of the write operations, failed operations are ignored
+     */
+    private void updateSecretCache(List<BatchWriteResult> results) {
+        if (secretsCache == null) {
+            return;
+        }
+
+        Map<SecretCacheKey, String> cacheUpdates = new HashMap<>();
+        for (BatchWriteResult result : results) {
+            if (result.getError() == null) {
+                cacheUpdates.put(SecretCacheKey.of(fullPathToSecret(result.getId()), SECRET_FIELD_NAME),
+                        providerConfig.isCacheWriteThrough() ? result.getSecret() : null);
+            }
+        }
+        if (!cacheUpdates.isEmpty()) {
+            logger.debugv("Updating {0} secrets in cache", cacheUpdates.size());
+            secretsCache.updateAll(cacheUpdates);
+        }
+    }
+
+    /**
+     * Generate a random secret value of specified length and character set.
+     */
+    private static String createRandomSecretValue(Integer length, String charset) {
+        int secretLen = (length != null && length > 0) ? length : 60;
 
         // Check minimum length.
         if (secretLen < 1) {
@@ -375,11 +1433,20 @@ abstract public class SecretsManagerResource {
                 "[\"secret-id-1\", \"secret-id-2\"]" })
         private List<String> secretIds;
 
+        @Schema(required = true, description = "Number of secret IDs that match the filter, on all pages", examples = {
+                "2" })
+        private int total;
+
         public SecretsListResponse() {
         }
 
         public SecretsListResponse(List<String> secretIds) {
-            this.secretIds = secretIds;
+            this(secretIds, secretIds.size());
+        }
+
+        public SecretsListResponse(List<String> secretIds, int total) {
+            this.secretIds = secretIds;
+            this.total = total;
         }
 
         public List<String> getSecretIds() {
@@ -389,6 +1456,14 @@ abstract public class SecretsManagerResource {
         public void setSecretIds(List<String> secretIds) {
             this.secretIds = secretIds;
         }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public void setTotal(int total) {
+            this.total = total;
+        }
     }
 
     public static class SecretRequest {
@@ -452,4 +1527,621 @@ abstract public class SecretsManagerResource {
         }
     }
 
+    public static class BatchGetRequest {
+        @JsonProperty("secret_ids")
+        @Schema(required = true, description = "IDs of the secrets to retrieve", examples = {
+                "[\"secret-id-1\", \"secret-id-2\"]" })
+        private List<String> secretIds;
+
+        public BatchGetRequest() {
+            // Default constructor.
+        }
+
+        public List<String> getSecretIds() {
+            return secretIds;
+        }
+
+        public void setSecretIds(List<String> secretIds) {
+            this.secretIds = secretIds;
+        }
+    }
+
+    public static class BatchGetResponse {
+        @Schema(required = true, description = "The secrets that were retrieved, in the order of the request")
+        private List<SecretResponse> secrets = new ArrayList<>();
+
+        @Schema(required = true, description = "The secrets that could not be retrieved")
+        private List<SecretError> errors = new ArrayList<>();
+
+        public List<SecretResponse> getSecrets() {
+            return secrets;
+        }
+
+        public List<SecretError> getErrors() {
+            return errors;
+        }
+    }
+
+    public static class SecretError {
+        @Schema(description = "The ID of the secret.", required = true, examples = { "secret-id-1" })
+        private String id;
+
+        @Schema(description = "The HTTP status code that a request for this secret alone would have returned.", required = true, examples = {
+                "404" })
+        private int status;
+
+        @Schema(description = "The error message.", required = true, examples = { "Secret not found" })
+        private String error;
+
+        public SecretError() {
+        }
+
+        public SecretError(String id, int status, String error) {
+            this.id = id;
+            this.status = status;
+            this.error = error;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+
+    public static class BatchWriteRequest {
+        @Schema(required = true, description = "Operations to apply")
+        private List<BatchWriteOperation> operations;
+
+        public BatchWriteRequest() {
+            // Default constructor.
+        }
+
+        public List<BatchWriteOperation> getOperations() {
+            return operations;
+        }
+
+        public void setOperations(List<BatchWriteOperation> operations) {
+            this.operations = operations;
+        }
+    }
+
+    public static class BatchWriteOperation {
+        static final String ACTION_UPSERT = "upsert";
+        static final String ACTION_DELETE = "delete";
+
+        @Schema(description = "The ID of the secret. Must match regular expression " + SECRET_ID_REGEX + ".", required = true, examples = {
+                "secret-id-1" })
+        private String id;
+
+        @Schema(description = "The operation: create or update the secret, or delete it.", required = false, defaultValue = ACTION_UPSERT, enumeration = {
+                ACTION_UPSERT, ACTION_DELETE })
+        private String action;
+
+        @Schema(description = "The secret value to be stored. If omitted or empty, a random secret is generated.", required = false, examples = {
+                "my-secret-value" })
+        private String secret;
+
+        @Schema(description = "Number of characters in the generated random secret. Ignored if a secret value is provided.", required = false, defaultValue = "60", minimum = "1", maximum = "2048")
+        private Integer length;
+
+        @Schema(description = "Character classes to use for random secret generation, as in the update operation. Ignored if a secret value is provided.", required = false, defaultValue = "lower,upper,digit,special")
+        private String charset;
+
+        public BatchWriteOperation() {
+            // Default constructor.
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public void setAction(String action) {
+            this.action = action;
+        }
+
+        public String getSecret() {
+            return secret;
+        }
+
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+
+        public Integer getLength() {
+            return length;
+        }
+
+        public void setLength(Integer length) {
+            this.length = length;
+        }
+
+        public String getCharset() {
+            return charset;
+        }
+
+        public void setCharset(String charset) {
+            this.charset = charset;
+        }
+    }
+
+    public static class BatchWriteResponse {
+        @Schema(required = true, description = "The result of each operation, in the order of the request")
+        private List<BatchWriteResult> results;
+
+        public BatchWriteResponse() {
+        }
+
+        public BatchWriteResponse(List<BatchWriteResult> results) {
+            this.results = results;
+        }
+
+        public List<BatchWriteResult> getResults() {
+            return results;
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class BatchWriteResult {
+        @Schema(description = "The ID of the secret.", required = true, examples = { "secret-id-1" })
+        private String id;
+
+        @Schema(description = "The HTTP status code that a request for this operation alone would have returned.", required = true, examples = {
+                "200" })
+        private int status;
+
+        @Schema(description = "The stored secret value, for successful create and update operations.", required = false, examples = {
+                "my-secret-value" })
+        private String secret;
+
+        @Schema(description = "The error message, for failed operations.", required = false, examples = {
+                "Error updating secret" })
+        private String error;
+
+        public BatchWriteResult() {
+        }
+
+        public BatchWriteResult(String id, int status, String secret, String error) {
+            this.id = id;
+            this.status = status;
+            this.secret = secret;
+            this.error = error;
+        }
+
+        static BatchWriteResult error(String id, Response.Status status, String message) {
+            return new BatchWriteResult(id, status.getStatusCode(), null, message);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getSecret() {
+            return secret;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ExportedSecret {
+        @Schema(description = "The ID of the secret.", required = true, examples = { "secret-id-1" })
+        private String id;
+
+        @Schema(description = "The secret value.", required = true, examples = { "my-secret-value" })
+        private String secret;
+
+        public ExportedSecret() {
+        }
+
+        public ExportedSecret(String id, String secret) {
+            this.id = id;
+            this.secret = secret;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getSecret() {
+            return secret;
+        }
+
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+    }
+
+    public static class ImportResponse {
+        @Schema(required = true, description = "Number of secrets that were created or updated", examples = {
+                "2" })
+        private int imported;
+
+        @Schema(required = true, description = "Number of lines that could not be imported", examples = { "1" })
+        private int failed;
+
+        @Schema(required = true, description = "The lines that could not be imported, at most " + MAX_IMPORT_ERRORS)
+        private List<ImportError> errors = new ArrayList<>();
+
+        void add(int line, BatchWriteResult result) {
+            if (result.getError() == null) {
+                imported++;
+                return;
+            }
+            failed++;
+            if (errors.size() < MAX_IMPORT_ERRORS) {
+                errors.add(new ImportError(line, result.getId(), result.getStatus(), result.getError()));
+            }
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public List<ImportError> getErrors() {
+            return errors;
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ImportError {
+        @Schema(description = "The line number in the request body, starting from 1.", required = true, examples = {
+                "3" })
+        private int line;
+
+        @Schema(description = "The ID of the secret, if the line could be parsed.", required = false, examples = {
+                "secret-id-1" })
+        private String id;
+
+        @Schema(description = "The HTTP status code that a request for this secret alone would have returned.", required = true, examples = {
+                "400" })
+        private int status;
+
+        @Schema(description = "The error message.", required = true, examples = { "Invalid secret ID format" })
+        private String error;
+
+        public ImportError() {
+        }
+
+        public ImportError(int line, String id, int status, String error) {
+            this.line = line;
+            this.id = id;
+            this.status = status;
+            this.error = error;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+
+    public static class SyncRequest {
+        @Schema(required = true, description = "The desired secrets")
+        private List<SyncEntry> secrets;
+
+        @Schema(required = false, description = "Delete the secrets that are not in the desired state", defaultValue = "false")
+        private boolean prune;
+
+        @JsonProperty("dry_run")
+        @Schema(required = false, description = "Only report the differences, without writing or deleting secrets", defaultValue = "false")
+        private boolean dryRun;
+
+        @JsonProperty("allow_empty_prune")
+        @Schema(required = false, description = "Allow prune with an empty list of secrets, deleting all secrets of the realm. Without it, such a request is rejected.", defaultValue = "false")
+        private boolean allowEmptyPrune;
+
+        public SyncRequest() {
+            // Default constructor.
+        }
+
+        public List<SyncEntry> getSecrets() {
+            return secrets;
+        }
+
+        public void setSecrets(List<SyncEntry> secrets) {
+            this.secrets = secrets;
+        }
+
+        public boolean isPrune() {
+            return prune;
+        }
+
+        public void setPrune(boolean prune) {
+            this.prune = prune;
+        }
+
+        public boolean isDryRun() {
+            return dryRun;
+        }
+
+        public void setDryRun(boolean dryRun) {
+            this.dryRun = dryRun;
+        }
+
+        public boolean isAllowEmptyPrune() {
+            return allowEmptyPrune;
+        }
+
+        public void setAllowEmptyPrune(boolean allowEmptyPrune) {
+            this.allowEmptyPrune = allowEmptyPrune;
+        }
+    }
+
+    public static class SyncEntry {
+        @Schema(description = "The ID of the secret. Must match regular expression " + SECRET_ID_REGEX + ".", required = true, examples = {
+                "secret-id-1" })
+        private String id;
+
+        @Schema(description = "The desired secret value. Either secret or sha256 must be given.", required = false, examples = {
+                "my-secret-value" })
+        private String secret;
+
+        @Schema(description = "Hex encoded SHA-256 hash of the desired secret value, to check that the secret is current without sending the value. A secret that differs is reported as mismatched, but not written.", required = false, examples = {
+                "2f77668a9dfbf8d5848b9eeb4a7145ca94c6ed9236e4a773f6dcafa5132b2f91" })
+        private String sha256;
+
+        public SyncEntry() {
+            // Default constructor.
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getSecret() {
+            return secret;
+        }
+
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public void setSha256(String sha256) {
+            this.sha256 = sha256;
+        }
+    }
+
+    public static class SyncResponse {
+        @JsonProperty("dry_run")
+        @Schema(required = true, description = "True if the differences were only reported")
+        private boolean dryRun;
+
+        @Schema(required = true, description = "IDs of the secrets that were created")
+        private List<String> created = new ArrayList<>();
+
+        @Schema(required = true, description = "IDs of the secrets whose value was changed")
+        private List<String> updated = new ArrayList<>();
+
+        @Schema(required = true, description = "IDs of the secrets that were deleted, when pruning")
+        private List<String> deleted = new ArrayList<>();
+
+        @Schema(required = true, description = "IDs of the secrets given with a hash that do not exist or have a different value")
+        private List<String> mismatched = new ArrayList<>();
+
+        @Schema(required = true, description = "Number of secrets that already had the desired value", examples = {
+                "42" })
+        private int unchanged;
+
+        @Schema(required = true, description = "The secrets that could not be compared, written or deleted")
+        private List<SecretError> errors = new ArrayList<>();
+
+        public SyncResponse() {
+        }
+
+        SyncResponse(boolean dryRun) {
+            this.dryRun = dryRun;
+        }
+
+        void add(SyncResult result) {
+            BatchWriteResult written = result.written;
+            if (result.error != null || (written != null && written.getError() != null)) {
+                errors.add(result.error != null ? result.error
+                        : new SecretError(written.getId(), written.getStatus(), written.getError()));
+                return;
+            }
+            switch (result.change) {
+                case CREATED -> created.add(result.id);
+                case UPDATED -> updated.add(result.id);
+                case DELETED -> deleted.add(result.id);
+                case MISMATCHED -> mismatched.add(result.id);
+                case UNCHANGED -> unchanged++;
+            }
+        }
+
+        public boolean isDryRun() {
+            return dryRun;
+        }
+
+        public List<String> getCreated() {
+            return created;
+        }
+
+        public List<String> getUpdated() {
+            return updated;
+        }
+
+        public List<String> getDeleted() {
+            return deleted;
+        }
+
+        public List<String> getMismatched() {
+            return mismatched;
+        }
+
+        public int getUnchanged() {
+            return unchanged;
+        }
+
+        public List<SecretError> getErrors() {
+            return errors;
+        }
+    }
+
+    /**
+     * Outcome of syncing one secret: the change, and the result of the write if one was sent, or the error.
+     */
+    private static final class SyncResult {
+        enum Change {
+            UNCHANGED, CREATED, UPDATED, DELETED, MISMATCHED
+        }
+
+        private final String id;
+        private final Change change;
+        private final BatchWriteResult written;
+        private final SecretError error;
+
+        SyncResult(String id, Change change, BatchWriteResult written) {
+            this(id, change, written, null);
+        }
+
+        private SyncResult(String id, Change change, BatchWriteResult written, SecretError error) {
+            this.id = id;
+            this.change = change;
+            this.written = written;
+            this.error = error;
+        }
+
+        static SyncResult error(String id, Response.Status status, String message) {
+            return new SyncResult(id, null, null, new SecretError(id, status.getStatusCode(), message));
+        }
+    }
+
+    public static class WatchResponse {
+        @Schema(required = true, description = "Opaque cursor to pass to the next watch request, on any Keycloak node", examples = {
+                "M2Y5YTFjMmI0ZDVlNmY3MDoxNzYwMDAwMDAwMDAwOjNmOWExYzJiNGQ1ZTZmNzA9NDE" })
+        private String cursor;
+
+        @Schema(required = true, description = "True if the given cursor could not be continued and changes may have been missed. The client must list the secrets again.")
+        private boolean reset;
+
+        @Schema(required = true, description = "The changes after the given cursor, oldest first")
+        private List<SecretChange> events;
+
+        public WatchResponse() {
+        }
+
+        public WatchResponse(String cursor, boolean reset, List<SecretChange> events) {
+            this.cursor = cursor;
+            this.reset = reset;
+            this.events = events;
+        }
+
+        public String getCursor() {
+            return cursor;
+        }
+
+        public boolean isReset() {
+            return reset;
+        }
+
+        public List<SecretChange> getEvents() {
+            return events;
+        }
+    }
+
+    public static class SecretChange {
+        @Schema(description = "The ID of the secret.", required = true, examples = { "secret-id-1" })
+        private String id;
+
+        @Schema(description = "The change: the secret was created or updated, or it was deleted.", required = true, enumeration = {
+                BatchWriteOperation.ACTION_UPSERT, BatchWriteOperation.ACTION_DELETE })
+        private String type;
+
+        public SecretChange() {
+        }
+
+        public SecretChange(String id, String type) {
+            this.id = id;
+            this.type = type;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getType() {
+            return type;
+        }
+    }
+
+    /**
+     * Write of one imported secret that is in progress.
+     */
+    private static final class PendingImport {
+        private final int line;
+        private final String id;
+        private final Future<BatchWriteResult> result;
+
+        PendingImport(int line, String id, Future<BatchWriteResult> result) {
+            this.line = line;
+            this.id = id;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Outcome of retrieving one secret of a batch request: either the secret or the error.
+     */
+    private static final class BatchResult {
+        private final SecretResponse secret;
+        private final SecretError error;
+
+        BatchResult(SecretResponse secret, SecretError error) {
+            this.secret = secret;
+            this.error = error;
+        }
+
+        static BatchResult error(String id, Response.Status status, String message) {
+            return new BatchResult(null, new SecretError(id, status.getStatusCode(), message));
+        }
+    }
+
 }
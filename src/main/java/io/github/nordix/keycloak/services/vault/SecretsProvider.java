@@ -10,6 +10,11 @@ package io.github.nordix.keycloak.services.vault;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -19,11 +24,16 @@ import org.keycloak.vault.VaultProvider;
 import org.keycloak.vault.VaultRawSecret;
 
 import org.keycloak.models.KeycloakSession;
-import org.keycloak.connections.infinispan.InfinispanConnectionProvider;
-import org.infinispan.Cache;
 
 import io.github.nordix.baoclient.BaoClient;
+import io.github.nordix.baoclient.BaoClient.KvSecret;
+import io.github.nordix.baoclient.ConcurrencyLimiter;
+import io.github.nordix.keycloak.common.BaoClientFactory;
+import io.github.nordix.keycloak.common.OffHeapSecretStore;
 import io.github.nordix.keycloak.common.ProviderConfig;
+import io.github.nordix.keycloak.common.SecretCacheEntry;
+import io.github.nordix.keycloak.common.SecretCacheKey;
+import io.github.nordix.keycloak.common.SecretsCache;
 
 public class SecretsProvider implements VaultProvider {
 
@@ -37,13 +47,29 @@ public class SecretsProvider implements VaultProvider {
 
     private final String realm;
     private final ProviderConfig config;
+    private final BaoClientFactory clientFactory;
     private String pathPrefix;
-    private final Cache<String, String> secretsCache;
+    private final SecretsCache secretsCache;
 
-    public SecretsProvider(String realm, ProviderConfig config, KeycloakSession session) {
+    private final OffHeapSecretStore offHeapStore;
+
+    /**
+     * Secrets already resolved in this session, by vault secret ID.
+     * The provider is created per session, so the map is not shared between threads.
+     */
+    private final Map<String, ByteBuffer> resolvedSecrets = new HashMap<>();
+
+    /**
+     * Off-heap secret store slots used by this session, released when the session is closed.
+     */
+    private final List<OffHeapSecretStore.Slot> pinnedSlots = new ArrayList<>();
+
+    public SecretsProvider(String realm, ProviderConfig config, KeycloakSession session,
+            BaoClientFactory clientFactory, OffHeapSecretStore offHeapStore) {
         logger.debugv("Initializing SecretsProvider for realm {0} with config: {1}", realm, config);
         this.realm = realm;
         this.config = config;
+        this.clientFactory = clientFactory;
 
         pathPrefix = config.getKvPathPrefix().replace("%realm%", realm);
 
@@ -53,21 +79,36 @@ public class SecretsProvider implements VaultProvider {
         }
 
         // Get the Infinispan cache for client secrets.
-        if (config.getCacheName() != null && !config.getCacheName().isEmpty()) {
-            this.secretsCache = session.getProvider(InfinispanConnectionProvider.class).getCache(config.getCacheName());
-        } else {
-            this.secretsCache = null;
-        }
+        this.secretsCache = SecretsCache.create(session, config);
+        this.offHeapStore = offHeapStore;
     }
 
     @Override
     public VaultRawSecret obtainSecret(String vaultSecretId) {
+        ByteBuffer secretValue = resolvedSecrets.get(vaultSecretId);
+        if (secretValue != null) {
+            logger.debugv("Secret already resolved in this session: {0}", vaultSecretId);
+            return forReadOnlyView(secretValue);
+        }
+
         try {
-            return obtainSecretInternal(vaultSecretId);
+            secretValue = obtainSecretInternal(vaultSecretId);
         } catch (Exception e) {
             logger.errorv("Failed to obtain secret for vaultSecretId: {0} from realm: {1}", vaultSecretId, realm, e);
             throw new RuntimeException("Failed to obtain secret", e);
         }
+
+        resolvedSecrets.put(vaultSecretId, secretValue);
+        return forReadOnlyView(secretValue);
+    }
+
+    /**
+     * Returns the secret as a read-only buffer view.
+     * {@link DefaultVaultRawSecret#close()} overwrites the backing array only for writable heap buffers,
+     * so closing the returned secret does not destroy the value kept for the rest of the session.
+     */
+    private static VaultRawSecret forReadOnlyView(ByteBuffer secretValue) {
+        return DefaultVaultRawSecret.forBuffer(Optional.of(secretValue.asReadOnlyBuffer()));
     }
 
     /**
@@ -85,12 +126,18 @@ public class SecretsProvider implements VaultProvider {
      *
      * If caching is enabled, the secret value may be retrieved from Keycloak's Infinispan cache instead of
      * fetching it from KV secrets engine.
-     * The cache key is the full path to the KV secrets engine and the value is the secret itself.
+     * The cache key is a hash of the full path to the KV secrets engine and the field name, and the value is
+     * the secret itself with its lease duration, versioned with the time when the value was fetched or written
+     * (see {@link SecretsCache}). Entries whose lease has expired are fetched again, unless the circuit breaker
+     * is open, in which case the expired entry is used.
+     * If the off-heap secret store is enabled, cached secrets are kept in it as well and handed out without
+     * copying (see {@link OffHeapSecretStore}).
      *
      * @param vaultSecretId the identifier of the secret in the format
      *                      {@code [path/to/secret]:[field]}, with optional
      *                      {@code %realm%} token
-     * @return a {@link VaultRawSecret} containing the secret value as a byte buffer
+     * @return the secret value as UTF-8 bytes, either a heap buffer owned by the caller or a view to the
+     *         off-heap secret store that stays valid until the session is closed
      * @throws IOException              if an I/O error occurs during Vault
      *                                  communication
      * @throws IllegalArgumentException if the configured KV version is unsupported
@@ -98,7 +145,7 @@ public class SecretsProvider implements VaultProvider {
      *                                  retrieved
      */
     @SuppressWarnings("java:S3824") // Suppress sonarqube warning for replacing Map.get() with Map.computeIfAbsent()
-    private VaultRawSecret obtainSecretInternal(String vaultSecretId) throws IOException {
+    private ByteBuffer obtainSecretInternal(String vaultSecretId) throws IOException {
         validateSecretIdFormat(vaultSecretId);
 
         final String pathSuffix = vaultSecretId;
@@ -115,73 +162,113 @@ public class SecretsProvider implements VaultProvider {
         }
 
         // The Infinispan cache key is combination of fullPath and fieldName to support multiple fields.
-        final String cacheKey = fullPath + ":" + fieldName;
+        final SecretCacheKey cacheKey = SecretCacheKey.of(fullPath, fieldName);
 
         logger.debugv("vaultSecretId={0} resolved to path={1} field={2} {3}", vaultSecretId, fullPath, fieldName,
                 secretsCache != null ? "using cache" : "not using cache");
 
-        String secretValue;
+        if (offHeapStore != null) {
+            OffHeapSecretStore.Slot slot = offHeapStore.acquire(cacheKey);
+            if (slot != null) {
+                logger.debugv("Off-heap secret store hit (key: {0})", cacheKey);
+                pinnedSlots.add(slot);
+                return slot.view();
+            }
+        }
+
+        byte[] secretValue;
         if (secretsCache != null) {
-            // Note: this cache-population approach has a race condition:
+            // Note: this cache-population approach lets concurrent misses on several Keycloak nodes each fetch
+            // the secret from the server. The extra fetches are wasteful but acceptable here.
             //
-            // 1. Keycloak A checks the cache -> miss; fetches the secret from the server
-            // 2. Keycloak B checks the cache -> miss; also fetches the secret from the server
-            // 3. Keycloak A writes the secret into the cache
-            // 4. Keycloak B writes the secret into the cache
-            //
-            // The extra fetch performed by B is wasteful but acceptable here. The cache will end up
-            // containing the most recently stored value, which is fine for our use case.
-            //
-            // We could consider using secretsCache.computeIfAbsent(...) to avoid duplicate fetches.
+            // We could consider using computeIfAbsent(...) to avoid duplicate fetches.
             // However, that may cause the fetch function to be executed by Infinispan on another node (?)
             // This class, nor the attributes are not serializable which is required by computeIfAbsent().
             // If making them serializable, it might have risks when software is updated and nodes run
             // different versions of the class?
             //
-            // For having well understood behavior, just we use simple get/put intead.
-            secretValue = secretsCache.get(cacheKey);
-            if (secretValue == null) {
-                secretValue = fetchSecretFromServer(fullPath, fieldName);
-                logger.debugv("Caching secret (key: {0})", cacheKey);
-                secretsCache.put(cacheKey, secretValue);
+            // For having well understood behavior, we use simple get/put instead. The put is versioned with
+            // the time the fetch started, so a slow fetch cannot overwrite a secret that was updated or
+            // deleted by the Secrets Manager while the fetch was in progress (see SecretsCache).
+            long stamp = offHeapStore != null ? offHeapStore.stamp() : 0;
+            SecretCacheEntry entry = secretsCache.get(cacheKey);
+            boolean stale = false;
+            if (entry == null && !clientFactory.isAvailable()) {
+                // Fetching would fail immediately; a secret with expired lease is better than none.
+                entry = secretsCache.getStale(cacheKey);
+                stale = entry != null;
+                if (stale) {
+                    logger.warnv("OpenBao/HashiCorp Vault is unavailable, using cached secret with expired lease "
+                            + "(key: {0})", cacheKey);
+                }
+            }
+            if (entry == null) {
+                long fetchStartedAt = secretsCache.beginFetch(cacheKey);
+                KvSecret secret = fetchSecretFromServer(fullPath);
+                String value = secret.getData().get(fieldName);
+                if (value != null && !value.isEmpty()) {
+                    logger.debugv("Caching secret (key: {0})", cacheKey);
+                    entry = SecretCacheEntry.of(value, fetchStartedAt, secret.getLeaseDuration(),
+                            secret.getVersion());
+                    secretsCache.putFetched(cacheKey, entry);
+                    if (offHeapStore != null) {
+                        // Our own put notifies the off-heap store, so read back what the cache now holds.
+                        stamp = offHeapStore.stamp();
+                        entry = secretsCache.get(cacheKey);
+                    }
+                }
+                secretValue = value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
             } else {
                 logger.debugv("Secret cache hit (key: {0})", cacheKey);
+                // Copy, since the resolved secrets are wiped when the session is closed.
+                secretValue = entry.getValue().clone();
+            }
+
+            if (offHeapStore != null && entry != null && !stale) {
+                OffHeapSecretStore.Slot slot = offHeapStore.put(cacheKey, entry, stamp);
+                if (slot != null) {
+                    Arrays.fill(secretValue, (byte) 0);
+                    pinnedSlots.add(slot);
+                    return slot.view();
+                }
             }
         } else {
-            secretValue = fetchSecretFromServer(fullPath, fieldName);
+            String value = fetchSecretFromServer(fullPath).getData().get(fieldName);
+            secretValue = value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
         }
 
-        if (secretValue == null || secretValue.isEmpty()) {
+        if (secretValue == null || secretValue.length == 0) {
             logger.errorv("Secret value for path {0} and field {1} is empty", fullPath, fieldName);
             throw new RuntimeException("Secret value is empty");
         }
 
-        return DefaultVaultRawSecret.forBuffer(Optional.of(ByteBuffer.wrap(secretValue.getBytes())));
+        return ByteBuffer.wrap(secretValue);
     }
 
-    private String fetchSecretFromServer(String fullPath, String fieldName) {
-        BaoClient client = new BaoClient(config.getAddress());
-
-        if (config.getCaCertificateFile() != null) {
-            client.withCaCertificateFile(config.getCaCertificateFile());
-        }
-
+    private KvSecret fetchSecretFromServer(String fullPath) {
+        BaoClient client;
         try {
-            client.loginWithKubernetes(config.getServiceAccountFile(), config.getRole());
+            client = clientFactory.createLoggedIn(realm, ConcurrencyLimiter.Priority.INTERACTIVE);
         } catch (IOException e) {
-            logger.errorv("IOException while logging in to Kubernetes for path {0} and field {1}", fullPath, fieldName,
-                    e);
-            throw new RuntimeException("IOException while logging in to Kubernetes", e);
+            logger.errorv("IOException while logging in with auth method {0} for path {1}", config.getAuthMethod(),
+                    fullPath, e);
+            throw new RuntimeException("IOException while logging in with auth method " + config.getAuthMethod(), e);
         }
 
-        Map<String, String> secretValues = client.kv1Get(config.getKvMount(), fullPath);
-
-        return secretValues.get(fieldName);
+        return client.kv1GetSecret(config.getKvMount(), fullPath);
     }
 
     @Override
     public void close() {
-        // Intentionally left empty.
+        // Wipe the secrets resolved in this session. Off-heap secrets are wiped by the store when evicted.
+        resolvedSecrets.values().stream()
+                .filter(ByteBuffer::hasArray)
+                .forEach(secretValue -> Arrays.fill(secretValue.array(), (byte) 0));
+        resolvedSecrets.clear();
+        if (offHeapStore != null) {
+            pinnedSlots.forEach(offHeapStore::release);
+            pinnedSlots.clear();
+        }
     }
 
     private void validateSecretIdFormat(String id) {
@@ -8,43 +8,67 @@
  */
 package io.github.nordix.keycloak.services.vault;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.jboss.logging.Logger;
 import org.keycloak.Config.Scope;
 import org.keycloak.models.KeycloakSession;
+import org.keycloak.provider.ServerInfoAwareProviderFactory;
 import org.keycloak.vault.VaultProvider;
 import org.keycloak.vault.VaultProviderFactory;
 
+import io.github.nordix.baoclient.CircuitBreaker;
+import io.github.nordix.keycloak.common.BaoClientFactory;
+import io.github.nordix.keycloak.common.OffHeapSecretStore;
 import io.github.nordix.keycloak.common.ProviderConfig;
+import io.github.nordix.keycloak.common.SecretsCache;
 
-public class SecretsProviderFactory implements VaultProviderFactory {
+public class SecretsProviderFactory implements VaultProviderFactory, ServerInfoAwareProviderFactory {
 
     private static final String PROVIDER_ID = "secrets-provider";
     private static final String CMD_LINE_OPTION_PREFIX = "--spi-vault--secrets-provider--";
     private static Logger logger = Logger.getLogger(SecretsProviderFactory.class);
 
     private ProviderConfig config;
+    private OffHeapSecretStore offHeapStore;
+    private BaoClientFactory clientFactory;
 
 
     @Override
     public void init(Scope scopedConfig) {
         config = new ProviderConfig(scopedConfig, CMD_LINE_OPTION_PREFIX);
         logger.debugv("Initializing secrets-provider with {0}", config);
+        clientFactory = new BaoClientFactory(config, PROVIDER_ID);
+
+        if (config.getOffHeapStoreSize() > 0) {
+            offHeapStore = new OffHeapSecretStore(config.getOffHeapStoreSize());
+        }
     }
 
 
     @Override
     public VaultProvider create(KeycloakSession session) {
-        return new SecretsProvider(session.getContext().getRealm().getName(), config, session);
+        return new SecretsProvider(session.getContext().getRealm().getName(), config, session, clientFactory,
+                offHeapStore);
     }
 
     @Override
     public void postInit(org.keycloak.models.KeycloakSessionFactory factory) {
-        // Intentionally left empty.
+        SecretsCache.registerSchema(factory, config);
+        if (offHeapStore != null) {
+            SecretsCache.addListener(factory, config, new OffHeapSecretStore.Invalidator(offHeapStore));
+        }
     }
 
     @Override
     public void close() {
-        // Intentionally left empty.
+        if (clientFactory != null) {
+            clientFactory.close();
+        }
+        if (offHeapStore != null) {
+            offHeapStore.close();
+        }
     }
 
     @Override
@@ -52,5 +76,17 @@ public class SecretsProviderFactory implements VaultProviderFactory {
         return PROVIDER_ID;
     }
 
+    /**
+     * Shown in the provider info of the admin console.
+     */
+    @Override
+    public Map<String, String> getOperationalInfo() {
+        Map<String, String> info = new LinkedHashMap<>();
+        info.put("address", config.getAddresses().toString());
+        CircuitBreaker.State state = clientFactory.getCircuitBreakerState();
+        info.put("circuit-breaker", state != null ? state.toString() : "DISABLED");
+        return info;
+    }
+
 
 }
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+
+package io.github.nordix.baoclient;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class BoundedBodySubscriberTest {
+
+    private static final long MAX_SIZE = 1024 * 1024;
+
+    @Test
+    void testDeclaredLengthExceedsMaxSize() {
+        BoundedBodySubscriber subscriber = new BoundedBodySubscriber(100, 100, 101);
+        RecordingSubscription subscription = new RecordingSubscription();
+        subscriber.onSubscribe(subscription);
+
+        // Aborted before any of the body is requested.
+        Assertions.assertTrue(subscription.cancelled);
+        Assertions.assertEquals(0, subscription.requested);
+        assertTooLarge(subscriber.getBody());
+    }
+
+    @Test
+    void testChunkedBodyExceedsMaxSize() {
+        BoundedBodySubscriber subscriber = new BoundedBodySubscriber(100, 100, -1);
+        RecordingSubscription subscription = new RecordingSubscription();
+        subscriber.onSubscribe(subscription);
+        Assertions.assertEquals(Long.MAX_VALUE, subscription.requested);
+
+        subscriber.onNext(List.of(bytes(60)));
+        Assertions.assertFalse(subscription.cancelled);
+        Assertions.assertFalse(subscriber.getBody().toCompletableFuture().isDone());
+
+        // Aborted in the middle of the stream, as soon as the maximum size is exceeded.
+        subscriber.onNext(List.of(bytes(30), bytes(30), bytes(30)));
+        Assertions.assertTrue(subscription.cancelled);
+        subscriber.onNext(List.of(bytes(30)));
+        subscriber.onComplete();
+        assertTooLarge(subscriber.getBody());
+    }
+
+    @Test
+    void testBodyWithinMaxSize() throws Exception {
+        BoundedBodySubscriber subscriber = new BoundedBodySubscriber(100, 100, 100);
+        subscriber.onSubscribe(new RecordingSubscription());
+        subscriber.onNext(List.of(bytes(40), bytes(60)));
+        subscriber.onComplete();
+
+        BoundedBodySubscriber.Body body = subscriber.getBody().toCompletableFuture().get();
+        Assertions.assertEquals(100, body.bytes().length);
+        Assertions.assertEquals(100, body.length());
+        Assertions.assertFalse(body.isTruncated());
+    }
+
+    @Test
+    void testRetainLimits() {
+        // Error bodies are kept for error messages: JSON up to 64 KiB, other content up to 200 bytes.
+        Assertions.assertEquals(64 * 1024, RestClient.retainLimit(500, "application/json", MAX_SIZE));
+        Assertions.assertEquals(200, RestClient.retainLimit(503, "text/html", MAX_SIZE));
+        Assertions.assertEquals(200, RestClient.retainLimit(404, "<none>", MAX_SIZE));
+
+        // Successful JSON bodies are kept whole to be parsed, other successful bodies are discarded.
+        Assertions.assertEquals((int) MAX_SIZE, RestClient.retainLimit(200, "application/json; charset=utf-8",
+                MAX_SIZE));
+        Assertions.assertEquals(0, RestClient.retainLimit(204, "text/plain", MAX_SIZE));
+    }
+
+    @Test
+    void testErrorBodyTruncatedToRetainLimit() throws Exception {
+        assertRetained(RestClient.retainLimit(500, "text/html", MAX_SIZE), 1000, 200);
+        assertRetained(RestClient.retainLimit(500, "application/json", MAX_SIZE), 100 * 1024, 64 * 1024);
+        assertRetained(RestClient.retainLimit(500, "application/json", MAX_SIZE), 1000, 1000);
+    }
+
+    @Test
+    void testSuccessfulNonJsonBodyNotRetained() throws Exception {
+        BoundedBodySubscriber.Body body = assertRetained(RestClient.retainLimit(200, "text/plain", MAX_SIZE),
+                5000, 0);
+        Assertions.assertTrue(body.isTruncated());
+    }
+
+    /**
+     * Reads a body of the given length in chunks and checks that only the beginning of it is kept.
+     */
+    private static BoundedBodySubscriber.Body assertRetained(int retainLimit, int length, int expectedRetained)
+            throws Exception {
+        BoundedBodySubscriber subscriber = new BoundedBodySubscriber(MAX_SIZE, retainLimit, -1);
+        subscriber.onSubscribe(new RecordingSubscription());
+        for (int sent = 0; sent < length; sent += 1000) {
+            subscriber.onNext(List.of(bytes(Math.min(1000, length - sent))));
+        }
+        subscriber.onComplete();
+
+        BoundedBodySubscriber.Body body = subscriber.getBody().toCompletableFuture().get();
+        Assertions.assertEquals(expectedRetained, body.bytes().length);
+        Assertions.assertEquals(length, body.length());
+        return body;
+    }
+
+    private static void assertTooLarge(CompletionStage<BoundedBodySubscriber.Body> body) {
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+                () -> body.toCompletableFuture().get());
+        Assertions.assertInstanceOf(RestClient.ResponseTooLargeException.class, e.getCause());
+    }
+
+    private static ByteBuffer bytes(int count) {
+        return ByteBuffer.wrap(new byte[count]);
+    }
+
+    private static final class RecordingSubscription implements Flow.Subscription {
+        private long requested;
+        private boolean cancelled;
+
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
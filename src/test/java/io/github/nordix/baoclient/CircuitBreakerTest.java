@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.github.nordix.baoclient;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+    @Test
+    void testInvalidThreshold() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(0, 10, 1000));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(101, 10, 1000));
+    }
+
+    @Test
+    void testOpensWhenFailureRateReached() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(50, 10, 60000);
+
+        // Failures below the minimum number of requests do not open the breaker.
+        for (int i = 0; i < 9; i++) {
+            Assertions.assertTrue(circuitBreaker.tryAcquire());
+            circuitBreaker.onFailure();
+        }
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        Assertions.assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        // Requests are rejected while open.
+        Assertions.assertFalse(circuitBreaker.isCallPermitted());
+        Assertions.assertFalse(circuitBreaker.tryAcquire());
+        Assertions.assertFalse(circuitBreaker.tryAcquire());
+        Assertions.assertEquals(2, circuitBreaker.getRejected());
+    }
+
+    @Test
+    void testStaysClosedBelowFailureRate() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(50, 10, 60000);
+        for (int i = 0; i < 200; i++) {
+            Assertions.assertTrue(circuitBreaker.tryAcquire());
+            if (i % 3 == 0) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+        }
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        Assertions.assertEquals(0, circuitBreaker.getRejected());
+    }
+
+    @Test
+    void testOldOutcomesLeaveWindow() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(50, 10, 60000);
+        for (int i = 0; i < 150; i++) {
+            circuitBreaker.onSuccess();
+        }
+
+        // Only the last 100 requests count, so each failure replaces a success.
+        for (int i = 0; i < 49; i++) {
+            circuitBreaker.onFailure();
+        }
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        circuitBreaker.onFailure();
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void testHalfOpenClosesAfterSuccessfulTrials() {
+        CircuitBreaker circuitBreaker = open(new CircuitBreaker(50, 1, 0));
+        Assertions.assertTrue(circuitBreaker.isCallPermitted());
+
+        // Three trial requests are let through at a time.
+        Assertions.assertTrue(circuitBreaker.tryAcquire());
+        Assertions.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        Assertions.assertTrue(circuitBreaker.tryAcquire());
+        Assertions.assertTrue(circuitBreaker.tryAcquire());
+        Assertions.assertFalse(circuitBreaker.tryAcquire());
+
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        Assertions.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        circuitBreaker.onSuccess();
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        Assertions.assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void testHalfOpenReopensAfterFailedTrial() {
+        CircuitBreaker circuitBreaker = open(new CircuitBreaker(50, 1, 60000));
+        Assertions.assertFalse(circuitBreaker.tryAcquire());
+
+        circuitBreaker = open(new CircuitBreaker(50, 1, 0));
+        Assertions.assertTrue(circuitBreaker.tryAcquire());
+        Assertions.assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void testCancelledTrialReleasesPermit() {
+        CircuitBreaker circuitBreaker = open(new CircuitBreaker(50, 1, 0));
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(circuitBreaker.tryAcquire());
+        }
+        Assertions.assertFalse(circuitBreaker.tryAcquire());
+
+        circuitBreaker.onCancelled();
+        Assertions.assertTrue(circuitBreaker.tryAcquire());
+        Assertions.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+    }
+
+    private static CircuitBreaker open(CircuitBreaker circuitBreaker) {
+        Assertions.assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        return circuitBreaker;
+    }
+}
@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.github.nordix.baoclient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.nordix.baoclient.ConcurrencyLimiter.LimitExceededException;
+import io.github.nordix.baoclient.ConcurrencyLimiter.Priority;
+
+class ConcurrencyLimiterTest {
+
+    private static final String REALM = "realm";
+    private static final long MAX_WAIT_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void testInvalidLimit() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(0, 10));
+    }
+
+    @Test
+    void testInitialLimit() {
+        Assertions.assertEquals(16, new ConcurrencyLimiter(100, 10).getLimit());
+        Assertions.assertEquals(4, new ConcurrencyLimiter(4, 10).getLimit());
+    }
+
+    @Test
+    void testLimitGrowsWhileUsed() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 0);
+        acquire(limiter, 16);
+
+        // Keep all slots in use: each completed request is replaced by a new one.
+        for (int i = 0; i < 100; i++) {
+            limiter.onSuccess(LATENCY_NANOS);
+            limiter.acquire(REALM, Priority.INTERACTIVE, MAX_WAIT_NANOS);
+        }
+        Assertions.assertTrue(limiter.getLimit() > 16, "Limit did not grow: " + limiter.getLimit());
+
+        // Never above the maximum.
+        for (int i = 0; i < 1000; i++) {
+            limiter.onSuccess(LATENCY_NANOS);
+            limiter.acquire(REALM, Priority.INTERACTIVE, MAX_WAIT_NANOS);
+        }
+        Assertions.assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    void testLimitDoesNotGrowWhenIdle() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 0);
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire(REALM, Priority.INTERACTIVE, MAX_WAIT_NANOS);
+            limiter.onSuccess(LATENCY_NANOS);
+        }
+        Assertions.assertEquals(16, limiter.getLimit());
+        Assertions.assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testLimitDecreasesWhenDropped() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 0);
+        limiter.acquire(REALM, Priority.INTERACTIVE, MAX_WAIT_NANOS);
+        limiter.onDropped();
+        Assertions.assertEquals(14, limiter.getLimit());
+
+        // Never below one.
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire(REALM, Priority.INTERACTIVE, MAX_WAIT_NANOS);
+            limiter.onDropped();
+        }
+        Assertions.assertEquals(1, limiter.getLimit());
+        Assertions.assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testLimitDecreasesWhenSlow() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 0);
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire(REALM, Priority.INTERACTIVE, MAX_WAIT_NANOS);
+            limiter.onSuccess(LATENCY_NANOS);
+        }
+        limiter.acquire(REALM, Priority.INTERACTIVE, MAX_WAIT_NANOS);
+        limiter.onSuccess(3 * LATENCY_NANOS);
+        Assertions.assertEquals(14, limiter.getLimit());
+    }
+
+    @Test
+    void testRejectedWhenQueueFull() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 0);
+        acquire(limiter, 2);
+        Assertions.assertThrows(LimitExceededException.class,
+                () -> limiter.acquire(REALM, Priority.INTERACTIVE, MAX_WAIT_NANOS));
+        Assertions.assertEquals(1, limiter.getRejected());
+        Assertions.assertEquals(2, limiter.getInFlight());
+
+        limiter.onCancelled();
+        limiter.acquire(REALM, Priority.INTERACTIVE, MAX_WAIT_NANOS);
+        Assertions.assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void testTryAcquire() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 10);
+        Assertions.assertTrue(limiter.tryAcquire(REALM, Priority.INTERACTIVE));
+        Assertions.assertTrue(limiter.tryAcquire(REALM, Priority.INTERACTIVE));
+
+        // Does not wait, and is not counted as rejected.
+        Assertions.assertFalse(limiter.tryAcquire(REALM, Priority.INTERACTIVE));
+        Assertions.assertEquals(0, limiter.getRejected());
+        Assertions.assertEquals(0, limiter.getQueued());
+
+        limiter.onCancelled();
+        Assertions.assertTrue(limiter.tryAcquire(REALM, Priority.INTERACTIVE));
+        Assertions.assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void testRejectedWhenDeadlinePasses() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 10);
+        acquire(limiter, 1);
+        Assertions.assertThrows(LimitExceededException.class,
+                () -> limiter.acquire(REALM, Priority.INTERACTIVE, TimeUnit.MILLISECONDS.toNanos(50)));
+        Assertions.assertEquals(1, limiter.getRejected());
+        Assertions.assertEquals(0, limiter.getQueued());
+        Assertions.assertEquals(0, limiter.getQueued(REALM));
+    }
+
+    @Test
+    void testQueuedRequestGetsReleasedSlot() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 10);
+        acquire(limiter, 1);
+
+        AtomicBoolean acquired = new AtomicBoolean();
+        Thread waiter = new Thread(() -> {
+            limiter.acquire(REALM, Priority.INTERACTIVE, MAX_WAIT_NANOS);
+            acquired.set(true);
+        });
+        waiter.start();
+        awaitQueued(limiter, 1);
+        Assertions.assertEquals(1, limiter.getQueued(REALM));
+        Assertions.assertFalse(acquired.get());
+
+        limiter.onSuccess(LATENCY_NANOS);
+        waiter.join(TimeUnit.NANOSECONDS.toMillis(MAX_WAIT_NANOS));
+        Assertions.assertTrue(acquired.get());
+        Assertions.assertEquals(1, limiter.getInFlight());
+        Assertions.assertEquals(0, limiter.getQueued());
+    }
+
+    @Test
+    void testCallersShareSlotsFairly() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 100);
+        acquire(limiter, 1);
+
+        // A busy realm queues first, but a second realm waits only for one of its requests.
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> waiters = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            waiters.add(queue(limiter, "busy", Priority.ADMIN, order));
+        }
+        waiters.add(queue(limiter, "quiet", Priority.ADMIN, order));
+        Assertions.assertEquals(5, limiter.getQueued("busy"));
+        Assertions.assertEquals(1, limiter.getQueued("quiet"));
+
+        grantAll(limiter, waiters, order);
+        Assertions.assertEquals(List.of("busy", "quiet", "busy", "busy", "busy", "busy"), order);
+    }
+
+    @Test
+    void testInteractiveRequestsGetLargerShare() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 100);
+        acquire(limiter, 1);
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> waiters = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            waiters.add(queue(limiter, "admin", Priority.ADMIN, order));
+        }
+        for (int i = 0; i < 5; i++) {
+            waiters.add(queue(limiter, "login", Priority.INTERACTIVE, order));
+        }
+
+        // Interactive requests get four slots for each administrative request, without starving the latter.
+        grantAll(limiter, waiters, order);
+        Assertions.assertEquals(List.of("login", "login", "login", "admin", "login", "login", "admin", "admin",
+                "admin", "admin"), order);
+    }
+
+    /**
+     * Starts a thread that queues a request and records the caller when it gets a slot.
+     */
+    private static Thread queue(ConcurrencyLimiter limiter, String caller, Priority priority, List<String> order)
+            throws InterruptedException {
+        int queued = limiter.getQueued();
+        Thread waiter = new Thread(() -> {
+            limiter.acquire(caller, priority, MAX_WAIT_NANOS);
+            order.add(caller);
+        });
+        waiter.start();
+        awaitQueued(limiter, queued + 1);
+        return waiter;
+    }
+
+    /**
+     * Releases slots one at a time until all queued requests have got one.
+     */
+    private static void grantAll(ConcurrencyLimiter limiter, List<Thread> waiters, List<String> order)
+            throws InterruptedException {
+        for (int i = 0; i < waiters.size(); i++) {
+            limiter.onCancelled();
+            for (int j = 0; j < 1000 && order.size() <= i; j++) {
+                Thread.sleep(5);
+            }
+        }
+        for (Thread waiter : waiters) {
+            waiter.join();
+        }
+        Assertions.assertEquals(0, limiter.getQueued());
+    }
+
+    private static void acquire(ConcurrencyLimiter limiter, int count) {
+        for (int i = 0; i < count; i++) {
+            limiter.acquire(REALM, Priority.INTERACTIVE, MAX_WAIT_NANOS);
+        }
+    }
+
+    private static void awaitQueued(ConcurrencyLimiter limiter, int queued) throws InterruptedException {
+        for (int i = 0; i < 1000 && limiter.getQueued() < queued; i++) {
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(queued, limiter.getQueued());
+    }
+}
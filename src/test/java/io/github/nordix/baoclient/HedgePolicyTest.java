@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.github.nordix.baoclient;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class HedgePolicyTest {
+
+    private static final long MIN_DELAY_MILLIS = 10;
+
+    @Test
+    void testMinDelayUntilEnoughSamples() {
+        HedgePolicy policy = new HedgePolicy(95, MIN_DELAY_MILLIS, 0.1);
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(MIN_DELAY_MILLIS), policy.delayNanos());
+
+        for (int i = 0; i < 31; i++) {
+            policy.record(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(MIN_DELAY_MILLIS), policy.delayNanos());
+    }
+
+    @Test
+    void testDelayAdaptsToLatencyAboveMinDelay() {
+        HedgePolicy policy = new HedgePolicy(95, MIN_DELAY_MILLIS, 0.1);
+
+        // Response times above the current delay, as recorded for responses that arrived after the hedge.
+        for (int i = 0; i < 256; i++) {
+            policy.record(TimeUnit.MILLISECONDS.toNanos(40 + i % 20));
+        }
+        long delay = policy.delayNanos();
+        Assertions.assertTrue(delay >= TimeUnit.MILLISECONDS.toNanos(55), "Delay did not grow: " + delay);
+        Assertions.assertTrue(delay <= TimeUnit.MILLISECONDS.toNanos(59), "Delay above the samples: " + delay);
+
+        // Latency drops again.
+        for (int i = 0; i < 256; i++) {
+            policy.record(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(20), policy.delayNanos());
+
+        // Never below the minimum delay.
+        for (int i = 0; i < 256; i++) {
+            policy.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(MIN_DELAY_MILLIS), policy.delayNanos());
+    }
+
+    @Test
+    void testHedgesLimitedByBudget() {
+        HedgePolicy policy = new HedgePolicy(95, MIN_DELAY_MILLIS, 0.1);
+
+        // The initial burst allows 10 hedges.
+        for (int i = 0; i < 10; i++) {
+            policy.onRequest();
+            Assertions.assertTrue(policy.tryFire());
+        }
+        policy.onRequest();
+        Assertions.assertFalse(policy.tryFire());
+        Assertions.assertEquals(10, policy.getFired());
+        Assertions.assertEquals(1, policy.getRejected());
+
+        // Then at most one of ten requests is hedged.
+        int hedged = 0;
+        for (int i = 0; i < 1000; i++) {
+            policy.onRequest();
+            if (policy.tryFire()) {
+                hedged++;
+            }
+        }
+        Assertions.assertTrue(hedged >= 99 && hedged <= 101, "Unexpected number of hedges: " + hedged);
+    }
+
+    @Test
+    void testZeroBudgetDisablesHedgesAfterBurst() {
+        HedgePolicy policy = new HedgePolicy(95, MIN_DELAY_MILLIS, 0);
+        for (int i = 0; i < 100; i++) {
+            policy.onRequest();
+            policy.tryFire();
+        }
+        Assertions.assertEquals(10, policy.getFired());
+        Assertions.assertEquals(90, policy.getRejected());
+    }
+
+    @Test
+    void testInvalidPercentile() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new HedgePolicy(0, MIN_DELAY_MILLIS, 0.1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new HedgePolicy(100, MIN_DELAY_MILLIS, 0.1));
+    }
+}
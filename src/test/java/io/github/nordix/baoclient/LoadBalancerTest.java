@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.github.nordix.baoclient;
+
+import java.net.URI;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LoadBalancerTest {
+
+    private static final URI NODE_A = URI.create("http://10.0.0.1:8200");
+    private static final URI NODE_B = URI.create("http://10.0.0.2:8200");
+
+    @Test
+    void testPolicyFromString() {
+        Assertions.assertEquals(LoadBalancer.Policy.EWMA, LoadBalancer.Policy.fromString("ewma"));
+        Assertions.assertEquals(LoadBalancer.Policy.LEAST_REQUESTS, LoadBalancer.Policy.fromString(" least-requests "));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LoadBalancer.Policy.fromString("random"));
+    }
+
+    @Test
+    void testNodeStateFromHealthStatus() {
+        Assertions.assertEquals(LoadBalancer.NodeState.ACTIVE, LoadBalancer.NodeState.fromHealthStatus(200));
+        Assertions.assertEquals(LoadBalancer.NodeState.STANDBY, LoadBalancer.NodeState.fromHealthStatus(429));
+        Assertions.assertEquals(LoadBalancer.NodeState.STANDBY, LoadBalancer.NodeState.fromHealthStatus(473));
+        Assertions.assertEquals(LoadBalancer.NodeState.UNHEALTHY, LoadBalancer.NodeState.fromHealthStatus(503));
+        Assertions.assertEquals(LoadBalancer.NodeState.UNHEALTHY, LoadBalancer.NodeState.fromHealthStatus(501));
+    }
+
+    @Test
+    void testNoAddresses() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new LoadBalancer(List.of(), LoadBalancer.Policy.EWMA));
+    }
+
+    @Test
+    void testLeastRequestsPrefersIdleNode() {
+        LoadBalancer loadBalancer = new LoadBalancer(List.of(NODE_A, NODE_B), LoadBalancer.Policy.LEAST_REQUESTS);
+        LoadBalancer.Node a = loadBalancer.getNodes().get(0);
+        for (int i = 0; i < 5; i++) {
+            a.onRequest();
+        }
+
+        // With two nodes both are always compared, so the node with fewer outstanding requests wins.
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(NODE_B, loadBalancer.selectForRead().getAddress());
+        }
+    }
+
+    @Test
+    void testEwmaPrefersFasterNode() throws InterruptedException {
+        LoadBalancer loadBalancer = new LoadBalancer(List.of(NODE_A, NODE_B), LoadBalancer.Policy.EWMA);
+        LoadBalancer.Node a = loadBalancer.getNodes().get(0);
+        LoadBalancer.Node b = loadBalancer.getNodes().get(1);
+
+        long startedAt = a.onRequest();
+        Thread.sleep(50);
+        a.onResponse(startedAt, 200);
+        startedAt = b.onRequest();
+        b.onResponse(startedAt, 200);
+
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(NODE_B, loadBalancer.selectForRead().getAddress());
+        }
+    }
+
+    @Test
+    void testSelectForReadExcludesNode() {
+        LoadBalancer loadBalancer = new LoadBalancer(List.of(NODE_A, NODE_B), LoadBalancer.Policy.EWMA);
+        LoadBalancer.Node a = loadBalancer.getNodes().get(0);
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(NODE_B, loadBalancer.selectForRead(a).getAddress());
+        }
+
+        // A single node is used even if excluded.
+        LoadBalancer single = new LoadBalancer(List.of(NODE_A), LoadBalancer.Policy.EWMA);
+        Assertions.assertEquals(NODE_A, single.selectForRead(single.getNodes().get(0)).getAddress());
+    }
+
+    @Test
+    void testConnectionFailureEjectsNode() {
+        LoadBalancer loadBalancer = new LoadBalancer(List.of(NODE_A, NODE_B), LoadBalancer.Policy.EWMA);
+        LoadBalancer.Node a = loadBalancer.getNodes().get(0);
+        a.onRequest();
+        a.onConnectionFailure();
+        Assertions.assertEquals(0, a.getOutstanding());
+
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(NODE_B, loadBalancer.selectForRead().getAddress());
+            Assertions.assertEquals(NODE_B, loadBalancer.selectForWrite().getAddress());
+        }
+    }
+
+    @Test
+    void testConsecutiveServerErrorsEjectNode() {
+        LoadBalancer loadBalancer = new LoadBalancer(List.of(NODE_A, NODE_B), LoadBalancer.Policy.LEAST_REQUESTS);
+        LoadBalancer.Node a = loadBalancer.getNodes().get(0);
+        LoadBalancer.Node b = loadBalancer.getNodes().get(1);
+
+        // Errors interrupted by a success do not eject the node.
+        a.onResponse(a.onRequest(), 500);
+        a.onResponse(a.onRequest(), 500);
+        a.onResponse(a.onRequest(), 200);
+        a.onResponse(a.onRequest(), 500);
+        a.onResponse(a.onRequest(), 500);
+
+        // Node B is busier, so A is selected while it is in use.
+        b.onRequest();
+        Assertions.assertEquals(NODE_A, loadBalancer.selectForRead().getAddress());
+
+        a.onResponse(a.onRequest(), 503);
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(NODE_B, loadBalancer.selectForRead().getAddress());
+        }
+    }
+
+    @Test
+    void testAllNodesEjected() {
+        LoadBalancer loadBalancer = new LoadBalancer(List.of(NODE_A, NODE_B), LoadBalancer.Policy.EWMA);
+        for (LoadBalancer.Node node : loadBalancer.getNodes()) {
+            node.onRequest();
+            node.onConnectionFailure();
+        }
+
+        // Rather try an ejected node than fail without trying.
+        Assertions.assertNotNull(loadBalancer.selectForRead());
+        Assertions.assertNotNull(loadBalancer.selectForWrite());
+    }
+
+    @Test
+    void testHealthCheckFindsActiveNodeAndReinstatesNodes() throws InterruptedException {
+        try (LoadBalancer loadBalancer = new LoadBalancer(List.of(NODE_A, NODE_B), LoadBalancer.Policy.EWMA)) {
+            LoadBalancer.Node a = loadBalancer.getNodes().get(0);
+            LoadBalancer.Node b = loadBalancer.getNodes().get(1);
+            a.onRequest();
+            a.onConnectionFailure();
+
+            loadBalancer.withHealthCheck(10000, address -> address.equals(NODE_A) ? 200 : 429);
+            for (int i = 0; i < 500 && b.getState() != LoadBalancer.NodeState.STANDBY; i++) {
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals(LoadBalancer.NodeState.ACTIVE, a.getState());
+            Assertions.assertEquals(LoadBalancer.NodeState.STANDBY, b.getState());
+
+            // The successful probe takes the ejected node back into use, and writes go to the active node.
+            for (int i = 0; i < 100; i++) {
+                Assertions.assertEquals(NODE_A, loadBalancer.selectForWrite().getAddress());
+            }
+        }
+    }
+
+    @Test
+    void testHealthCheckSkipsUnhealthyNode() throws InterruptedException {
+        try (LoadBalancer loadBalancer = new LoadBalancer(List.of(NODE_A, NODE_B), LoadBalancer.Policy.EWMA)) {
+            LoadBalancer.Node b = loadBalancer.getNodes().get(1);
+            loadBalancer.withHealthCheck(10000, address -> {
+                if (address.equals(NODE_A)) {
+                    throw new IllegalStateException("Connection refused");
+                }
+                return 200;
+            });
+            for (int i = 0; i < 500 && b.getState() != LoadBalancer.NodeState.ACTIVE; i++) {
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals(LoadBalancer.NodeState.UNHEALTHY, loadBalancer.getNodes().get(0).getState());
+            for (int i = 0; i < 100; i++) {
+                Assertions.assertEquals(NODE_B, loadBalancer.selectForRead().getAddress());
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.github.nordix.baoclient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.PushPromiseHandler;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+class RestClientTest {
+
+    @Test
+    void testUnexpectedExceptionReleasesConcurrencySlot() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 0);
+        RestClient client = new RestClient(URI.create("http://127.0.0.1:8200"))
+                .withHttpClient(new FailingHttpClient())
+                .withConcurrencyLimit(limiter);
+
+        for (int i = 0; i < 3; i++) {
+            // Would be rejected by the limiter if the slot of the previous attempt had leaked.
+            Assertions.assertThrows(IllegalStateException.class, () -> client.sendRequest("/v1/secret/a", "GET"));
+            Assertions.assertEquals(0, limiter.getInFlight());
+        }
+    }
+
+    @Test
+    void testUnexpectedExceptionReleasesTrialRequest() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(50, 1, 0);
+        Assertions.assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        RestClient client = new RestClient(URI.create("http://127.0.0.1:8200"))
+                .withHttpClient(new FailingHttpClient())
+                .withCircuitBreaker(circuitBreaker);
+
+        // More attempts than trial requests: each one must return its permit.
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertThrows(IllegalStateException.class, () -> client.sendRequest("/v1/secret/a", "GET"));
+        }
+        Assertions.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        Assertions.assertEquals(0, circuitBreaker.getRejected());
+    }
+
+    @Test
+    void testHedgeNotSentWithoutFreeSlot() throws IOException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 0);
+        HedgePolicy hedgePolicy = new HedgePolicy(95, 10, 1.0);
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = startServer(delayed(requests, 200));
+        try {
+            RestClient client = new RestClient(URI.create("http://127.0.0.1:" + server.getAddress().getPort()))
+                    .withConcurrencyLimit(limiter)
+                    .withHedging(hedgePolicy);
+
+            // The original request holds the only slot, so the hedge is skipped.
+            Assertions.assertEquals(200, client.sendRequest("v1/secret/a", "GET").statusCode());
+            Assertions.assertEquals(0, hedgePolicy.getFired());
+            Assertions.assertEquals(0, hedgePolicy.getRejected());
+            Assertions.assertEquals(1, requests.get());
+            Assertions.assertEquals(0, limiter.getInFlight());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void testHedgeNotSentUnlessCircuitClosed() throws IOException {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(50, 1, 0);
+        Assertions.assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+        HedgePolicy hedgePolicy = new HedgePolicy(95, 10, 1.0);
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = startServer(delayed(requests, 200));
+        try {
+            RestClient client = new RestClient(URI.create("http://127.0.0.1:" + server.getAddress().getPort()))
+                    .withCircuitBreaker(circuitBreaker)
+                    .withHedging(hedgePolicy);
+
+            // The original request is the trial request of the half-open breaker, and is not hedged.
+            Assertions.assertEquals(200, client.sendRequest("v1/secret/a", "GET").statusCode());
+            Assertions.assertEquals(0, hedgePolicy.getFired());
+            Assertions.assertEquals(1, requests.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void testCancelledHedgeReleasesSlot() throws IOException, InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 0);
+        HedgePolicy hedgePolicy = new HedgePolicy(95, 10, 1.0);
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch unblock = new CountDownLatch(1);
+        HttpServer server = startServer(exchange -> {
+            // The hedge is answered only after the original request, so that it is cancelled.
+            if (requests.incrementAndGet() == 1) {
+                sleep(200);
+            } else {
+                try {
+                    unblock.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            respond(exchange);
+        });
+        try {
+            RestClient client = new RestClient(URI.create("http://127.0.0.1:" + server.getAddress().getPort()))
+                    .withConcurrencyLimit(limiter)
+                    .withHedging(hedgePolicy);
+
+            Assertions.assertEquals(200, client.sendRequest("v1/secret/a", "GET").statusCode());
+            Assertions.assertEquals(1, hedgePolicy.getFired());
+            Assertions.assertEquals(0, hedgePolicy.getWon());
+            for (int i = 0; i < 200 && limiter.getInFlight() > 0; i++) {
+                Thread.sleep(5);
+            }
+            Assertions.assertEquals(0, limiter.getInFlight());
+        } finally {
+            unblock.countDown();
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Starts a stand-in for OpenBao that handles every request with the given handler.
+     */
+    private static HttpServer startServer(HttpHandler handler) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", handler);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    /**
+     * Returns a handler that counts the requests and answers them after the given delay.
+     */
+    private static HttpHandler delayed(AtomicInteger requests, long delayMillis) {
+        return exchange -> {
+            requests.incrementAndGet();
+            sleep(delayMillis);
+            respond(exchange);
+        };
+    }
+
+    private static void respond(HttpExchange exchange) throws IOException {
+        byte[] body = "{\"data\":{}}".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * HTTP client that fails every request with an unexpected exception.
+     */
+    private static final class FailingHttpClient extends HttpClient {
+
+        @Override
+        public <T> HttpResponse<T> send(HttpRequest request, BodyHandler<T> responseBodyHandler) {
+            throw new IllegalStateException("Unexpected failure");
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                BodyHandler<T> responseBodyHandler) {
+            throw new IllegalStateException("Unexpected failure");
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                BodyHandler<T> responseBodyHandler, PushPromiseHandler<T> pushPromiseHandler) {
+            throw new IllegalStateException("Unexpected failure");
+        }
+
+        @Override
+        public Optional<CookieHandler> cookieHandler() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<Duration> connectTimeout() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Redirect followRedirects() {
+            return Redirect.NEVER;
+        }
+
+        @Override
+        public Optional<ProxySelector> proxy() {
+            return Optional.empty();
+        }
+
+        @Override
+        public SSLContext sslContext() {
+            return null;
+        }
+
+        @Override
+        public SSLParameters sslParameters() {
+            return null;
+        }
+
+        @Override
+        public Optional<Authenticator> authenticator() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Version version() {
+            return Version.HTTP_1_1;
+        }
+
+        @Override
+        public Optional<Executor> executor() {
+            return Optional.empty();
+        }
+    }
+}
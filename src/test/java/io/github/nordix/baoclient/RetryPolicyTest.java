@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.github.nordix.baoclient;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class RetryPolicyTest {
+
+    @Test
+    void testMaxRetries() {
+        RetryPolicy policy = new RetryPolicy(2, 100, 0.2);
+        policy.onRequest();
+        Assertions.assertTrue(policy.tryRetry(1));
+        Assertions.assertTrue(policy.tryRetry(2));
+        Assertions.assertFalse(policy.tryRetry(3));
+        Assertions.assertEquals(2, policy.getRetries());
+
+        // Reaching the maximum number of retries does not count as rejected by the budget.
+        Assertions.assertEquals(0, policy.getRejected());
+    }
+
+    @Test
+    void testRetriesLimitedByBudget() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 0.2);
+
+        // The reserve allows 10 retries even without traffic.
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertTrue(policy.tryRetry(1));
+        }
+        Assertions.assertFalse(policy.tryRetry(1));
+        Assertions.assertEquals(1, policy.getRejected());
+
+        // Each request adds a fraction of a retry to the budget.
+        for (int i = 0; i < 10; i++) {
+            policy.onRequest();
+        }
+        Assertions.assertTrue(policy.tryRetry(1));
+        Assertions.assertTrue(policy.tryRetry(1));
+        Assertions.assertFalse(policy.tryRetry(1));
+        Assertions.assertEquals(12, policy.getRetries());
+        Assertions.assertEquals(2, policy.getRejected());
+    }
+
+    @Test
+    void testBackoffIsBoundedByExponentialCeiling() {
+        RetryPolicy policy = new RetryPolicy(30, 100, 0.2);
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertTrue(policy.backoffNanos(1) <= TimeUnit.MILLISECONDS.toNanos(100));
+            Assertions.assertTrue(policy.backoffNanos(3) <= TimeUnit.MILLISECONDS.toNanos(400));
+            Assertions.assertTrue(policy.backoffNanos(1) >= 0);
+        }
+
+        // Backoff is capped, also for attempt numbers that would overflow the shift.
+        for (int i = 0; i < 1000; i++) {
+            long backoff = policy.backoffNanos(30);
+            Assertions.assertTrue(backoff >= 0 && backoff <= TimeUnit.SECONDS.toNanos(2), "Backoff: " + backoff);
+        }
+    }
+
+    @Test
+    void testBackoffIsJittered() {
+        RetryPolicy policy = new RetryPolicy(3, 1000, 0.2);
+        long first = policy.backoffNanos(1);
+        boolean differs = false;
+        for (int i = 0; i < 100 && !differs; i++) {
+            differs = policy.backoffNanos(1) != first;
+        }
+        Assertions.assertTrue(differs);
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+
+package io.github.nordix.baoclient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Base64;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TokenFileTest {
+
+    private Path path;
+    private Instant modifiedAt = Instant.parse("2025-01-01T00:00:00Z");
+
+    @BeforeEach
+    void createFile() throws IOException {
+        path = Files.createTempFile("token", null);
+    }
+
+    @AfterEach
+    void deleteFile() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    void testRotatedTokenIsRead() throws IOException, InterruptedException {
+        TokenFile tokenFile = new TokenFile(path);
+        rotate("first");
+        Assertions.assertEquals("first", tokenFile.getToken());
+
+        // The modification time is checked at most once per second.
+        rotate("second");
+        Assertions.assertEquals("first", tokenFile.getToken());
+        Thread.sleep(1100);
+        Assertions.assertEquals("second", tokenFile.getToken());
+    }
+
+    @Test
+    void testUnchangedFileIsNotReadAgain() throws IOException, InterruptedException {
+        TokenFile tokenFile = new TokenFile(path);
+        rotate("first");
+        Assertions.assertEquals("first", tokenFile.getToken());
+
+        // Written without changing the modification time, so the cached token is still used.
+        Files.writeString(path, "second");
+        Files.setLastModifiedTime(path, FileTime.from(modifiedAt));
+        Thread.sleep(1100);
+        Assertions.assertEquals("first", tokenFile.getToken());
+    }
+
+    @Test
+    void testExpiringTokenIsReadAgain() throws IOException {
+        TokenFile tokenFile = new TokenFile(path);
+        String expiring = jwt("{\"exp\":" + (Instant.now().getEpochSecond() + 20) + "}", "signature");
+        rotate(expiring);
+        Assertions.assertEquals(expiring, tokenFile.getToken());
+
+        // Expires within 30 seconds, so the file is checked on every call instead of once per second.
+        Assertions.assertEquals(expiring, tokenFile.getToken());
+        String fresh = jwt("{\"exp\":" + (Instant.now().getEpochSecond() + 3600) + "}", "signature");
+        rotate(fresh);
+        Assertions.assertEquals(fresh, tokenFile.getToken());
+
+        // No longer expiring, so the next rotation is picked up only after the check interval.
+        rotate("third");
+        Assertions.assertEquals(fresh, tokenFile.getToken());
+    }
+
+    @Test
+    void testEmptyFile() throws IOException {
+        rotate(" \n");
+        Assertions.assertThrows(BaoClient.BaoClientException.class, () -> new TokenFile(path).getToken());
+    }
+
+    @Test
+    void testParseExpiry() {
+        Assertions.assertEquals(1700000000, TokenFile.parseExpiry(jwt("{\"exp\":1700000000}", "signature")));
+        // Unsigned JWT, with an empty signature.
+        Assertions.assertEquals(1700000000, TokenFile.parseExpiry(jwt("{\"exp\":1700000000}", "")));
+    }
+
+    @Test
+    void testParseExpiryOfTokensWithoutExpiry() {
+        Assertions.assertEquals(0, TokenFile.parseExpiry("hvs.CAESIJ0wZWY"));
+        Assertions.assertEquals(0, TokenFile.parseExpiry("s.abcdefghijklmnopqrstuvwx"));
+        Assertions.assertEquals(0, TokenFile.parseExpiry(jwt("{\"sub\":\"keycloak\"}", "signature")));
+        Assertions.assertEquals(0, TokenFile.parseExpiry(jwt("{\"exp\":\"tomorrow\"}", "signature")));
+        Assertions.assertEquals(0, TokenFile.parseExpiry(jwt("[1,2,3]", "signature")));
+        Assertions.assertEquals(0, TokenFile.parseExpiry(jwt("not json", "signature")));
+        Assertions.assertEquals(0, TokenFile.parseExpiry("header.!!not-base64!!.signature"));
+        Assertions.assertEquals(0, TokenFile.parseExpiry("a.b.c.d"));
+        Assertions.assertEquals(0, TokenFile.parseExpiry(".."));
+    }
+
+    @Test
+    void testMalformedJwtIsUsedAsToken() throws IOException {
+        rotate("header.!!not-base64!!.signature");
+        Assertions.assertEquals("header.!!not-base64!!.signature", new TokenFile(path).getToken());
+    }
+
+    /**
+     * Writes the token and advances the modification time of the file, as a rotation would.
+     */
+    private void rotate(String token) throws IOException {
+        Files.writeString(path, token);
+        modifiedAt = modifiedAt.plusSeconds(1);
+        Files.setLastModifiedTime(path, FileTime.from(modifiedAt));
+    }
+
+    private static String jwt(String claims, String signature) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8)) + "." + signature;
+    }
+}
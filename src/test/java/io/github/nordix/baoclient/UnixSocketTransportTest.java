@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+
+package io.github.nordix.baoclient;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UnixSocketTransportTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final long MAX_BODY_SIZE = 1024 * 1024;
+
+    private Path socketPath;
+    private ServerSocketChannel server;
+    private UnixSocketTransport transport;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile Handler handler;
+
+    /**
+     * Serves one connection of the stand-in listener.
+     */
+    private interface Handler {
+        void serve(int connection, Peer peer) throws IOException;
+    }
+
+    @BeforeEach
+    void startListener() throws IOException {
+        socketPath = Files.createTempDirectory("bao-test").resolve("agent.sock");
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+        Thread acceptor = new Thread(() -> {
+            while (server.isOpen()) {
+                try {
+                    SocketChannel channel = server.accept();
+                    int connection = connections.incrementAndGet();
+                    Thread thread = new Thread(() -> {
+                        try (Peer peer = new Peer(channel)) {
+                            handler.serve(connection, peer);
+                        } catch (IOException e) {
+                            // Client closed the connection.
+                        }
+                    });
+                    thread.setDaemon(true);
+                    thread.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        transport = new UnixSocketTransport(URI.create("unix://" + socketPath));
+    }
+
+    @AfterEach
+    void stopListener() throws IOException {
+        transport.close();
+        server.close();
+        Files.deleteIfExists(socketPath);
+        Files.deleteIfExists(socketPath.getParent());
+    }
+
+    @Test
+    void testChunkedResponse() throws IOException {
+        handler = (connection, peer) -> {
+            while (peer.readRequest() != null) {
+                peer.write("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nTransfer-Encoding: chunked\r\n\r\n"
+                        + "5\r\nhello\r\n6;name=value\r\n world\r\n0\r\nTrailer: ignored\r\n\r\n");
+            }
+        };
+
+        for (int i = 0; i < 3; i++) {
+            UnixSocketTransport.Response response = get("/v1/secret/a");
+            Assertions.assertEquals(200, response.statusCode());
+            Assertions.assertEquals("application/json", response.header("Content-Type"));
+            Assertions.assertEquals("hello world", new String(response.body(), StandardCharsets.UTF_8));
+        }
+        // The chunked body ends the response, so the connection is kept alive and reused.
+        Assertions.assertEquals(1, connections.get());
+    }
+
+    @Test
+    void testCloseDelimitedResponse() throws IOException {
+        handler = (connection, peer) -> {
+            peer.readRequest();
+            peer.write("HTTP/1.1 200 OK\r\n\r\nbody until close");
+        };
+
+        for (int i = 0; i < 2; i++) {
+            UnixSocketTransport.Response response = get("/v1/secret/a");
+            Assertions.assertEquals(200, response.statusCode());
+            Assertions.assertEquals("body until close", new String(response.body(), StandardCharsets.UTF_8));
+        }
+        // The end of the body is the end of the connection, so it cannot be reused.
+        Assertions.assertEquals(2, connections.get());
+    }
+
+    @Test
+    void testResponseTooLarge() throws IOException {
+        String body = "x".repeat(100);
+        handler = (connection, peer) -> {
+            String requestLine = peer.readRequest();
+            if (requestLine.contains("/length")) {
+                peer.write("HTTP/1.1 200 OK\r\nContent-Length: 100\r\n\r\n" + body);
+            } else if (requestLine.contains("/chunked")) {
+                peer.write("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n8\r\n" + body.substring(0, 8)
+                        + "\r\n8\r\n" + body.substring(0, 8) + "\r\n0\r\n\r\n");
+            } else {
+                peer.write("HTTP/1.1 200 OK\r\n\r\n" + body);
+            }
+        };
+
+        for (String path : List.of("/length", "/chunked", "/close-delimited")) {
+            Assertions.assertThrows(RestClient.ResponseTooLargeException.class,
+                    () -> transport.send("GET", path, Map.of(), null, TIMEOUT, 10), path);
+        }
+        Assertions.assertEquals("x".repeat(8).repeat(2), new String(
+                transport.send("GET", "/chunked", Map.of(), null, TIMEOUT, 16).body(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStaleConnectionResendsIdempotentRequest() throws IOException {
+        handler = closeAfterFirstResponse(null);
+
+        Assertions.assertEquals(200, get("/v1/secret/a").statusCode());
+        // The reused connection is closed after the request was written, and a GET is safe to send again.
+        Assertions.assertEquals(200, get("/v1/secret/a").statusCode());
+        Assertions.assertEquals(2, connections.get());
+        Assertions.assertEquals(3, requests.get());
+    }
+
+    @Test
+    void testStaleConnectionDoesNotResendPost() throws IOException {
+        handler = closeAfterFirstResponse(null);
+
+        Assertions.assertEquals(200, get("/v1/secret/a").statusCode());
+        // The POST may have been processed, so it is not sent again.
+        Assertions.assertThrows(EOFException.class,
+                () -> transport.send("POST", "/v1/secret/a", Map.of(), "{}", TIMEOUT, MAX_BODY_SIZE));
+        Assertions.assertEquals(1, connections.get());
+        Assertions.assertEquals(2, requests.get());
+    }
+
+    @Test
+    void testClosedIdleConnectionResendsPost() throws IOException, InterruptedException {
+        CountDownLatch closed = new CountDownLatch(1);
+        handler = closeAfterFirstResponse(closed);
+
+        Assertions.assertEquals(200, get("/v1/secret/a").statusCode());
+        Assertions.assertTrue(closed.await(5, TimeUnit.SECONDS));
+
+        // Writing to the closed connection fails, so the agent never saw the request and it is sent again.
+        UnixSocketTransport.Response response = transport.send("POST", "/v1/secret/a", Map.of(), "{}", TIMEOUT,
+                MAX_BODY_SIZE);
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals(2, connections.get());
+        Assertions.assertEquals(2, requests.get());
+    }
+
+    /**
+     * Returns a handler that answers the first request on the first connection and then closes it, either right
+     * away if {@code closed} is given, or after reading the next request. Later connections are served normally.
+     */
+    private Handler closeAfterFirstResponse(CountDownLatch closed) {
+        return (connection, peer) -> {
+            String response = "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\n{}";
+            if (connection > 1) {
+                while (peer.readRequest() != null) {
+                    peer.write(response);
+                }
+                return;
+            }
+            peer.readRequest();
+            peer.write(response);
+            if (closed == null) {
+                peer.readRequest();
+            }
+            peer.close();
+            if (closed != null) {
+                closed.countDown();
+            }
+        };
+    }
+
+    private UnixSocketTransport.Response get(String path) throws IOException {
+        return transport.send("GET", path, Map.of(), null, TIMEOUT, MAX_BODY_SIZE);
+    }
+
+    /**
+     * Server side of a connection to the stand-in listener.
+     */
+    private final class Peer implements AutoCloseable {
+        private final SocketChannel channel;
+        private final InputStream in;
+        private final OutputStream out;
+
+        Peer(SocketChannel channel) {
+            this.channel = channel;
+            this.in = new BufferedInputStream(Channels.newInputStream(channel));
+            this.out = Channels.newOutputStream(channel);
+        }
+
+        /**
+         * Reads a request and returns its request line, or null if the client closed the connection.
+         */
+        String readRequest() throws IOException {
+            String requestLine = readLine();
+            if (requestLine == null) {
+                return null;
+            }
+            int contentLength = 0;
+            for (String line = readLine(); line != null && !line.isEmpty(); line = readLine()) {
+                if (line.toLowerCase().startsWith("content-length:")) {
+                    contentLength = Integer.parseInt(line.substring(15).trim());
+                }
+            }
+            if (in.readNBytes(contentLength).length < contentLength) {
+                return null;
+            }
+            requests.incrementAndGet();
+            return requestLine;
+        }
+
+        void write(String data) throws IOException {
+            out.write(data.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            for (int b = in.read(); b != '\n'; b = in.read()) {
+                if (b < 0) {
+                    return null;
+                }
+                if (b != '\r') {
+                    line.write(b);
+                }
+            }
+            return line.toString(StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.github.nordix.environment;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import io.github.nordix.baoclient.RestClient;
+import io.github.nordix.baoclient.UnixSocketTransport;
+
+/**
+ * Compares the latency of the Unix domain socket transport with the TCP transport of {@link RestClient}.
+ * <p>
+ * Starts a stand-in for the OpenBao agent that answers every request with a small KV secret, on both a Unix
+ * domain socket and a TCP port on the loopback interface, and sends the same requests over both.
+ *
+ * <pre>
+ * ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=io.github.nordix.environment.UnixSocketBenchmark -Dexec.args="20000"
+ * </pre>
+ */
+public class UnixSocketBenchmark {
+
+    private static final String RESPONSE_BODY = "{\"data\":{\"secret\":\"benchmark-secret-value\"},"
+            + "\"lease_duration\":2764800}";
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int warmup = requests / 10;
+
+        Path socketPath = Files.createTempDirectory("bao-benchmark").resolve("agent.sock");
+        ServerSocketChannel unixServer = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        unixServer.bind(UnixDomainSocketAddress.of(socketPath));
+        ServerSocketChannel tcpServer = ServerSocketChannel.open(StandardProtocolFamily.INET);
+        tcpServer.bind(new InetSocketAddress("127.0.0.1", 0));
+        startListener(unixServer);
+        startListener(tcpServer);
+
+        int port = ((InetSocketAddress) tcpServer.getLocalAddress()).getPort();
+        try (UnixSocketTransport transport = new UnixSocketTransport(URI.create("unix://" + socketPath))) {
+            RestClient tcp = new RestClient(URI.create("http://127.0.0.1:" + port));
+            RestClient unix = new RestClient(transport);
+
+            run("tcp", tcp, warmup);
+            run("unix", unix, warmup);
+            report("tcp", run("tcp", tcp, requests));
+            report("unix", run("unix", unix, requests));
+        } finally {
+            unixServer.close();
+            tcpServer.close();
+            Files.deleteIfExists(socketPath);
+            Files.deleteIfExists(socketPath.getParent());
+        }
+    }
+
+    private static long[] run(String name, RestClient client, int requests) {
+        long[] latencies = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            long startedAt = System.nanoTime();
+            int statusCode = client.sendRequest("v1/secret/keycloak/benchmark", "GET").statusCode();
+            latencies[i] = System.nanoTime() - startedAt;
+            if (statusCode != 200) {
+                throw new IllegalStateException(name + ": unexpected status " + statusCode);
+            }
+        }
+        return latencies;
+    }
+
+    private static void report(String name, long[] latencies) {
+        long total = Arrays.stream(latencies).sum();
+        Arrays.sort(latencies);
+        System.out.printf("%-5s %8d requests  %10.0f req/s  p50 %7.1f us  p99 %7.1f us%n", name, latencies.length,
+                latencies.length / (total / 1e9),
+                latencies[latencies.length / 2] / 1e3,
+                latencies[(int) (latencies.length * 0.99)] / 1e3);
+    }
+
+    /**
+     * Accepts connections and answers requests on them until the client closes the connection.
+     */
+    private static void startListener(ServerSocketChannel server) {
+        Thread acceptor = new Thread(() -> {
+            while (server.isOpen()) {
+                try {
+                    SocketChannel channel = server.accept();
+                    Thread handler = new Thread(() -> serve(channel));
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private static void serve(SocketChannel channel) {
+        byte[] body = RESPONSE_BODY.getBytes(StandardCharsets.UTF_8);
+        byte[] response = ("HTTP/1.1 200 OK\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "\r\n" + RESPONSE_BODY).getBytes(StandardCharsets.UTF_8);
+        try (channel;
+                InputStream in = Channels.newInputStream(channel);
+                OutputStream out = Channels.newOutputStream(channel)) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.ISO_8859_1));
+            while (true) {
+                String line = reader.readLine();
+                if (line == null) {
+                    return;
+                }
+                int contentLength = 0;
+                for (; line != null && !line.isEmpty(); line = reader.readLine()) {
+                    if (line.toLowerCase().startsWith("content-length:")) {
+                        contentLength = Integer.parseInt(line.substring(15).trim());
+                    }
+                }
+                if (reader.skip(contentLength) < contentLength) {
+                    return;
+                }
+                out.write(response);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Client closed the connection.
+        }
+    }
+}
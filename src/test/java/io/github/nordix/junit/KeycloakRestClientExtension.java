@@ -9,7 +9,10 @@
 
 package io.github.nordix.junit;
 
+import java.io.IOException;
 import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.HashMap;
 import java.util.List;
@@ -36,6 +39,7 @@ public class KeycloakRestClientExtension extends RestClient implements BeforeEac
     private final String realm;
     private final String username;
     private final String password;
+    private String accessToken;
 
     /**
      * Create a Keycloak ADMIN REST client with the specified base URL and default
@@ -76,8 +80,8 @@ public class KeycloakRestClientExtension extends RestClient implements BeforeEac
                 throw new RuntimeException("Failed to get token: " + resp.body());
             }
             this.removeAllHeaders();
-            String token = resp.body().get("access_token").asText();
-            withHeader("Authorization", "Bearer " + token);
+            accessToken = resp.body().get("access_token").asText();
+            withHeader("Authorization", "Bearer " + accessToken);
         } catch (Exception e) {
             throw new RuntimeException("Failed to get token", e);
         }
@@ -253,6 +257,34 @@ public class KeycloakRestClientExtension extends RestClient implements BeforeEac
                 "Failed to perform partial import to realm: " + realmName + " " + resp.body());
     }
 
+    /**
+     * Send a request with the given headers and return the response body as a string.
+     * This can be used for endpoints that do not produce or consume JSON, and for conditional requests.
+     *
+     * @param endpoint the endpoint to send the request to
+     * @param method   the HTTP method
+     * @param headers  the request headers, e.g. Content-Type or If-None-Match
+     * @param body     the request body, or null to send no body
+     * @return the response
+     */
+    public HttpResponse<String> sendRawRequest(String endpoint, String method, Map<String, String> headers,
+            String body) {
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+                .uri(getBaseUrl().resolve(endpoint))
+                .header("Authorization", "Bearer " + accessToken)
+                .method(method, body != null ? HttpRequest.BodyPublishers.ofString(body)
+                        : HttpRequest.BodyPublishers.noBody());
+        headers.forEach(requestBuilder::header);
+        try {
+            return HttpClient.newHttpClient().send(requestBuilder.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to send " + method + " request to " + endpoint, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Request to " + endpoint + " was interrupted", e);
+        }
+    }
+
     public void beforeEach(ExtensionContext context) throws Exception {
         waitForReady();
         login();
@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+
+package io.github.nordix.keycloak.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.github.nordix.baoclient.BaoClient;
+import io.github.nordix.baoclient.CircuitBreaker;
+import io.github.nordix.baoclient.ConcurrencyLimiter;
+import io.github.nordix.baoclient.ConcurrencyLimiter.Priority;
+
+class BaoClientFactoryTest {
+
+    private static final String REALM = "realm";
+
+    private HttpServer server;
+    private Path tokenFile;
+    private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final CountDownLatch unblock = new CountDownLatch(1);
+
+    @BeforeEach
+    void startServer() throws IOException {
+        tokenFile = Files.createTempFile("token", null);
+        Files.writeString(tokenFile, "token");
+
+        // Stand-in for OpenBao: the path tells how to respond.
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/secret/", exchange -> {
+            String path = exchange.getRequestURI().getPath().substring("/v1/secret/".length());
+            if (path.equals("blocker")) {
+                blocked.countDown();
+                try {
+                    unblock.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else if (path.equals("fail")) {
+                respond(exchange, 500, "{\"errors\":[\"internal error\"]}");
+                return;
+            }
+            received.add(path);
+            respond(exchange, 200, "{\"data\":{\"value\":\"" + path + "\"}}");
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        unblock.countDown();
+        server.stop(0);
+        Files.deleteIfExists(tokenFile);
+    }
+
+    @Test
+    void testProvidersShareConcurrencyLimiter() throws Exception {
+        try (BaoClientFactory vault = new BaoClientFactory(config().toProviderConfig(), "vault");
+                BaoClientFactory secretsManager = new BaoClientFactory(config().toProviderConfig(),
+                        "secrets-manager")) {
+            ConcurrencyLimiter limiter = vault.getConcurrencyLimiter();
+            Assertions.assertSame(limiter, secretsManager.getConcurrencyLimiter());
+
+            // Occupy the only slot, then queue administrative requests through the Secrets Manager and logins
+            // through the Vault provider.
+            List<Thread> threads = new ArrayList<>();
+            threads.add(get(vault, Priority.INTERACTIVE, "blocker"));
+            Assertions.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 5; i++) {
+                threads.add(get(secretsManager, Priority.ADMIN, "admin-" + i));
+                awaitQueued(limiter, i + 1);
+            }
+            for (int i = 0; i < 5; i++) {
+                threads.add(get(vault, Priority.INTERACTIVE, "interactive-" + i));
+                awaitQueued(limiter, i + 6);
+            }
+
+            unblock.countDown();
+            for (Thread thread : threads) {
+                thread.join(10000);
+            }
+
+            // Logins are weighted 4:1 against the administrative requests that were queued before them.
+            Assertions.assertEquals(List.of("blocker",
+                    "interactive-0", "interactive-1", "interactive-2", "admin-0",
+                    "interactive-3", "interactive-4", "admin-1", "admin-2", "admin-3", "admin-4"), received);
+        }
+    }
+
+    @Test
+    void testProvidersShareCircuitBreaker() {
+        MapConfigScope scope = config().with("circuit-breaker-minimum-calls", "1");
+        try (BaoClientFactory vault = new BaoClientFactory(scope.toProviderConfig(), "vault");
+                BaoClientFactory secretsManager = new BaoClientFactory(scope.toProviderConfig(),
+                        "secrets-manager")) {
+            Assertions.assertThrows(BaoClient.BaoClientException.class,
+                    () -> vault.create(REALM, Priority.INTERACTIVE).kv1GetSecret("secret", "fail"));
+
+            Assertions.assertEquals(CircuitBreaker.State.OPEN, secretsManager.getCircuitBreakerState());
+            Assertions.assertFalse(secretsManager.isAvailable());
+        }
+    }
+
+    @Test
+    void testLimitsReleasedWhenFactoriesClosed() {
+        ConcurrencyLimiter first;
+        try (BaoClientFactory factory = new BaoClientFactory(config().toProviderConfig(), "vault")) {
+            first = factory.getConcurrencyLimiter();
+        }
+        try (BaoClientFactory factory = new BaoClientFactory(config().toProviderConfig(), "vault")) {
+            Assertions.assertNotSame(first, factory.getConcurrencyLimiter());
+        }
+    }
+
+    @Test
+    void testDifferentAddressesDoNotShareLimits() {
+        try (BaoClientFactory vault = new BaoClientFactory(config().toProviderConfig(), "vault");
+                BaoClientFactory secretsManager = new BaoClientFactory(config()
+                        .with("address", "http://127.0.0.2:" + server.getAddress().getPort())
+                        .toProviderConfig(), "secrets-manager")) {
+            Assertions.assertNotSame(vault.getConcurrencyLimiter(), secretsManager.getConcurrencyLimiter());
+        }
+    }
+
+    private MapConfigScope config() {
+        return new MapConfigScope()
+                .with("address", "http://127.0.0.1:" + server.getAddress().getPort())
+                .with("auth-method", ProviderConfig.AUTH_METHOD_TOKEN_FILE)
+                .with("token-file", tokenFile.toString())
+                .with("max-concurrent-requests", "1")
+                .with("max-retries", "0");
+    }
+
+    private static Thread get(BaoClientFactory factory, Priority priority, String path) {
+        Thread thread = new Thread(() -> factory.create(REALM, priority).kv1GetSecret("secret", path));
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitQueued(ConcurrencyLimiter limiter, int queued) throws InterruptedException {
+        for (int i = 0; i < 500 && limiter.getQueued() < queued; i++) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(queued, limiter.getQueued());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.readAllBytes();
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+
+package io.github.nordix.keycloak.common;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.keycloak.Config;
+
+/**
+ * Provider configuration from a map, for creating {@link ProviderConfig} in tests.
+ */
+class MapConfigScope extends Config.SystemPropertiesScope {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    MapConfigScope() {
+        super("");
+    }
+
+    MapConfigScope with(String key, String value) {
+        values.put(key, value);
+        return this;
+    }
+
+    ProviderConfig toProviderConfig() {
+        return new ProviderConfig(this, "--spi-test--");
+    }
+
+    @Override
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    @Override
+    public String get(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public Boolean getBoolean(String key, Boolean defaultValue) {
+        String value = values.get(key);
+        return value != null ? Boolean.valueOf(value) : defaultValue;
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+
+package io.github.nordix.keycloak.common;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class OffHeapSecretStoreTest {
+
+    /** Number of 4096 byte slots in a slab. */
+    private static final int LARGE_SLOTS = OffHeapSecretStore.SLAB_SIZE / 4096;
+
+    @Test
+    void testPutAndAcquire() {
+        OffHeapSecretStore store = new OffHeapSecretStore(OffHeapSecretStore.SLAB_SIZE);
+        OffHeapSecretStore.Slot slot = store.put(key("a"), entry("secret-a"), store.stamp());
+        Assertions.assertEquals("secret-a", toString(slot.view()));
+        Assertions.assertTrue(slot.view().isReadOnly());
+        store.release(slot);
+
+        slot = store.acquire(key("a"));
+        Assertions.assertEquals("secret-a", toString(slot.view()));
+        store.release(slot);
+        Assertions.assertNull(store.acquire(key("b")));
+    }
+
+    @Test
+    void testLargeSecretNotStored() {
+        OffHeapSecretStore store = new OffHeapSecretStore(OffHeapSecretStore.SLAB_SIZE);
+        Assertions.assertNull(store.put(key("a"), entry("x".repeat(4097)), store.stamp()));
+        Assertions.assertEquals(0, store.size());
+    }
+
+    @Test
+    void testExpiredLeaseNotReturned() {
+        OffHeapSecretStore store = new OffHeapSecretStore(OffHeapSecretStore.SLAB_SIZE);
+        long fetchedAt = System.currentTimeMillis() - 2000;
+        store.release(store.put(key("a"), SecretCacheEntry.of("secret-a", fetchedAt, 1, 0), store.stamp()));
+
+        Assertions.assertNull(store.acquire(key("a")));
+        Assertions.assertEquals(0, store.size());
+    }
+
+    @Test
+    void testRemovedSlotIsZeroed() {
+        OffHeapSecretStore store = new OffHeapSecretStore(OffHeapSecretStore.SLAB_SIZE);
+        OffHeapSecretStore.Slot slot = store.put(key("a"), entry("secret-a"), store.stamp());
+        ByteBuffer view = slot.view();
+        store.release(slot);
+
+        store.remove(key("a"));
+        Assertions.assertEquals("\0".repeat("secret-a".length()), toString(view));
+        Assertions.assertNull(store.acquire(key("a")));
+    }
+
+    @Test
+    void testPinnedSlotZeroedWhenReleased() {
+        OffHeapSecretStore store = new OffHeapSecretStore(OffHeapSecretStore.SLAB_SIZE);
+        store.release(store.put(key("a"), entry("secret-a"), store.stamp()));
+        OffHeapSecretStore.Slot first = store.acquire(key("a"));
+        OffHeapSecretStore.Slot second = store.acquire(key("a"));
+        ByteBuffer view = first.view();
+
+        // The secret is no longer returned, but stays readable until every pin is released.
+        store.remove(key("a"));
+        Assertions.assertNull(store.acquire(key("a")));
+        store.release(first);
+        Assertions.assertEquals("secret-a", toString(view));
+        store.release(second);
+        Assertions.assertEquals("\0".repeat("secret-a".length()), toString(view));
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvicted() {
+        OffHeapSecretStore store = new OffHeapSecretStore(OffHeapSecretStore.SLAB_SIZE);
+        for (int i = 0; i < LARGE_SLOTS; i++) {
+            store.release(store.put(key("large-" + i), entry(large(i)), store.stamp()));
+        }
+        store.release(store.acquire(key("large-0")));
+
+        store.release(store.put(key("new"), entry(large(99)), store.stamp()));
+        Assertions.assertEquals(LARGE_SLOTS, store.size());
+        Assertions.assertNull(store.acquire(key("large-1")));
+        OffHeapSecretStore.Slot slot = store.acquire(key("large-0"));
+        Assertions.assertEquals(large(0), toString(slot.view()));
+        store.release(slot);
+    }
+
+    @Test
+    void testPinnedSecretsNotEvicted() {
+        OffHeapSecretStore store = new OffHeapSecretStore(OffHeapSecretStore.SLAB_SIZE);
+        for (int i = 0; i < LARGE_SLOTS; i++) {
+            store.put(key("large-" + i), entry(large(i)), store.stamp());
+        }
+
+        // All slots of the only slab are pinned.
+        Assertions.assertNull(store.put(key("new"), entry(large(99)), store.stamp()));
+        Assertions.assertNull(store.put(key("small"), entry("secret"), store.stamp()));
+        Assertions.assertEquals(LARGE_SLOTS, store.size());
+    }
+
+    @Test
+    void testFreeSlabMovedToOtherSizeClass() {
+        OffHeapSecretStore store = new OffHeapSecretStore(2 * OffHeapSecretStore.SLAB_SIZE);
+        for (int i = 0; i <= LARGE_SLOTS; i++) {
+            store.release(store.put(key("large-" + i), entry(large(i)), store.stamp()));
+        }
+        Assertions.assertEquals(2, store.slabCount());
+
+        // The second slab has no secrets left, and is taken by the small secret without evicting any secret.
+        store.remove(key("large-" + LARGE_SLOTS));
+        store.release(store.put(key("small"), entry("secret"), store.stamp()));
+        Assertions.assertEquals(LARGE_SLOTS + 1, store.size());
+        Assertions.assertEquals(2, store.slabCount());
+    }
+
+    @Test
+    void testSizeClassNotShutOut() {
+        OffHeapSecretStore store = new OffHeapSecretStore(OffHeapSecretStore.SLAB_SIZE);
+        for (int i = 0; i < LARGE_SLOTS; i++) {
+            store.release(store.put(key("large-" + i), entry(large(i)), store.stamp()));
+        }
+
+        // The only slab is taken from the large secrets.
+        OffHeapSecretStore.Slot slot = store.put(key("small"), entry("secret"), store.stamp());
+        Assertions.assertNotNull(slot);
+        Assertions.assertEquals("secret", toString(slot.view()));
+        store.release(slot);
+        Assertions.assertEquals(1, store.size());
+        Assertions.assertNull(store.acquire(key("large-0")));
+
+        // And back.
+        store.release(store.put(key("large"), entry(large(0)), store.stamp()));
+        Assertions.assertEquals(1, store.size());
+        Assertions.assertNull(store.acquire(key("small")));
+    }
+
+    @Test
+    void testSecretInvalidatedWhileReadNotStored() {
+        OffHeapSecretStore store = new OffHeapSecretStore(OffHeapSecretStore.SLAB_SIZE);
+        long stamp = store.stamp();
+
+        // The cache entry changes on another node after the stamp was taken and before the old value is stored.
+        store.remove(key("a"));
+        Assertions.assertNull(store.put(key("a"), entry("old"), stamp));
+        Assertions.assertNull(store.acquire(key("a")));
+
+        // Invalidation of any secret discards the fill.
+        stamp = store.stamp();
+        store.remove(key("b"));
+        Assertions.assertNull(store.put(key("a"), entry("old"), stamp));
+
+        store.release(store.put(key("a"), entry("new"), store.stamp()));
+        OffHeapSecretStore.Slot slot = store.acquire(key("a"));
+        Assertions.assertEquals("new", toString(slot.view()));
+        store.release(slot);
+    }
+
+    @Test
+    void testCloseZeroesSlabs() {
+        OffHeapSecretStore store = new OffHeapSecretStore(OffHeapSecretStore.SLAB_SIZE);
+        OffHeapSecretStore.Slot slot = store.put(key("a"), entry("secret-a"), store.stamp());
+        ByteBuffer view = slot.view();
+        store.close();
+        Assertions.assertEquals("\0".repeat("secret-a".length()), toString(view));
+        Assertions.assertEquals(0, store.size());
+    }
+
+    private static SecretCacheKey key(String name) {
+        return SecretCacheKey.of("secret/keycloak/realm/" + name, "secret");
+    }
+
+    private static SecretCacheEntry entry(String value) {
+        return SecretCacheEntry.of(value, System.currentTimeMillis(), 0, 0);
+    }
+
+    /**
+     * Returns a value of the largest size class.
+     */
+    private static String large(int i) {
+        return String.format("%04d", i) + "x".repeat(3000);
+    }
+
+    private static String toString(ByteBuffer view) {
+        byte[] bytes = new byte[view.remaining()];
+        view.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+
+package io.github.nordix.keycloak.common;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ProviderConfigTest {
+
+    @Test
+    void testOffHeapStoreSize() {
+        Assertions.assertEquals(0, offHeapStore("0").toProviderConfig().getOffHeapStoreSize());
+        Assertions.assertEquals(65536, offHeapStore("65536").toProviderConfig().getOffHeapStoreSize());
+        Assertions.assertEquals(1048576, offHeapStore("1048576").toProviderConfig().getOffHeapStoreSize());
+
+        // Not even one slab.
+        Assertions.assertThrows(IllegalArgumentException.class, () -> offHeapStore("1000").toProviderConfig());
+
+        // Ignored without the Infinispan cache.
+        Assertions.assertEquals(0, offHeapStore("1048576").with("cache-name", null).toProviderConfig()
+                .getOffHeapStoreSize());
+    }
+
+    private static MapConfigScope offHeapStore(String size) {
+        return new MapConfigScope()
+                .with("address", "http://127.0.0.1:8200")
+                .with("auth-method", ProviderConfig.AUTH_METHOD_TOKEN_FILE)
+                .with("token-file", "/var/run/secrets/openbao/token")
+                .with("cache-name", "secrets")
+                .with("off-heap-store-size", size);
+    }
+}
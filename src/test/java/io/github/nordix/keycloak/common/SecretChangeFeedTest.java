@@ -0,0 +1,270 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.github.nordix.keycloak.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SecretChangeFeedTest {
+
+    private static final String REALM = "realm-id";
+    private static final String PATH = "secrets/realm";
+
+    @Test
+    void testReadReturnsChangesAfterCursor() {
+        SecretChangeFeed feed = new SecretChangeFeed(10);
+        String cursor = feed.getCursor();
+
+        feed.appendOwn(List.of(
+                change("secret-1", false),
+                new SecretChangeEvent("other-realm", PATH, "secret-2", false),
+                change("secret-3", true)));
+
+        SecretChangeFeed.Changes changes = feed.read(REALM, cursor, 100);
+        Assertions.assertFalse(changes.isReset());
+        Assertions.assertEquals(2, changes.getEvents().size());
+        Assertions.assertEquals("secret-1", changes.getEvents().get(0).getId());
+        Assertions.assertEquals("secret-3", changes.getEvents().get(1).getId());
+        Assertions.assertTrue(changes.getEvents().get(1).isDeleted());
+        Assertions.assertEquals(3, changes.getEvents().get(1).getSequence());
+
+        // Nothing new after the returned cursor.
+        changes = feed.read(REALM, changes.getCursor(), 100);
+        Assertions.assertFalse(changes.isReset());
+        Assertions.assertTrue(changes.getEvents().isEmpty());
+    }
+
+    @Test
+    void testReadLimitsNumberOfChanges() {
+        SecretChangeFeed feed = new SecretChangeFeed(10);
+        String cursor = feed.getCursor();
+        for (int i = 0; i < 5; i++) {
+            feed.appendOwn(List.of(change("secret-" + i, false)));
+        }
+
+        SecretChangeFeed.Changes first = feed.read(REALM, cursor, 3);
+        Assertions.assertEquals(3, first.getEvents().size());
+
+        SecretChangeFeed.Changes second = feed.read(REALM, first.getCursor(), 3);
+        Assertions.assertFalse(second.isReset());
+        Assertions.assertEquals(2, second.getEvents().size());
+        Assertions.assertEquals("secret-3", second.getEvents().get(0).getId());
+    }
+
+    @Test
+    void testWatchCompletedByAppend() {
+        SecretChangeFeed feed = new SecretChangeFeed(10);
+        List<SecretChangeFeed.Changes> completed = new ArrayList<>();
+        SecretChangeFeed.Watch watch = feed.watch(REALM, feed.getCursor(), 100, completed::add);
+        Assertions.assertTrue(completed.isEmpty());
+        Assertions.assertEquals(1, feed.getWatchCount());
+
+        // Changes of other realms do not complete the watch.
+        feed.appendOwn(List.of(new SecretChangeEvent("other-realm", PATH, "secret-1", false)));
+        Assertions.assertTrue(completed.isEmpty());
+
+        feed.appendOwn(List.of(change("secret-2", false)));
+        Assertions.assertEquals(1, completed.size());
+        Assertions.assertEquals(1, completed.get(0).getEvents().size());
+        Assertions.assertEquals("secret-2", completed.get(0).getEvents().get(0).getId());
+        Assertions.assertEquals(0, feed.getWatchCount());
+        Assertions.assertTrue(feed.read(REALM, completed.get(0).getCursor(), 100).getEvents().isEmpty());
+
+        // The listener is called only once.
+        watch.timeout();
+        feed.appendOwn(List.of(change("secret-3", false)));
+        Assertions.assertEquals(1, completed.size());
+    }
+
+    @Test
+    void testWatchCompletedImmediately() {
+        SecretChangeFeed feed = new SecretChangeFeed(10);
+        String cursor = feed.getCursor();
+        feed.appendOwn(List.of(change("secret-1", false)));
+
+        List<SecretChangeFeed.Changes> completed = new ArrayList<>();
+        feed.watch(REALM, cursor, 100, completed::add);
+        Assertions.assertEquals(1, completed.size());
+        Assertions.assertEquals(1, completed.get(0).getEvents().size());
+
+        // A cursor that cannot be continued is reset without waiting.
+        feed.watch(REALM, "not-a-cursor", 100, completed::add);
+        Assertions.assertEquals(2, completed.size());
+        Assertions.assertTrue(completed.get(1).isReset());
+        Assertions.assertEquals(0, feed.getWatchCount());
+    }
+
+    @Test
+    void testWatchTimeout() {
+        SecretChangeFeed feed = new SecretChangeFeed(10);
+        String cursor = feed.getCursor();
+        List<SecretChangeFeed.Changes> completed = new ArrayList<>();
+        SecretChangeFeed.Watch watch = feed.watch(REALM, cursor, 100, completed::add);
+
+        // Changes of other realms advance the cursor of the timed out watch.
+        feed.appendOwn(List.of(new SecretChangeEvent("other-realm", PATH, "secret-1", false)));
+        watch.timeout();
+        Assertions.assertEquals(1, completed.size());
+        Assertions.assertFalse(completed.get(0).isReset());
+        Assertions.assertTrue(completed.get(0).getEvents().isEmpty());
+        Assertions.assertEquals(0, feed.getWatchCount());
+
+        feed.appendOwn(List.of(change("secret-2", false)));
+        List<SecretChangeEvent> events = feed.read(REALM, completed.get(0).getCursor(), 100).getEvents();
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals("secret-2", events.get(0).getId());
+    }
+
+    @Test
+    void testCursorContinuedOnOtherNode() {
+        SecretChangeFeed a = new SecretChangeFeed(10, 0);
+        SecretChangeFeed b = new SecretChangeFeed(10, 0);
+        String cursor = a.getCursor();
+
+        b.append(a.appendOwn(List.of(change("secret-1", false))));
+        SecretChangeFeed.Changes changes = b.read(REALM, cursor, 100);
+        Assertions.assertFalse(changes.isReset());
+        Assertions.assertEquals(List.of("secret-1"), ids(changes));
+
+        // Changes made through both nodes, received in different order on each node.
+        List<SecretChangeEvent> fromA = a.appendOwn(List.of(change("secret-2", false)));
+        List<SecretChangeEvent> fromB = b.appendOwn(List.of(change("secret-3", false)));
+        a.append(fromB);
+        b.append(fromA);
+
+        changes = a.read(REALM, changes.getCursor(), 100);
+        Assertions.assertFalse(changes.isReset());
+        Assertions.assertEquals(List.of("secret-2", "secret-3"), ids(changes));
+
+        // Nothing new on either node, and a later change is returned once.
+        Assertions.assertTrue(b.read(REALM, changes.getCursor(), 100).getEvents().isEmpty());
+        b.append(a.appendOwn(List.of(change("secret-4", false))));
+        changes = b.read(REALM, changes.getCursor(), 100);
+        Assertions.assertEquals(List.of("secret-4"), ids(changes));
+        Assertions.assertTrue(a.read(REALM, changes.getCursor(), 100).getEvents().isEmpty());
+    }
+
+    @Test
+    void testChangesOfOriginNewToCursorAreReturned() {
+        SecretChangeFeed a = new SecretChangeFeed(10, 0);
+        SecretChangeFeed b = new SecretChangeFeed(10, 0);
+        SecretChangeFeed c = new SecretChangeFeed(10, 0);
+        String cursor = a.getCursor();
+
+        // Node A has not received the changes of node C, but node B has.
+        b.append(c.appendOwn(List.of(change("secret-1", false))));
+        SecretChangeFeed.Changes changes = b.read(REALM, cursor, 100);
+        Assertions.assertFalse(changes.isReset());
+        Assertions.assertEquals(List.of("secret-1"), ids(changes));
+
+        // Node A does not know node C, and has not missed its changes since it was started before the listing.
+        Assertions.assertFalse(a.read(REALM, changes.getCursor(), 100).isReset());
+    }
+
+    @Test
+    void testCursorListedBeforeNodeStartedIsReset() {
+        SecretChangeFeed a = new SecretChangeFeed(10, 0);
+        String cursor = a.getCursor();
+
+        // Node B started after the listing, and may have missed changes.
+        SecretChangeFeed b = new SecretChangeFeed(10, System.currentTimeMillis() + 1000);
+        assertReset(b, cursor);
+
+        // Within the tolerated clock skew.
+        b = new SecretChangeFeed(10, System.currentTimeMillis() - SecretChangeFeed.CLOCK_SKEW_MILLIS / 2);
+        assertReset(b, cursor);
+
+        // The reset cursor is continued on both nodes.
+        String reset = b.read(REALM, cursor, 100).getCursor();
+        Assertions.assertFalse(b.read(REALM, reset, 100).isReset());
+        Assertions.assertFalse(a.read(REALM, reset, 100).isReset());
+    }
+
+    @Test
+    void testMissedChangesOfOtherNodeResetCursor() {
+        SecretChangeFeed a = new SecretChangeFeed(10, 0);
+        SecretChangeFeed b = new SecretChangeFeed(10, 0);
+        List<SecretChangeEvent> first = a.appendOwn(List.of(change("secret-1", false)));
+        b.append(first);
+        String cursor = a.read(REALM, a.getCursor(), 100).getCursor();
+
+        // Node B did not receive the second change of node A.
+        a.appendOwn(List.of(change("secret-2", false)));
+        b.append(a.appendOwn(List.of(change("secret-3", false))));
+
+        Assertions.assertEquals(List.of("secret-2", "secret-3"), ids(a.read(REALM, cursor, 100)));
+        assertReset(b, cursor);
+    }
+
+    @Test
+    void testStaleCursorIsReset() {
+        SecretChangeFeed feed = new SecretChangeFeed(4);
+        String cursor = feed.getCursor();
+        for (int i = 0; i < 4; i++) {
+            feed.appendOwn(List.of(change("secret-" + i, false)));
+        }
+
+        // All changes after the cursor are still in the ring buffer.
+        Assertions.assertEquals(4, feed.read(REALM, cursor, 100).getEvents().size());
+        String partial = feed.read(REALM, cursor, 1).getCursor();
+
+        // The first change after the cursor has been overwritten.
+        feed.appendOwn(List.of(change("secret-4", false)));
+        assertReset(feed, cursor);
+        Assertions.assertEquals(4, feed.read(REALM, partial, 100).getEvents().size());
+    }
+
+    @Test
+    void testMalformedOrFutureCursorIsReset() {
+        SecretChangeFeed feed = new SecretChangeFeed(10);
+        feed.appendOwn(List.of(change("secret-1", false)));
+        String[] current = decode(feed.getCursor()).split(":");
+        String epoch = current[2].substring(0, current[2].indexOf('='));
+
+        assertReset(feed, null);
+        assertReset(feed, "not-a-cursor");
+        assertReset(feed, encode("not-a-cursor"));
+        assertReset(feed, encode(current[0] + ":" + current[1] + ":" + epoch + "=-1"));
+        assertReset(feed, encode(current[0] + ":" + current[1] + ":" + epoch + "=x"));
+        assertReset(feed, encode(current[0] + ":" + current[1] + ":" + epoch + "=1," + epoch + "=1"));
+
+        // This node has made only one change.
+        assertReset(feed, encode(current[0] + ":" + current[1] + ":" + epoch + "=100"));
+        Assertions.assertFalse(
+                feed.read(REALM, encode(current[0] + ":" + current[1] + ":" + epoch + "=1"), 100).isReset());
+    }
+
+    private static SecretChangeEvent change(String id, boolean deleted) {
+        return new SecretChangeEvent(REALM, PATH, id, deleted);
+    }
+
+    private static List<String> ids(SecretChangeFeed.Changes changes) {
+        return changes.getEvents().stream().map(SecretChangeEvent::getId).toList();
+    }
+
+    private static String encode(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+
+    private static void assertReset(SecretChangeFeed feed, String cursor) {
+        SecretChangeFeed.Changes changes = feed.read(REALM, cursor, 100);
+        Assertions.assertTrue(changes.isReset(), "Expected reset for cursor " + cursor);
+        Assertions.assertTrue(changes.getEvents().isEmpty());
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+
+package io.github.nordix.keycloak.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.infinispan.protostream.ProtobufUtil;
+import org.infinispan.protostream.SerializationContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SecretsCacheSchemaTest {
+
+    private SerializationContext ctx;
+
+    @BeforeEach
+    void registerSchema() {
+        ctx = ProtobufUtil.newSerializationContext();
+        SecretsCacheSchema.INSTANCE.registerSchema(ctx);
+        SecretsCacheSchema.INSTANCE.registerMarshallers(ctx);
+    }
+
+    @Test
+    void testKeyRoundTrip() throws IOException {
+        SecretCacheKey key = SecretCacheKey.of("secret/keycloak/realm/database", "password");
+        Assertions.assertEquals(key, roundTrip(key, SecretCacheKey.class));
+    }
+
+    @Test
+    void testEntryRoundTrip() throws IOException {
+        SecretCacheEntry entry = SecretCacheEntry.of("s3cr3t", 1700000000000L, 3600, 7);
+        SecretCacheEntry read = roundTrip(entry, SecretCacheEntry.class);
+        Assertions.assertEquals(entry, read);
+        Assertions.assertEquals("s3cr3t", read.getValueAsString());
+        Assertions.assertEquals(1700000000000L, read.getFetchedAt());
+        Assertions.assertEquals(3600, read.getLeaseTtl());
+        Assertions.assertEquals(7, read.getKvVersion());
+        Assertions.assertFalse(read.isNegative());
+
+        // Fields with default values are not written, and read back as defaults.
+        SecretCacheEntry negative = SecretCacheEntry.negative(1700000000000L);
+        Assertions.assertEquals(negative, roundTrip(negative, SecretCacheEntry.class));
+        Assertions.assertEquals(SecretCacheEntry.of("", 0, 0, 0), roundTrip(SecretCacheEntry.of("", 0, 0, 0),
+                SecretCacheEntry.class));
+    }
+
+    @Test
+    void testEntryWithUnknownFieldsIsRead() throws IOException {
+        // As written by a newer version with additional fields of each wire type.
+        SecretCacheEntry entry = SecretCacheEntry.of("s3cr3t", 1700000000000L, 3600, 7);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.writeBytes(ProtobufUtil.toByteArray(ctx, entry));
+        writeVarint(bytes, 15, 42);
+        writeString(bytes, 16, "unknown");
+        writeTag(bytes, 17, 1);
+        bytes.writeBytes(new byte[8]);
+        writeTag(bytes, 18, 5);
+        bytes.writeBytes(new byte[4]);
+
+        Assertions.assertEquals(entry, ProtobufUtil.fromByteArray(ctx, bytes.toByteArray(), SecretCacheEntry.class));
+    }
+
+    @Test
+    void testChangeEventRoundTrip() throws IOException {
+        SecretChangeEvent event = new SecretChangeEvent("realm-id", "secret/keycloak/realm", "database", true)
+                .withOrigin("3f9a1c", 12);
+        SecretChangeEvent read = roundTrip(event, SecretChangeEvent.class);
+        Assertions.assertEquals("realm-id", read.getRealmId());
+        Assertions.assertEquals("secret/keycloak/realm", read.getPath());
+        Assertions.assertEquals("database", read.getId());
+        Assertions.assertTrue(read.isDeleted());
+        Assertions.assertEquals("3f9a1c", read.getOrigin());
+        Assertions.assertEquals(12, read.getSequence());
+
+        // A change that is not stamped is read without origin.
+        read = roundTrip(new SecretChangeEvent("realm-id", "secret/keycloak/realm", "database", false),
+                SecretChangeEvent.class);
+        Assertions.assertFalse(read.isDeleted());
+        Assertions.assertNull(read.getOrigin());
+        Assertions.assertEquals(0, read.getSequence());
+    }
+
+    @Test
+    void testChangeEventFromOlderVersionIsRead() throws IOException {
+        // As written by a version without the path, origin and sequence fields.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeString(bytes, 1, "realm-id");
+        writeString(bytes, 2, "database");
+        writeVarint(bytes, 3, 1);
+
+        SecretChangeEvent read = ProtobufUtil.fromByteArray(ctx, bytes.toByteArray(), SecretChangeEvent.class);
+        Assertions.assertEquals("realm-id", read.getRealmId());
+        Assertions.assertEquals("database", read.getId());
+        Assertions.assertTrue(read.isDeleted());
+        Assertions.assertEquals("", read.getPath());
+        Assertions.assertNull(read.getOrigin());
+        Assertions.assertEquals(0, read.getSequence());
+    }
+
+    private <T> T roundTrip(T object, Class<T> type) throws IOException {
+        return ProtobufUtil.fromByteArray(ctx, ProtobufUtil.toByteArray(ctx, object), type);
+    }
+
+    private static void writeTag(ByteArrayOutputStream out, int fieldNumber, int wireType) {
+        writeRawVarint(out, (fieldNumber << 3) | wireType);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int fieldNumber, long value) {
+        writeTag(out, fieldNumber, 0);
+        writeRawVarint(out, value);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, int fieldNumber, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeTag(out, fieldNumber, 2);
+        writeRawVarint(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static void writeRawVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2025 OpenInfra Foundation Europe and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+
+package io.github.nordix.keycloak.common;
+
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class SecretsCacheTest {
+
+    private static final String REPLICATED = "replicated";
+    private static final String INVALIDATION = "invalidation";
+
+    private static DefaultCacheManager cacheManager;
+
+    @BeforeAll
+    static void startCacheManager() {
+        GlobalConfigurationBuilder global = GlobalConfigurationBuilder.defaultClusteredBuilder();
+        global.transport().clusterName("secrets-cache-test")
+                .addProperty("configurationFile", "default-configs/default-jgroups-tcp.xml");
+        global.serialization().addContextInitializer(SecretsCacheSchema.INSTANCE);
+        cacheManager = new DefaultCacheManager(global.build());
+        cacheManager.defineConfiguration(REPLICATED,
+                new ConfigurationBuilder().clustering().cacheMode(CacheMode.REPL_SYNC).build());
+        cacheManager.defineConfiguration(INVALIDATION,
+                new ConfigurationBuilder().clustering().cacheMode(CacheMode.INVALIDATION_SYNC).build());
+    }
+
+    @AfterAll
+    static void stopCacheManager() {
+        cacheManager.stop();
+    }
+
+    @Test
+    void testFetchedEntryStoredReplicated() {
+        assertFetchedEntryStored(REPLICATED);
+    }
+
+    @Test
+    void testFetchedEntryStoredInvalidation() {
+        assertFetchedEntryStored(INVALIDATION);
+    }
+
+    @Test
+    void testFillStartedBeforeWriteDiscardedReplicated() {
+        assertFillStartedBeforeWriteDiscarded(REPLICATED);
+    }
+
+    @Test
+    void testFillStartedBeforeWriteDiscardedInvalidation() {
+        assertFillStartedBeforeWriteDiscarded(INVALIDATION);
+    }
+
+    @Test
+    void testFillStartedBeforeInvalidateDiscardedReplicated() {
+        assertFillStartedBeforeInvalidateDiscarded(REPLICATED);
+    }
+
+    @Test
+    void testFillStartedBeforeInvalidateDiscardedInvalidation() {
+        assertFillStartedBeforeInvalidateDiscarded(INVALIDATION);
+    }
+
+    private static void assertFetchedEntryStored(String cacheName) {
+        SecretsCache cache = new SecretsCache(cacheManager.getCache(cacheName));
+        SecretCacheKey key = SecretCacheKey.of("secret/keycloak/realm/stored", "value");
+
+        long fetchStartedAt = cache.beginFetch(key);
+        Assertions.assertNull(cache.get(key));
+        cache.putFetched(key, SecretCacheEntry.of("fetched", fetchStartedAt, 0, 0));
+        Assertions.assertEquals("fetched", cache.get(key).getValueAsString());
+    }
+
+    private static void assertFillStartedBeforeWriteDiscarded(String cacheName) {
+        SecretsCache cache = new SecretsCache(cacheManager.getCache(cacheName));
+        SecretCacheKey key = SecretCacheKey.of("secret/keycloak/realm/written", "value");
+
+        long fetchStartedAt = cache.beginFetch(key);
+        cache.putWritten(key, "written");
+        // The fetch returns the value from before the write.
+        cache.putFetched(key, SecretCacheEntry.of("fetched", fetchStartedAt, 0, 0));
+        Assertions.assertEquals("written", cache.get(key).getValueAsString());
+    }
+
+    private static void assertFillStartedBeforeInvalidateDiscarded(String cacheName) {
+        SecretsCache cache = new SecretsCache(cacheManager.getCache(cacheName));
+        SecretCacheKey key = SecretCacheKey.of("secret/keycloak/realm/deleted", "value");
+        cache.putWritten(key, "written");
+
+        long fetchStartedAt = cache.beginFetch(key);
+        cache.invalidate(key);
+        cache.putFetched(key, SecretCacheEntry.of("fetched", fetchStartedAt, 0, 0));
+        Assertions.assertNull(cache.get(key));
+        Assertions.assertNull(cache.getStale(key));
+    }
+}
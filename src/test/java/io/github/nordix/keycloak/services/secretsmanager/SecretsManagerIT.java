@@ -9,7 +9,13 @@
 
 package io.github.nordix.keycloak.services.secretsmanager;
 
+import java.io.IOException;
+import java.net.URLEncoder;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +29,7 @@ import org.junit.jupiter.api.extension.ExtensionContext;
 import org.junit.jupiter.api.extension.RegisterExtension;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.github.nordix.baoclient.RestClient;
 import io.github.nordix.junit.KeycloakRestClientExtension;
@@ -44,6 +51,7 @@ class SecretsManagerIT {
 
     private static final String REALM = "secrets-manager-test-realm";
     private static final String API_PATH = "/admin/realms/" + REALM + "/secrets-manager";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     @RegisterExtension
     private final TestRealm testRealm = new TestRealm();
@@ -503,6 +511,442 @@ class SecretsManagerIT {
         }
     }
 
+    @Test
+    void testBatchGetSecrets() {
+        String secretId1 = "test-batch-get-1";
+        String secretId2 = "test-batch-get-2";
+        String missingId = "test-batch-get-missing";
+        String invalidId = "not a valid id";
+
+        keycloakAdminClient.sendRequest(API_PATH + "/" + secretId1, "PUT", Map.of("secret", "val1"));
+        keycloakAdminClient.sendRequest(API_PATH + "/" + secretId2, "PUT", Map.of("secret", "val2"));
+
+        // Get existing, missing and invalid secrets in one request.
+        HttpResponse<JsonNode> getResp = keycloakAdminClient.sendRequest(API_PATH + "/_batch-get", "POST",
+                Map.of("secret_ids", List.of(secretId1, missingId, secretId2, invalidId)));
+
+        Assertions.assertTrue(RestClient.isSuccessfulResponse(getResp), "Failed to get secrets: " + getResp.body());
+        JsonNode secrets = getResp.body().get("secrets");
+        Assertions.assertEquals(2, secrets.size());
+        Assertions.assertEquals(secretId1, secrets.get(0).get("id").asText());
+        Assertions.assertEquals("val1", secrets.get(0).get("secret").asText());
+        Assertions.assertEquals("${vault.test-batch-get-1}", secrets.get(0).get("vault_id").asText());
+        Assertions.assertEquals(secretId2, secrets.get(1).get("id").asText());
+        Assertions.assertEquals("val2", secrets.get(1).get("secret").asText());
+
+        JsonNode errors = getResp.body().get("errors");
+        Assertions.assertEquals(2, errors.size());
+        Assertions.assertEquals(missingId, errors.get(0).get("id").asText());
+        Assertions.assertEquals(404, errors.get(0).get("status").asInt());
+        Assertions.assertEquals(invalidId, errors.get(1).get("id").asText());
+        Assertions.assertEquals(400, errors.get(1).get("status").asInt());
+
+        // No IDs.
+        HttpResponse<JsonNode> emptyResp = keycloakAdminClient.sendRequest(API_PATH + "/_batch-get", "POST",
+                Map.of("secret_ids", List.of()));
+        Assertions.assertEquals(400, emptyResp.statusCode());
+
+        // Too many IDs.
+        List<String> tooMany = new java.util.ArrayList<>();
+        for (int i = 0; i <= 100; i++) {
+            tooMany.add("test-batch-get-" + i);
+        }
+        HttpResponse<JsonNode> tooManyResp = keycloakAdminClient.sendRequest(API_PATH + "/_batch-get", "POST",
+                Map.of("secret_ids", tooMany));
+        Assertions.assertEquals(400, tooManyResp.statusCode());
+    }
+
+    @Test
+    void testBatchWriteSecrets() {
+        String createdId = "test-batch-write-created";
+        String randomId = "test-batch-write-random";
+        String deletedId = "test-batch-write-deleted";
+        String invalidId = "not a valid id";
+
+        keycloakAdminClient.sendRequest(API_PATH + "/" + deletedId, "PUT", Map.of("secret", "to-be-deleted"));
+
+        Metrics metrics = new Metrics(OPENBAO_METRICS_URL);
+
+        // Create with value, create with random value, delete and an invalid ID in one request.
+        HttpResponse<JsonNode> writeResp = keycloakAdminClient.sendRequest(API_PATH + "/_batch-write", "POST",
+                Map.of("operations", List.of(
+                        Map.of("id", createdId, "secret", "created-value"),
+                        Map.of("id", randomId, "length", 32, "charset", "digit"),
+                        Map.of("id", deletedId, "action", "delete"),
+                        Map.of("id", invalidId, "secret", "value"))));
+
+        Assertions.assertTrue(RestClient.isSuccessfulResponse(writeResp),
+                "Failed to write secrets: " + writeResp.body());
+        JsonNode results = writeResp.body().get("results");
+        Assertions.assertEquals(4, results.size());
+
+        Assertions.assertEquals(createdId, results.get(0).get("id").asText());
+        Assertions.assertEquals(200, results.get(0).get("status").asInt());
+        Assertions.assertEquals("created-value", results.get(0).get("secret").asText());
+
+        Assertions.assertEquals(randomId, results.get(1).get("id").asText());
+        Assertions.assertEquals(200, results.get(1).get("status").asInt());
+        String randomValue = results.get(1).get("secret").asText();
+        Assertions.assertEquals(32, randomValue.length());
+        Assertions.assertTrue(containsOnlyCharactersFrom(randomValue, SecretsManagerResource.SECRET_CHAR_CLASS_DIGIT));
+
+        Assertions.assertEquals(deletedId, results.get(2).get("id").asText());
+        Assertions.assertEquals(204, results.get(2).get("status").asInt());
+        Assertions.assertFalse(results.get(2).has("secret"));
+
+        Assertions.assertEquals(invalidId, results.get(3).get("id").asText());
+        Assertions.assertEquals(400, results.get(3).get("status").asInt());
+        Assertions.assertTrue(results.get(3).has("error"));
+
+        metrics.assertCounterIncrementedBy("vault_route_create_secret__count", 2);
+        metrics.assertCounterIncrementedBy("vault_route_delete_secret__count", 1);
+
+        // Check the result of the writes.
+        HttpResponse<JsonNode> getResp = keycloakAdminClient.sendRequest(API_PATH + "/" + createdId, "GET");
+        Assertions.assertEquals("created-value", getResp.body().get("secret").asText());
+        getResp = keycloakAdminClient.sendRequest(API_PATH + "/" + randomId, "GET");
+        Assertions.assertEquals(randomValue, getResp.body().get("secret").asText());
+        getResp = keycloakAdminClient.sendRequest(API_PATH + "/" + deletedId, "GET");
+        Assertions.assertEquals(404, getResp.statusCode());
+
+        // The same ID twice.
+        HttpResponse<JsonNode> duplicateResp = keycloakAdminClient.sendRequest(API_PATH + "/_batch-write", "POST",
+                Map.of("operations", List.of(
+                        Map.of("id", createdId, "secret", "value1"),
+                        Map.of("id", createdId, "action", "delete"))));
+        Assertions.assertEquals(400, duplicateResp.statusCode());
+
+        // No operations.
+        HttpResponse<JsonNode> emptyResp = keycloakAdminClient.sendRequest(API_PATH + "/_batch-write", "POST",
+                Map.of("operations", List.of()));
+        Assertions.assertEquals(400, emptyResp.statusCode());
+    }
+
+    @Test
+    void testListSecretsPaginatedAndFiltered() {
+        List<String> secretIds = List.of("test-page-a1", "test-page-a2", "test-page-a3", "test-page-b1",
+                "test-page-b2");
+        for (String secretId : secretIds) {
+            keycloakAdminClient.sendRequest(API_PATH + "/" + secretId, "PUT", Map.of("secret", "val"));
+        }
+
+        // Pages of the sorted list.
+        assertListed(API_PATH + "?max=2", List.of("test-page-a1", "test-page-a2"), 5);
+        assertListed(API_PATH + "?first=2&max=2", List.of("test-page-a3", "test-page-b1"), 5);
+        assertListed(API_PATH + "?first=4&max=2", List.of("test-page-b2"), 5);
+        assertListed(API_PATH + "?first=10", List.of(), 5);
+        assertListed(API_PATH + "?first=3", List.of("test-page-b1", "test-page-b2"), 5);
+
+        // Filtered by prefix and by pattern.
+        assertListed(API_PATH + "?filter=" + encode("test-page-a*"),
+                List.of("test-page-a1", "test-page-a2", "test-page-a3"), 3);
+        assertListed(API_PATH + "?filter=" + encode("test-page-?1"), List.of("test-page-a1", "test-page-b1"), 2);
+        assertListed(API_PATH + "?filter=" + encode("*2"), List.of("test-page-a2", "test-page-b2"), 2);
+        assertListed(API_PATH + "?filter=" + encode("test-page-b1"), List.of("test-page-b1"), 1);
+        assertListed(API_PATH + "?filter=" + encode("test-page-c*"), List.of(), 0);
+
+        // Filtered and paginated.
+        assertListed(API_PATH + "?filter=" + encode("test-page-a*") + "&first=1&max=1", List.of("test-page-a2"), 3);
+
+        // Invalid pagination.
+        Assertions.assertEquals(400, keycloakAdminClient.sendRequest(API_PATH + "?first=-1", "GET").statusCode());
+        Assertions.assertEquals(400, keycloakAdminClient.sendRequest(API_PATH + "?max=0", "GET").statusCode());
+    }
+
+    @Test
+    void testExportAndImportSecrets() throws IOException {
+        Map<String, String> secrets = Map.of(
+                "test-export-1", "val1",
+                "test-export-2", "val2",
+                "test-export-3", "value with \"quotes\" and\nnewline");
+        secrets.forEach((secretId, secretValue) -> keycloakAdminClient.sendRequest(API_PATH + "/" + secretId, "PUT",
+                Map.of("secret", secretValue)));
+
+        // Export secrets, one JSON object per line, sorted by ID.
+        HttpResponse<String> exportResp = keycloakAdminClient.sendRawRequest(API_PATH + "/_export", "GET",
+                Map.of("Accept", SecretsManagerResource.APPLICATION_NDJSON), null);
+
+        Assertions.assertEquals(200, exportResp.statusCode(), "Failed to export secrets: " + exportResp.body());
+        Assertions.assertTrue(exportResp.headers().firstValue("Content-Type").orElse("")
+                .startsWith(SecretsManagerResource.APPLICATION_NDJSON));
+        String exported = exportResp.body();
+        List<String> lines = exported.lines().toList();
+        Assertions.assertEquals(3, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            JsonNode line = OBJECT_MAPPER.readTree(lines.get(i));
+            String secretId = "test-export-" + (i + 1);
+            Assertions.assertEquals(secretId, line.get("id").asText());
+            Assertions.assertEquals(secrets.get(secretId), line.get("secret").asText());
+        }
+
+        // Delete the secrets and import the export again.
+        cleanUpSecrets(REALM);
+        HttpResponse<String> importResp = keycloakAdminClient.sendRawRequest(API_PATH + "/_import", "POST",
+                Map.of("Content-Type", SecretsManagerResource.APPLICATION_NDJSON), exported);
+
+        Assertions.assertEquals(200, importResp.statusCode(), "Failed to import secrets: " + importResp.body());
+        JsonNode importResult = OBJECT_MAPPER.readTree(importResp.body());
+        Assertions.assertEquals(3, importResult.get("imported").asInt());
+        Assertions.assertEquals(0, importResult.get("failed").asInt());
+        secrets.forEach((secretId, secretValue) -> {
+            HttpResponse<JsonNode> getResp = keycloakAdminClient.sendRequest(API_PATH + "/" + secretId, "GET");
+            Assertions.assertEquals(secretValue, getResp.body().get("secret").asText());
+        });
+
+        // Lines that cannot be imported are reported, the others are imported.
+        String partial = String.join("\n",
+                "{\"id\":\"test-export-1\",\"secret\":\"updated\"}",
+                "",
+                "not json",
+                "{\"id\":\"test-import-empty\",\"secret\":\"\"}",
+                "{\"id\":\"not a valid id\",\"secret\":\"val\"}",
+                "{\"id\":\"test-import-new\",\"secret\":\"new\"}");
+        importResp = keycloakAdminClient.sendRawRequest(API_PATH + "/_import", "POST",
+                Map.of("Content-Type", SecretsManagerResource.APPLICATION_NDJSON), partial);
+
+        Assertions.assertEquals(200, importResp.statusCode(), "Failed to import secrets: " + importResp.body());
+        importResult = OBJECT_MAPPER.readTree(importResp.body());
+        Assertions.assertEquals(2, importResult.get("imported").asInt());
+        Assertions.assertEquals(3, importResult.get("failed").asInt());
+        JsonNode errors = importResult.get("errors");
+        Assertions.assertEquals(3, errors.size());
+        Assertions.assertEquals(3, errors.get(0).get("line").asInt());
+        Assertions.assertEquals(4, errors.get(1).get("line").asInt());
+        Assertions.assertEquals("test-import-empty", errors.get(1).get("id").asText());
+        Assertions.assertEquals(5, errors.get(2).get("line").asInt());
+        Assertions.assertEquals(400, errors.get(2).get("status").asInt());
+
+        HttpResponse<JsonNode> getResp = keycloakAdminClient.sendRequest(API_PATH + "/test-export-1", "GET");
+        Assertions.assertEquals("updated", getResp.body().get("secret").asText());
+        getResp = keycloakAdminClient.sendRequest(API_PATH + "/test-import-new", "GET");
+        Assertions.assertEquals("new", getResp.body().get("secret").asText());
+    }
+
+    @Test
+    void testListSecretsRecursively() {
+        List<String> secretIds = List.of("test-recursive-a1", "test-recursive-a2", "test-recursive-b1");
+        for (String secretId : secretIds) {
+            keycloakAdminClient.sendRequest(API_PATH + "/" + secretId, "PUT", Map.of("secret", "val"));
+        }
+
+        // Secrets in subfolders cannot be created through the API, so only the realm's own folder is listed here.
+        // The IDs are returned in the order they are found.
+        HttpResponse<JsonNode> listResp = keycloakAdminClient.sendRequest(API_PATH + "?recursive=true", "GET");
+        Assertions.assertTrue(RestClient.isSuccessfulResponse(listResp), "Failed to list secrets: " + listResp.body());
+        List<String> ids = toList(listResp.body().get("secret_ids"));
+        Assertions.assertEquals(3, ids.size());
+        Assertions.assertTrue(ids.containsAll(secretIds));
+        Assertions.assertEquals(3, listResp.body().get("total").asInt());
+
+        // Filtered.
+        listResp = keycloakAdminClient.sendRequest(API_PATH + "?recursive=true&filter=" + encode("*-a?"), "GET");
+        Assertions.assertTrue(RestClient.isSuccessfulResponse(listResp), "Failed to list secrets: " + listResp.body());
+        ids = toList(listResp.body().get("secret_ids"));
+        Assertions.assertEquals(2, ids.size());
+        Assertions.assertTrue(ids.containsAll(List.of("test-recursive-a1", "test-recursive-a2")));
+        Assertions.assertEquals(2, listResp.body().get("total").asInt());
+
+        // Pagination cannot be used with recursive listing.
+        Assertions.assertEquals(400,
+                keycloakAdminClient.sendRequest(API_PATH + "?recursive=true&max=1", "GET").statusCode());
+        Assertions.assertEquals(400,
+                keycloakAdminClient.sendRequest(API_PATH + "?recursive=true&first=1", "GET").statusCode());
+    }
+
+    @Test
+    void testListSecretsNotModified() throws InterruptedException {
+        keycloakAdminClient.sendRequest(API_PATH + "/test-list-etag-1", "PUT", Map.of("secret", "val1"));
+
+        HttpResponse<JsonNode> listResp = keycloakAdminClient.sendRequest(API_PATH, "GET");
+        Assertions.assertTrue(RestClient.isSuccessfulResponse(listResp), "Failed to list secrets: " + listResp.body());
+        String etag = listResp.headers().firstValue("ETag").orElse(null);
+        Assertions.assertNotNull(etag, "No ETag in list response");
+
+        // The list has not changed.
+        HttpResponse<String> notModifiedResp = keycloakAdminClient.sendRawRequest(API_PATH, "GET",
+                Map.of("If-None-Match", etag), null);
+        Assertions.assertEquals(304, notModifiedResp.statusCode());
+        Assertions.assertEquals(etag, notModifiedResp.headers().firstValue("ETag").orElse(null));
+        Assertions.assertTrue(notModifiedResp.body().isEmpty());
+
+        notModifiedResp = keycloakAdminClient.sendRawRequest(API_PATH, "GET", Map.of("If-None-Match", "W/" + etag),
+                null);
+        Assertions.assertEquals(304, notModifiedResp.statusCode());
+
+        // Other query parameters return another page of the list.
+        HttpResponse<String> pageResp = keycloakAdminClient.sendRawRequest(API_PATH + "?max=1", "GET",
+                Map.of("If-None-Match", etag), null);
+        Assertions.assertEquals(200, pageResp.statusCode());
+
+        // The list has changed. Other Keycloak nodes learn about the write asynchronously, so wait for it.
+        keycloakAdminClient.sendRequest(API_PATH + "/test-list-etag-2", "PUT", Map.of("secret", "val2"));
+        HttpResponse<String> modifiedResp = null;
+        for (int i = 0; i < 50; i++) {
+            modifiedResp = keycloakAdminClient.sendRawRequest(API_PATH, "GET", Map.of("If-None-Match", etag), null);
+            if (modifiedResp.statusCode() != 304) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        Assertions.assertEquals(200, modifiedResp.statusCode());
+        Assertions.assertTrue(modifiedResp.body().contains("test-list-etag-2"));
+        Assertions.assertNotEquals(etag, modifiedResp.headers().firstValue("ETag").orElse(null));
+    }
+
+    @Test
+    void testGetSecretNotModified() {
+        String secretId1 = "test-secret-etag-1";
+        String secretId2 = "test-secret-etag-2";
+
+        keycloakAdminClient.sendRequest(API_PATH + "/" + secretId1, "PUT", Map.of("secret", "same-value"));
+        keycloakAdminClient.sendRequest(API_PATH + "/" + secretId2, "PUT", Map.of("secret", "same-value"));
+
+        HttpResponse<JsonNode> getResp1 = keycloakAdminClient.sendRequest(API_PATH + "/" + secretId1, "GET");
+        String etag1 = getResp1.headers().firstValue("ETag").orElse(null);
+        Assertions.assertNotNull(etag1, "No ETag in secret response");
+
+        // The ETag depends on the ID, so that equal values cannot be recognized from the ETags.
+        HttpResponse<JsonNode> getResp2 = keycloakAdminClient.sendRequest(API_PATH + "/" + secretId2, "GET");
+        Assertions.assertNotEquals(etag1, getResp2.headers().firstValue("ETag").orElse(null));
+
+        // The secret has not changed.
+        HttpResponse<String> notModifiedResp = keycloakAdminClient.sendRawRequest(API_PATH + "/" + secretId1, "GET",
+                Map.of("If-None-Match", etag1), null);
+        Assertions.assertEquals(304, notModifiedResp.statusCode());
+        Assertions.assertEquals(etag1, notModifiedResp.headers().firstValue("ETag").orElse(null));
+        Assertions.assertTrue(notModifiedResp.body().isEmpty());
+
+        notModifiedResp = keycloakAdminClient.sendRawRequest(API_PATH + "/" + secretId1, "GET",
+                Map.of("If-None-Match", "\"other\", " + etag1), null);
+        Assertions.assertEquals(304, notModifiedResp.statusCode());
+
+        // The secret has changed.
+        keycloakAdminClient.sendRequest(API_PATH + "/" + secretId1, "PUT", Map.of("secret", "new-value"));
+        HttpResponse<String> modifiedResp = keycloakAdminClient.sendRawRequest(API_PATH + "/" + secretId1, "GET",
+                Map.of("If-None-Match", etag1), null);
+        Assertions.assertEquals(200, modifiedResp.statusCode());
+        Assertions.assertTrue(modifiedResp.body().contains("new-value"));
+        Assertions.assertNotEquals(etag1, modifiedResp.headers().firstValue("ETag").orElse(null));
+
+        // The secret has been deleted.
+        keycloakAdminClient.sendRequest(API_PATH + "/" + secretId2, "DELETE");
+        HttpResponse<String> deletedResp = keycloakAdminClient.sendRawRequest(API_PATH + "/" + secretId2, "GET",
+                Map.of("If-None-Match", "*"), null);
+        Assertions.assertEquals(404, deletedResp.statusCode());
+    }
+
+    @Test
+    void testSyncSecrets() throws NoSuchAlgorithmException {
+        keycloakAdminClient.sendRequest(API_PATH + "/test-sync-unchanged", "PUT", Map.of("secret", "same"));
+        keycloakAdminClient.sendRequest(API_PATH + "/test-sync-updated", "PUT", Map.of("secret", "old"));
+        keycloakAdminClient.sendRequest(API_PATH + "/test-sync-hashed", "PUT", Map.of("secret", "hashed"));
+        keycloakAdminClient.sendRequest(API_PATH + "/test-sync-mismatched", "PUT", Map.of("secret", "current"));
+        keycloakAdminClient.sendRequest(API_PATH + "/test-sync-pruned", "PUT", Map.of("secret", "extra"));
+
+        List<Map<String, Object>> desired = List.of(
+                Map.of("id", "test-sync-unchanged", "secret", "same"),
+                Map.of("id", "test-sync-updated", "secret", "new"),
+                Map.of("id", "test-sync-created", "secret", "created"),
+                Map.of("id", "test-sync-hashed", "sha256", sha256Hex("hashed")),
+                Map.of("id", "test-sync-mismatched", "sha256", sha256Hex("desired")));
+
+        // Dry run reports the differences without writing.
+        Metrics metrics = new Metrics(OPENBAO_METRICS_URL);
+        HttpResponse<JsonNode> syncResp = keycloakAdminClient.sendRequest(API_PATH + "/_sync", "POST",
+                Map.of("secrets", desired, "prune", true, "dry_run", true));
+
+        Assertions.assertTrue(RestClient.isSuccessfulResponse(syncResp), "Failed to sync secrets: " + syncResp.body());
+        assertSyncResult(syncResp.body(), true);
+        metrics.assertCounterIncrementedBy("vault_route_create_secret__count", 0);
+        metrics.assertCounterIncrementedBy("vault_route_update_secret__count", 0);
+        metrics.assertCounterIncrementedBy("vault_route_delete_secret__count", 0);
+        Assertions.assertEquals(404,
+                keycloakAdminClient.sendRequest(API_PATH + "/test-sync-created", "GET").statusCode());
+
+        // Only the secrets that differ are written, and the secrets that are not given are deleted.
+        syncResp = keycloakAdminClient.sendRequest(API_PATH + "/_sync", "POST",
+                Map.of("secrets", desired, "prune", true));
+
+        Assertions.assertTrue(RestClient.isSuccessfulResponse(syncResp), "Failed to sync secrets: " + syncResp.body());
+        assertSyncResult(syncResp.body(), false);
+        metrics.assertCounterIncrementedBy("vault_route_create_secret__count", 1);
+        metrics.assertCounterIncrementedBy("vault_route_update_secret__count", 1);
+        metrics.assertCounterIncrementedBy("vault_route_delete_secret__count", 1);
+
+        Assertions.assertEquals("new", keycloakAdminClient.sendRequest(API_PATH + "/test-sync-updated", "GET")
+                .body().get("secret").asText());
+        Assertions.assertEquals("created", keycloakAdminClient.sendRequest(API_PATH + "/test-sync-created", "GET")
+                .body().get("secret").asText());
+        Assertions.assertEquals(404,
+                keycloakAdminClient.sendRequest(API_PATH + "/test-sync-pruned", "GET").statusCode());
+
+        // Without prune, secrets that are not given are kept.
+        syncResp = keycloakAdminClient.sendRequest(API_PATH + "/_sync", "POST",
+                Map.of("secrets", List.of(Map.of("id", "test-sync-updated", "secret", "new"))));
+        Assertions.assertTrue(RestClient.isSuccessfulResponse(syncResp), "Failed to sync secrets: " + syncResp.body());
+        Assertions.assertEquals(1, syncResp.body().get("unchanged").asInt());
+        Assertions.assertTrue(syncResp.body().get("deleted").isEmpty());
+
+        // Both value and hash.
+        HttpResponse<JsonNode> invalidResp = keycloakAdminClient.sendRequest(API_PATH + "/_sync", "POST",
+                Map.of("secrets", List.of(Map.of("id", "test-sync-updated", "secret", "new", "sha256",
+                        sha256Hex("new")))));
+        Assertions.assertEquals(400, invalidResp.statusCode());
+
+        // An empty desired state with prune would delete all secrets, and must be allowed explicitly.
+        invalidResp = keycloakAdminClient.sendRequest(API_PATH + "/_sync", "POST",
+                Map.of("secrets", List.of(), "prune", true));
+        Assertions.assertEquals(400, invalidResp.statusCode());
+        Assertions.assertEquals("new", keycloakAdminClient.sendRequest(API_PATH + "/test-sync-updated", "GET")
+                .body().get("secret").asText());
+
+        syncResp = keycloakAdminClient.sendRequest(API_PATH + "/_sync", "POST",
+                Map.of("secrets", List.of(), "prune", true, "allow_empty_prune", true, "dry_run", true));
+        Assertions.assertTrue(RestClient.isSuccessfulResponse(syncResp), "Failed to sync secrets: " + syncResp.body());
+        Assertions.assertTrue(toList(syncResp.body().get("deleted")).contains("test-sync-updated"));
+    }
+
+    @Test
+    void testWatchSecrets() {
+        keycloakAdminClient.sendRequest(API_PATH + "/test-watch-deleted", "PUT", Map.of("secret", "val"));
+
+        // Without a cursor, the current cursor is returned immediately.
+        HttpResponse<JsonNode> watchResp = keycloakAdminClient.sendRequest(API_PATH + "/_watch", "GET");
+        Assertions.assertTrue(RestClient.isSuccessfulResponse(watchResp), "Failed to watch secrets: " + watchResp.body());
+        Assertions.assertFalse(watchResp.body().get("cursor").asText().isEmpty());
+        Assertions.assertFalse(watchResp.body().get("reset").asBoolean());
+        Assertions.assertTrue(watchResp.body().get("events").isEmpty());
+
+        // Changes after the cursor, without secret values.
+        JsonNode changes = watchChanges(() -> keycloakAdminClient.sendRequest(API_PATH + "/_batch-write", "POST",
+                Map.of("operations", List.of(
+                        Map.of("id", "test-watch-created", "secret", "val"),
+                        Map.of("id", "test-watch-deleted", "action", "delete")))),
+                10000);
+        JsonNode events = changes.get("events");
+        Assertions.assertEquals(2, events.size(), "Unexpected events: " + events);
+        Assertions.assertEquals("test-watch-created", events.get(0).get("id").asText());
+        Assertions.assertEquals("upsert", events.get(0).get("type").asText());
+        Assertions.assertFalse(events.get(0).has("secret"));
+        Assertions.assertEquals("test-watch-deleted", events.get(1).get("id").asText());
+        Assertions.assertEquals("delete", events.get(1).get("type").asText());
+
+        // No changes within the timeout.
+        changes = watchChanges(() -> {
+        }, 500);
+        Assertions.assertTrue(changes.get("events").isEmpty());
+
+        // The client must list the secrets again if the cursor cannot be continued.
+        watchResp = keycloakAdminClient.sendRequest(API_PATH + "/_watch?cursor=unknown&timeout=0", "GET");
+        Assertions.assertTrue(RestClient.isSuccessfulResponse(watchResp), "Failed to watch secrets: " + watchResp.body());
+        Assertions.assertTrue(watchResp.body().get("reset").asBoolean());
+        Assertions.assertTrue(watchResp.body().get("events").isEmpty());
+
+        // Invalid timeout.
+        Assertions.assertEquals(400,
+                keycloakAdminClient.sendRequest(API_PATH + "/_watch?cursor=unknown&timeout=-1", "GET").statusCode());
+    }
+
     class TestRealm implements BeforeEachCallback, AfterEachCallback {
 
         @Override
@@ -536,6 +980,60 @@ class SecretsManagerIT {
         }
     }
 
+    private void assertListed(String endpoint, List<String> expectedIds, int expectedTotal) {
+        HttpResponse<JsonNode> listResp = keycloakAdminClient.sendRequest(endpoint, "GET");
+        Assertions.assertTrue(RestClient.isSuccessfulResponse(listResp), "Failed to list secrets: " + listResp.body());
+        Assertions.assertEquals(expectedIds, toList(listResp.body().get("secret_ids")), endpoint);
+        Assertions.assertEquals(expectedTotal, listResp.body().get("total").asInt(), endpoint);
+    }
+
+    /**
+     * Gets the current cursor, makes the changes and returns the changes after the cursor. The cursor can only be
+     * continued on the Keycloak node that returned it, and the test deployment does not use sticky sessions, so
+     * this starts over if the cursor was reset.
+     */
+    private JsonNode watchChanges(Runnable changes, long timeoutMillis) {
+        HttpResponse<JsonNode> cursorResp = keycloakAdminClient.sendRequest(API_PATH + "/_watch", "GET");
+        Assertions.assertTrue(RestClient.isSuccessfulResponse(cursorResp),
+                "Failed to watch secrets: " + cursorResp.body());
+        String cursor = cursorResp.body().get("cursor").asText();
+
+        changes.run();
+
+        // The cursor can be continued on any Keycloak node.
+        HttpResponse<JsonNode> watchResp = keycloakAdminClient.sendRequest(
+                API_PATH + "/_watch?cursor=" + encode(cursor) + "&timeout=" + timeoutMillis, "GET");
+        Assertions.assertTrue(RestClient.isSuccessfulResponse(watchResp),
+                "Failed to watch secrets: " + watchResp.body());
+        Assertions.assertFalse(watchResp.body().get("reset").asBoolean(), "Watch cursor was reset: " + cursor);
+        return watchResp.body();
+    }
+
+    private static void assertSyncResult(JsonNode result, boolean dryRun) {
+        Assertions.assertEquals(dryRun, result.get("dry_run").asBoolean());
+        Assertions.assertEquals(List.of("test-sync-created"), toList(result.get("created")));
+        Assertions.assertEquals(List.of("test-sync-updated"), toList(result.get("updated")));
+        Assertions.assertEquals(List.of("test-sync-pruned"), toList(result.get("deleted")));
+        Assertions.assertEquals(List.of("test-sync-mismatched"), toList(result.get("mismatched")));
+        Assertions.assertEquals(2, result.get("unchanged").asInt());
+        Assertions.assertTrue(result.get("errors").isEmpty());
+    }
+
+    private static String sha256Hex(String value) throws NoSuchAlgorithmException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest);
+    }
+
+    private static List<String> toList(JsonNode array) {
+        List<String> values = new java.util.ArrayList<>();
+        array.forEach(n -> values.add(n.asText()));
+        return values;
+    }
+
+    private static String encode(String queryParam) {
+        return URLEncoder.encode(queryParam, StandardCharsets.UTF_8);
+    }
+
     private static boolean containsOnlyCharactersFrom(String password, String... charClasses) {
         StringBuilder allowedChars = new StringBuilder();
         for (String charClass : charClasses) {
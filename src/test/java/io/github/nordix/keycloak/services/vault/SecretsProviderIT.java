@@ -176,6 +176,40 @@ class SecretsProviderIT {
         metrics.assertCounterIncrementedBy("vault_route_read_secret__count", 2);
     }
 
+    /**
+     * Test case for verifying write-through cache population on secret update.
+     *
+     * NOTE:
+     * To run this test case, add the following parameter to keycloak.yaml
+     *     --spi-admin-realm-restapi-extension--secrets-manager--cache-write-through=true
+     * and restart Keycloak.
+     */
+    @Disabled("Disabled due to manual write-through configuration update requirement (see comment).")
+    @Test
+    void testSecretCacheWriteThrough() {
+        testRealm.storeSecret("client.test-client", CLIENT_SECRET);
+        testRealm.createClientWithVaultSecret("${vault.client.test-client}");
+
+        Metrics metrics = new Metrics(OPENBAO_METRICS_URL);
+
+        // Authenticate via Keycloak 0 and Keycloak 1 (cache hit, the secret was written to the cache).
+        int status0 = performClientCredentialsGrant(KEYCLOAK_0_BASE_URL, TEST_CLIENT_ID, CLIENT_SECRET);
+        Assertions.assertEquals(200, status0, "Expected successful authentication via Keycloak 0");
+        int status1 = performClientCredentialsGrant(KEYCLOAK_1_BASE_URL, TEST_CLIENT_ID, CLIENT_SECRET);
+        Assertions.assertEquals(200, status1, "Expected successful authentication via Keycloak 1");
+
+        // Rotate the secret via Keycloak 0 and authenticate via Keycloak 1 with the new secret (cache hit).
+        String newSecret = "my-new-secret";
+        testRealm.storeSecret("client.test-client", newSecret);
+
+        status1 = performClientCredentialsGrant(KEYCLOAK_1_BASE_URL, TEST_CLIENT_ID, newSecret);
+        Assertions.assertEquals(200, status1,
+                "Expected successful authentication with updated secret via Keycloak 1");
+
+        // Check that the secret was never read from OpenBao.
+        metrics.assertCounterIncrementedBy("vault_route_read_secret__count", 0);
+    }
+
     /**
      * Test case for verifying secret cache expiry.
      *